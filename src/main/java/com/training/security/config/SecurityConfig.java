@@ -1,16 +1,28 @@
 package com.training.security.config;
 
+import com.training.security.filter.AccessTokenAuthenticationFilter;
+import com.training.security.filter.AuthenticationOverloadFilter;
+import com.training.security.service.AccessTokenService;
+import com.training.security.service.CachingAuthenticationProvider;
+import com.training.security.service.LoginAttemptThrottle;
+import com.training.security.service.PasswordVerificationExecutor;
+import com.training.security.service.ThrottlingAuthenticationProvider;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
+import org.springframework.security.authentication.AuthenticationManager;
+import org.springframework.security.authentication.AuthenticationProvider;
+import org.springframework.security.authentication.dao.DaoAuthenticationProvider;
 import org.springframework.security.config.annotation.authentication.builders.AuthenticationManagerBuilder;
 import org.springframework.security.config.annotation.method.configuration.EnableGlobalMethodSecurity;
 import org.springframework.security.config.annotation.web.builders.HttpSecurity;
 import org.springframework.security.config.annotation.web.configuration.EnableWebSecurity;
 import org.springframework.security.config.annotation.web.configuration.WebSecurityConfigurerAdapter;
+import org.springframework.security.config.http.SessionCreationPolicy;
 import org.springframework.security.core.userdetails.UserDetailsService;
 import org.springframework.security.crypto.bcrypt.BCryptPasswordEncoder;
 import org.springframework.security.crypto.password.PasswordEncoder;
+import org.springframework.security.web.authentication.www.BasicAuthenticationFilter;
 
 @EnableWebSecurity
 @Configuration
@@ -28,17 +40,57 @@ public class SecurityConfig extends WebSecurityConfigurerAdapter{
     @Autowired
     private PasswordEncoder passwordEncoder;
 
+    @Autowired(required = false)
+    private CachingAuthenticationProvider cachingAuthenticationProvider;
+
+    @Autowired(required = false)
+    private AccessTokenService accessTokenService;
+
+    @Autowired(required = false)
+    private PasswordVerificationExecutor passwordVerificationExecutor;
+
+    @Autowired(required = false)
+    private LoginAttemptThrottle loginAttemptThrottle;
+
+    @Bean
+    @Override
+    public AuthenticationManager authenticationManagerBean() throws Exception {
+        return super.authenticationManagerBean();
+    }
+
     @Override
     protected void configure(AuthenticationManagerBuilder auth) throws Exception {
-        auth.userDetailsService(userDetailsService)
-                .passwordEncoder(passwordEncoder);
+        auth.authenticationProvider(authenticationProvider());
+    }
+
+    private AuthenticationProvider authenticationProvider() {
+        DaoAuthenticationProvider provider = cachingAuthenticationProvider != null
+                ? cachingAuthenticationProvider
+                : new DaoAuthenticationProvider();
+        provider.setUserDetailsService(userDetailsService);
+        provider.setPasswordEncoder(passwordVerificationExecutor != null
+                ? passwordVerificationExecutor.verifying(passwordEncoder)
+                : passwordEncoder);
+        if (loginAttemptThrottle != null) {
+            return new ThrottlingAuthenticationProvider(provider, loginAttemptThrottle);
+        }
+        return provider;
     }
 
     @Override
     protected void configure(HttpSecurity http) throws Exception {
         http.csrf().disable();
         http.httpBasic();
+        if (loginAttemptThrottle != null || passwordVerificationExecutor != null) {
+            http.addFilterBefore(new AuthenticationOverloadFilter(), BasicAuthenticationFilter.class);
+        }
+        if (accessTokenService != null) {
+            http.sessionManagement().sessionCreationPolicy(SessionCreationPolicy.STATELESS);
+            http.addFilterBefore(new AccessTokenAuthenticationFilter(accessTokenService),
+                    BasicAuthenticationFilter.class);
+        }
         http.authorizeRequests()
+                .antMatchers("/auth/token").permitAll()
                 .antMatchers("/users/**").hasRole("ADMIN")
                 .antMatchers("/todos/**").hasAnyRole("ADMIN", "USER")
                 .antMatchers("/search/todos/**").hasAnyRole("ADMIN", "USER")
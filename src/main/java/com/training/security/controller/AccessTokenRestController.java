@@ -0,0 +1,63 @@
+package com.training.security.controller;
+
+import com.training.security.controller.dto.AccessTokenDto;
+import com.training.security.controller.dto.LoginDto;
+import com.training.security.model.CurrentUser;
+import com.training.security.service.AccessTokenService;
+import com.training.security.service.AuthenticationOverloadException;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.security.authentication.AuthenticationManager;
+import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+import org.springframework.security.core.Authentication;
+import org.springframework.security.core.AuthenticationException;
+import org.springframework.security.web.authentication.WebAuthenticationDetails;
+import org.springframework.web.bind.annotation.*;
+
+import javax.servlet.http.HttpServletRequest;
+import javax.validation.Valid;
+
+@RestController
+@RequestMapping("/auth/token")
+@ConditionalOnProperty(name = "security.token.enabled", havingValue = "true")
+public class AccessTokenRestController {
+
+    private static final String TOKEN_TYPE = "Bearer";
+
+    private AuthenticationManager authenticationManager;
+    private AccessTokenService accessTokenService;
+
+    public AccessTokenRestController(AuthenticationManager authenticationManager, AccessTokenService accessTokenService) {
+        this.authenticationManager = authenticationManager;
+        this.accessTokenService = accessTokenService;
+    }
+
+    @PostMapping
+    public AccessTokenDto create(@RequestBody @Valid LoginDto login, HttpServletRequest request) {
+        UsernamePasswordAuthenticationToken credentials =
+                new UsernamePasswordAuthenticationToken(login.getLogin(), login.getPassword());
+        credentials.setDetails(new WebAuthenticationDetails(request));
+        Authentication authentication = authenticationManager.authenticate(credentials);
+        CurrentUser user = (CurrentUser) authentication.getPrincipal();
+        return new AccessTokenDto(accessTokenService.issue(user), TOKEN_TYPE, accessTokenService.getTtlSeconds());
+    }
+
+    @ExceptionHandler(AuthenticationException.class)
+    @ResponseStatus(HttpStatus.UNAUTHORIZED)
+    public String badCredentialsHandler() {
+        return "niepoprawny login lub haslo";
+    }
+
+    /**
+     * Odrzucenie przez ograniczenia (pelna pula weryfikacji, blokada po nieudanych probach) - wyjatek
+     * z kontrolera nie dociera do AuthenticationOverloadFilter, wiec Retry-After ustawiany jest tutaj
+     */
+    @ExceptionHandler(AuthenticationOverloadException.class)
+    public ResponseEntity<String> overloadHandler(AuthenticationOverloadException e) {
+        return ResponseEntity.status(e.getStatus())
+                .header(HttpHeaders.RETRY_AFTER, String.valueOf(e.getRetryAfterSeconds()))
+                .body(e.getMessage());
+    }
+}
@@ -0,0 +1,14 @@
+package com.training.security.controller.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+@AllArgsConstructor
+@Getter
+public class AccessTokenDto {
+
+    private String token;
+    private String tokenType;
+    private long expiresIn;
+
+}
@@ -0,0 +1,20 @@
+package com.training.security.controller.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+
+import javax.validation.constraints.NotNull;
+
+@AllArgsConstructor
+@NoArgsConstructor
+@Getter
+public class LoginDto {
+
+    @NotNull
+    private String login;
+
+    @NotNull
+    private String password;
+
+}
@@ -0,0 +1,32 @@
+package com.training.security.filter;
+
+import com.training.security.service.AuthenticationOverloadException;
+import org.springframework.http.HttpHeaders;
+import org.springframework.web.filter.OncePerRequestFilter;
+
+import javax.servlet.FilterChain;
+import javax.servlet.ServletException;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+import java.io.IOException;
+
+/**
+ * Zamienia uwierzytelnienia odrzucone przez ograniczenia (pelna pula, blokada po nieudanych probach)
+ * na szybkie 429/503 z naglowkiem Retry-After
+ */
+public class AuthenticationOverloadFilter extends OncePerRequestFilter {
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain chain)
+            throws ServletException, IOException {
+        try {
+            chain.doFilter(request, response);
+        } catch (AuthenticationOverloadException e) {
+            if (response.isCommitted()) {
+                throw e;
+            }
+            response.setHeader(HttpHeaders.RETRY_AFTER, String.valueOf(e.getRetryAfterSeconds()));
+            response.sendError(e.getStatus().value(), e.getMessage());
+        }
+    }
+}
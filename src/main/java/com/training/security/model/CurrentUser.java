@@ -4,39 +4,44 @@ package com.training.security.model;
 import lombok.Builder;
 import lombok.Getter;
 import lombok.NonNull;
-import lombok.RequiredArgsConstructor;
 import lombok.ToString;
 import org.springframework.security.core.GrantedAuthority;
 import org.springframework.security.core.authority.AuthorityUtils;
 import org.springframework.security.core.userdetails.UserDetails;
 
 import java.util.Collection;
+import java.util.Collections;
 import java.util.List;
 
 /**
- * Klasa odpowiedzialna za reprezentacje uzytkownika w kontekscie bezpieczenstwa
+ * Klasa odpowiedzialna za reprezentacje uzytkownika w kontekscie bezpieczenstwa.
+ * Niezmienna, lista uprawnien budowana jest raz przy tworzeniu obiektu.
  */
 @Getter
-@Builder
-@ToString
-@RequiredArgsConstructor
+@ToString(exclude = "authorities")
 public class CurrentUser implements UserDetails {
 
     private static final long serialVersionUID = 6608807423798767487L;
 
-    @NonNull
-    private String login;
+    private final String login;
 
-    @NonNull
-    private String passwordHash;
+    private final String passwordHash;
 
-    @NonNull
-    private String role;
+    private final String role;
+
+    private final List<GrantedAuthority> authorities;
+
+    @Builder
+    public CurrentUser(@NonNull String login, @NonNull String passwordHash, @NonNull String role) {
+        this.login = login;
+        this.passwordHash = passwordHash;
+        this.role = role;
+        this.authorities = Collections.unmodifiableList(AuthorityUtils.createAuthorityList(role));
+    }
 
     @Override
     public Collection<? extends GrantedAuthority> getAuthorities() {
-        List<GrantedAuthority> authorityList = AuthorityUtils.createAuthorityList(role);
-        return authorityList;
+        return authorities;
     }
 
     @Override
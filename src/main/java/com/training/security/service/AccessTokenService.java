@@ -0,0 +1,149 @@
+package com.training.security.service;
+
+import com.training.security.model.CurrentUser;
+import com.training.user.service.UserModifiedEvent;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.event.EventListener;
+import org.springframework.security.authentication.BadCredentialsException;
+import org.springframework.security.crypto.keygen.KeyGenerators;
+import org.springframework.stereotype.Service;
+
+import javax.crypto.Mac;
+import javax.crypto.spec.SecretKeySpec;
+import java.nio.charset.StandardCharsets;
+import java.security.GeneralSecurityException;
+import java.security.MessageDigest;
+import java.time.Clock;
+import java.util.Base64;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Wystawia i weryfikuje krotko zyjace, podpisane HMAC-iem tokeny dostepu.
+ * Token niesie login, role i czas waznosci, wiec jego sprawdzenie nie wymaga ani bazy, ani BCrypta.
+ * Uniewaznienia po zmianie hasla lub roli sa pamietane tylko w pamieci tego wezla - przy kilku instancjach
+ * stary token jest akceptowany przez pozostale az do wygasniecia, dlatego TTL powinien byc krotki.
+ */
+@Service
+@ConditionalOnProperty(name = "security.token.enabled", havingValue = "true")
+public class AccessTokenService {
+
+    private static final String SIGNATURE_ALGORITHM = "HmacSHA256";
+    private static final int GENERATED_SECRET_LENGTH = 32;
+    private static final String SEPARATOR = ":";
+    private static final String NO_PASSWORD = "";
+
+    private final SecretKeySpec signingKey;
+    private final long ttlSeconds;
+    private final Map<String, Long> revokedBefore = new ConcurrentHashMap<>();
+    private final Clock clock;
+
+    @Autowired
+    public AccessTokenService(@Value("${security.token.secret:}") String secret,
+                              @Value("${security.token.ttl-seconds:900}") long ttlSeconds) {
+        this(secret, ttlSeconds, Clock.systemUTC());
+    }
+
+    AccessTokenService(String secret, long ttlSeconds, Clock clock) {
+        byte[] key = secret.isEmpty()
+                ? KeyGenerators.secureRandom(GENERATED_SECRET_LENGTH).generateKey()
+                : secret.getBytes(StandardCharsets.UTF_8);
+        this.signingKey = new SecretKeySpec(key, SIGNATURE_ALGORITHM);
+        this.ttlSeconds = ttlSeconds;
+        this.clock = clock;
+    }
+
+    public String issue(CurrentUser user) {
+        long issuedAt = now();
+        String payload = (issuedAt + TimeUnit.SECONDS.toMillis(ttlSeconds)) + SEPARATOR + issuedAt + SEPARATOR
+                + user.getRole() + SEPARATOR + user.getLogin();
+        byte[] payloadBytes = payload.getBytes(StandardCharsets.UTF_8);
+        return encode(payloadBytes) + "." + encode(sign(payloadBytes));
+    }
+
+    public long getTtlSeconds() {
+        return ttlSeconds;
+    }
+
+    public CurrentUser verify(String token) {
+        int dot = token.indexOf('.');
+        if (dot < 0) {
+            throw new BadCredentialsException("Malformed access token");
+        }
+        byte[] payloadBytes;
+        byte[] signature;
+        try {
+            payloadBytes = Base64.getUrlDecoder().decode(token.substring(0, dot));
+            signature = Base64.getUrlDecoder().decode(token.substring(dot + 1));
+        } catch (IllegalArgumentException e) {
+            throw new BadCredentialsException("Malformed access token");
+        }
+        if (!MessageDigest.isEqual(sign(payloadBytes), signature)) {
+            throw new BadCredentialsException("Invalid access token signature");
+        }
+        String[] fields = new String(payloadBytes, StandardCharsets.UTF_8).split(SEPARATOR, 4);
+        if (fields.length != 4) {
+            throw new BadCredentialsException("Malformed access token");
+        }
+        long expiresAt = Long.parseLong(fields[0]);
+        long issuedAt = Long.parseLong(fields[1]);
+        String login = fields[3];
+        if (now() >= expiresAt || isRevoked(login, issuedAt)) {
+            throw new BadCredentialsException("Access token expired");
+        }
+        return CurrentUser.builder()
+                .login(login)
+                .passwordHash(NO_PASSWORD)
+                .role(fields[2])
+                .build();
+    }
+
+    /**
+     * Tokeny wystawione przed zmiana hasla lub roli przestaja byc akceptowane przez ten wezel.
+     */
+    @EventListener
+    public void onUserModified(UserModifiedEvent event) {
+        revoke(event.getLogin());
+    }
+
+    /**
+     * Uniewaznienia starsze niz czas zycia tokenu sa usuwane - wszystkie tokeny wystawione przed nimi juz wygasly,
+     * wiec mapa obejmuje tylko uzytkownikow zmienionych w ostatnim ttlSeconds
+     */
+    private void revoke(String login) {
+        long now = now();
+        long ttlMillis = TimeUnit.SECONDS.toMillis(ttlSeconds);
+        revokedBefore.values().removeIf(revoked -> revoked + ttlMillis < now);
+        revokedBefore.put(login, now);
+    }
+
+    int revocationCount() {
+        return revokedBefore.size();
+    }
+
+    private boolean isRevoked(String login, long issuedAt) {
+        Long revoked = revokedBefore.get(login);
+        return revoked != null && issuedAt <= revoked;
+    }
+
+    private byte[] sign(byte[] payload) {
+        try {
+            Mac mac = Mac.getInstance(SIGNATURE_ALGORITHM);
+            mac.init(signingKey);
+            return mac.doFinal(payload);
+        } catch (GeneralSecurityException e) {
+            throw new IllegalStateException("Could not sign access token", e);
+        }
+    }
+
+    private static String encode(byte[] bytes) {
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(bytes);
+    }
+
+    private long now() {
+        return clock.millis();
+    }
+}
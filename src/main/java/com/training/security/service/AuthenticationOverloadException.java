@@ -0,0 +1,21 @@
+package com.training.security.service;
+
+import lombok.Getter;
+import org.springframework.http.HttpStatus;
+
+/**
+ * Uwierzytelnienie odrzucone zanim doszlo do weryfikacji hasla - celowo nie jest AuthenticationException,
+ * zeby nie zamienilo sie w 401 i dotarlo do AuthenticationOverloadFilter
+ */
+@Getter
+public abstract class AuthenticationOverloadException extends RuntimeException {
+
+    private final long retryAfterSeconds;
+
+    protected AuthenticationOverloadException(String message, long retryAfterSeconds) {
+        super(message);
+        this.retryAfterSeconds = retryAfterSeconds;
+    }
+
+    public abstract HttpStatus getStatus();
+}
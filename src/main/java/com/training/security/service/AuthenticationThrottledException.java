@@ -0,0 +1,17 @@
+package com.training.security.service;
+
+import org.springframework.http.HttpStatus;
+import org.springframework.web.bind.annotation.ResponseStatus;
+
+@ResponseStatus(HttpStatus.TOO_MANY_REQUESTS)
+public class AuthenticationThrottledException extends AuthenticationOverloadException {
+
+    public AuthenticationThrottledException(String message, long retryAfterSeconds) {
+        super(message, retryAfterSeconds);
+    }
+
+    @Override
+    public HttpStatus getStatus() {
+        return HttpStatus.TOO_MANY_REQUESTS;
+    }
+}
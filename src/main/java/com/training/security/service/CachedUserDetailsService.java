@@ -0,0 +1,71 @@
+package com.training.security.service;
+
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import com.training.user.service.UserModifiedEvent;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.actuate.endpoint.PublicMetrics;
+import org.springframework.boot.actuate.metrics.Metric;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.Primary;
+import org.springframework.context.event.EventListener;
+import org.springframework.security.core.userdetails.UserDetails;
+import org.springframework.security.core.userdetails.UserDetailsService;
+import org.springframework.security.core.userdetails.UsernameNotFoundException;
+import org.springframework.stereotype.Service;
+
+import java.util.Collection;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Dekorator {@link UserDetailsServiceImpl} trzymajacy gotowe, niezmienne obiekty CurrentUser,
+ * zeby kazde uwierzytelnienie nie odpytywalo tabeli USERS.
+ */
+@Service
+@Primary
+@ConditionalOnProperty(name = "security.user-details-cache.enabled", havingValue = "true")
+public class CachedUserDetailsService implements UserDetailsService, PublicMetrics {
+
+    private final UserDetailsService delegate;
+    private final Cache<String, UserDetails> users;
+    private final AtomicLong invalidations = new AtomicLong();
+
+    @Autowired
+    public CachedUserDetailsService(UserDetailsServiceImpl delegate,
+                                    @Value("${security.user-details-cache.maximum-size:10000}") long maximumSize,
+                                    @Value("${security.user-details-cache.ttl-seconds:600}") long ttlSeconds) {
+        this.delegate = delegate;
+        this.users = CacheBuilder.newBuilder()
+                .maximumSize(maximumSize)
+                .expireAfterWrite(ttlSeconds, TimeUnit.SECONDS)
+                .recordStats()
+                .build();
+    }
+
+    @Override
+    public UserDetails loadUserByUsername(String username) throws UsernameNotFoundException {
+        UserDetails cached = users.getIfPresent(username);
+        if (cached != null) {
+            return cached;
+        }
+        long generation = invalidations.get();
+        UserDetails loaded = delegate.loadUserByUsername(username);
+        if (generation == invalidations.get()) {
+            users.put(username, loaded);
+        }
+        return loaded;
+    }
+
+    @EventListener
+    public void onUserModified(UserModifiedEvent event) {
+        invalidations.incrementAndGet();
+        users.invalidate(event.getLogin());
+    }
+
+    @Override
+    public Collection<Metric<?>> metrics() {
+        return GuavaCacheMetrics.of("security.user-details-cache", users);
+    }
+}
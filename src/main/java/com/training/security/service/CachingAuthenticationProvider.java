@@ -0,0 +1,117 @@
+package com.training.security.service;
+
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import com.training.user.service.UserModifiedEvent;
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.actuate.endpoint.PublicMetrics;
+import org.springframework.boot.actuate.metrics.Metric;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.event.EventListener;
+import org.springframework.security.authentication.dao.DaoAuthenticationProvider;
+import org.springframework.security.core.Authentication;
+import org.springframework.security.core.AuthenticationException;
+import org.springframework.security.core.userdetails.UserDetails;
+import org.springframework.security.core.userdetails.UserDetailsService;
+import org.springframework.security.crypto.keygen.KeyGenerators;
+import org.springframework.security.crypto.password.PasswordEncoder;
+import org.springframework.stereotype.Component;
+
+import javax.crypto.Mac;
+import javax.crypto.spec.SecretKeySpec;
+import java.nio.charset.StandardCharsets;
+import java.security.GeneralSecurityException;
+import java.security.MessageDigest;
+import java.util.Collection;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Provider uwierzytelniania, ktory pamieta ostatnio zweryfikowane pary (login, skrot hasla),
+ * dzieki czemu kolejne zadania z tym samym haslem nie wykonuja BCrypta.
+ * Skrot to HMAC z kluczem losowanym przy starcie, wiec w pamieci nie ma niczego, co daloby sie lamac offline.
+ */
+@Component
+@ConditionalOnProperty(name = "security.auth-cache.enabled", havingValue = "true")
+public class CachingAuthenticationProvider extends DaoAuthenticationProvider implements PublicMetrics {
+
+    private static final String DIGEST_ALGORITHM = "HmacSHA256";
+    private static final int DIGEST_KEY_LENGTH = 32;
+
+    private final Cache<String, VerifiedCredentials> verified;
+    private final SecretKeySpec digestKey;
+    private final AtomicLong invalidations = new AtomicLong();
+
+    @Autowired
+    public CachingAuthenticationProvider(UserDetailsService userDetailsService,
+                                         PasswordEncoder passwordEncoder,
+                                         @Value("${security.auth-cache.maximum-size:10000}") long maximumSize,
+                                         @Value("${security.auth-cache.ttl-seconds:300}") long ttlSeconds) {
+        setUserDetailsService(userDetailsService);
+        setPasswordEncoder(passwordEncoder);
+        this.verified = CacheBuilder.newBuilder()
+                .maximumSize(maximumSize)
+                .expireAfterWrite(ttlSeconds, TimeUnit.SECONDS)
+                .recordStats()
+                .build();
+        this.digestKey = new SecretKeySpec(
+                KeyGenerators.secureRandom(DIGEST_KEY_LENGTH).generateKey(), DIGEST_ALGORITHM);
+    }
+
+    @Override
+    public Authentication authenticate(Authentication authentication) throws AuthenticationException {
+        if (authentication.getCredentials() == null) {
+            return super.authenticate(authentication);
+        }
+        String login = authentication.getName();
+        byte[] digest = digest(login, authentication.getCredentials().toString());
+        VerifiedCredentials cached = verified.getIfPresent(login);
+        if (cached != null && cached.matches(digest)) {
+            return createSuccessAuthentication(cached.getPrincipal(), authentication, cached.getPrincipal());
+        }
+        long generation = invalidations.get();
+        Authentication result = super.authenticate(authentication);
+        if (generation == invalidations.get()) {
+            verified.put(login, new VerifiedCredentials(digest, (UserDetails) result.getPrincipal()));
+        }
+        return result;
+    }
+
+    @EventListener
+    public void onUserModified(UserModifiedEvent event) {
+        invalidations.incrementAndGet();
+        verified.invalidate(event.getLogin());
+    }
+
+    @Override
+    public Collection<Metric<?>> metrics() {
+        return GuavaCacheMetrics.of("security.auth-cache", verified);
+    }
+
+    private byte[] digest(String login, String password) {
+        try {
+            Mac mac = Mac.getInstance(DIGEST_ALGORITHM);
+            mac.init(digestKey);
+            mac.update(login.getBytes(StandardCharsets.UTF_8));
+            mac.update((byte) 0);
+            return mac.doFinal(password.getBytes(StandardCharsets.UTF_8));
+        } catch (GeneralSecurityException e) {
+            throw new IllegalStateException("Could not compute credentials digest", e);
+        }
+    }
+
+    @Getter
+    @AllArgsConstructor
+    private static class VerifiedCredentials {
+
+        private final byte[] digest;
+        private final UserDetails principal;
+
+        boolean matches(byte[] presented) {
+            return MessageDigest.isEqual(digest, presented);
+        }
+    }
+}
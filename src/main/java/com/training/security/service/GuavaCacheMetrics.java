@@ -0,0 +1,27 @@
+package com.training.security.service;
+
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheStats;
+import org.springframework.boot.actuate.metrics.Metric;
+
+import java.util.ArrayList;
+import java.util.Collection;
+
+/**
+ * Zamienia statystyki cache Guavy na metryki widoczne w /metrics
+ */
+class GuavaCacheMetrics {
+
+    private GuavaCacheMetrics() {
+    }
+
+    static Collection<Metric<?>> of(String prefix, Cache<?, ?> cache) {
+        CacheStats stats = cache.stats();
+        Collection<Metric<?>> metrics = new ArrayList<>();
+        metrics.add(new Metric<>(prefix + ".size", cache.size()));
+        metrics.add(new Metric<>(prefix + ".hit", stats.hitCount()));
+        metrics.add(new Metric<>(prefix + ".miss", stats.missCount()));
+        metrics.add(new Metric<>(prefix + ".evictions", stats.evictionCount()));
+        return metrics;
+    }
+}
@@ -0,0 +1,123 @@
+package com.training.security.service;
+
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.actuate.endpoint.PublicMetrics;
+import org.springframework.boot.actuate.metrics.Metric;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Liczniki nieudanych logowan per login i per adres IP. Po przekroczeniu progu kolejne proby
+ * sa odrzucane z wykladniczo rosnacym czasem blokady, zanim dojdzie do liczenia skrotu hasla.
+ */
+@Component
+@ConditionalOnProperty(name = "security.auth-throttling.enabled", havingValue = "true")
+public class LoginAttemptThrottle implements PublicMetrics {
+
+    private static final String LOGIN_KEY = "login:";
+    private static final String ADDRESS_KEY = "ip:";
+    private static final int MAX_BACKOFF_SHIFT = 20;
+
+    private final ConcurrentMap<String, FailureCounter> counters;
+    private final int allowedFailures;
+    private final long lockoutMillis;
+    private final long maxLockoutMillis;
+    private final LongAdder throttled = new LongAdder();
+
+    @Autowired
+    public LoginAttemptThrottle(@Value("${security.auth-throttling.allowed-failures:5}") int allowedFailures,
+                                @Value("${security.auth-throttling.lockout-millis:1000}") long lockoutMillis,
+                                @Value("${security.auth-throttling.max-lockout-millis:300000}") long maxLockoutMillis,
+                                @Value("${security.auth-throttling.maximum-tracked:100000}") long maximumTracked) {
+        Cache<String, FailureCounter> cache = CacheBuilder.newBuilder()
+                .maximumSize(maximumTracked)
+                .expireAfterAccess(maxLockoutMillis, TimeUnit.MILLISECONDS)
+                .build();
+        this.counters = cache.asMap();
+        this.allowedFailures = allowedFailures;
+        this.lockoutMillis = lockoutMillis;
+        this.maxLockoutMillis = maxLockoutMillis;
+    }
+
+    public void checkAllowed(String login, String address) {
+        long now = System.currentTimeMillis();
+        long retryAfter = Math.max(remainingLockout(LOGIN_KEY + login, now),
+                address == null ? 0 : remainingLockout(ADDRESS_KEY + address, now));
+        if (retryAfter > 0) {
+            throttled.increment();
+            throw new AuthenticationThrottledException("Too many failed login attempts",
+                    TimeUnit.MILLISECONDS.toSeconds(retryAfter) + 1);
+        }
+    }
+
+    public void failed(String login, String address) {
+        long now = System.currentTimeMillis();
+        counter(LOGIN_KEY + login).failed(now);
+        if (address != null) {
+            counter(ADDRESS_KEY + address).failed(now);
+        }
+    }
+
+    /**
+     * Udane logowanie zeruje licznik loginu, ale nie adresu - jedno wlasne konto nie moze
+     * sluzyc do odblokowania zgadywania hasel innych uzytkownikow z tego samego IP
+     */
+    public void succeeded(String login) {
+        counters.remove(LOGIN_KEY + login);
+    }
+
+    private long remainingLockout(String key, long now) {
+        FailureCounter counter = counters.get(key);
+        if (counter == null) {
+            return 0;
+        }
+        long failures = counter.failures.get();
+        if (failures < allowedFailures) {
+            return 0;
+        }
+        int shift = (int) Math.min(failures - allowedFailures, MAX_BACKOFF_SHIFT);
+        long lockout = Math.min(lockoutMillis << shift, maxLockoutMillis);
+        return counter.lastFailure.get() + lockout - now;
+    }
+
+    private FailureCounter counter(String key) {
+        FailureCounter counter = counters.get(key);
+        if (counter == null) {
+            FailureCounter created = new FailureCounter();
+            counter = counters.putIfAbsent(key, created);
+            if (counter == null) {
+                counter = created;
+            }
+        }
+        return counter;
+    }
+
+    @Override
+    public Collection<Metric<?>> metrics() {
+        Collection<Metric<?>> metrics = new ArrayList<>();
+        metrics.add(new Metric<>("security.login-attempts.tracked", counters.size()));
+        metrics.add(new Metric<>("security.login-attempts.throttled", throttled.sum()));
+        return metrics;
+    }
+
+    private static class FailureCounter {
+
+        private final AtomicLong failures = new AtomicLong();
+        private final AtomicLong lastFailure = new AtomicLong();
+
+        void failed(long now) {
+            failures.incrementAndGet();
+            lastFailure.set(now);
+        }
+    }
+}
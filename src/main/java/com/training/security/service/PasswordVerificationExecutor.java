@@ -0,0 +1,123 @@
+package com.training.security.service;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.actuate.endpoint.PublicMetrics;
+import org.springframework.boot.actuate.metrics.Metric;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.security.crypto.password.PasswordEncoder;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.PreDestroy;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Wykonuje weryfikacje hasel na osobnej, ograniczonej puli watkow.
+ * Gdy kolejka jest pelna, zadanie jest od razu odrzucane, zamiast zajmowac watek Tomcata na czas BCrypta.
+ */
+@Component
+@ConditionalOnProperty(name = "security.auth-throttling.enabled", havingValue = "true")
+public class PasswordVerificationExecutor implements PublicMetrics {
+
+    private final ThreadPoolExecutor executor;
+    private final long timeoutMillis;
+
+    private final LongAdder verifications = new LongAdder();
+    private final LongAdder verificationNanos = new LongAdder();
+    private final LongAdder rejections = new LongAdder();
+
+    @Autowired
+    public PasswordVerificationExecutor(@Value("${security.auth-throttling.threads:0}") int threads,
+                                        @Value("${security.auth-throttling.queue-capacity:64}") int queueCapacity,
+                                        @Value("${security.auth-throttling.timeout-millis:5000}") long timeoutMillis) {
+        int poolSize = threads > 0 ? threads : Runtime.getRuntime().availableProcessors();
+        AtomicInteger threadNumber = new AtomicInteger();
+        this.executor = new ThreadPoolExecutor(poolSize, poolSize, 0L, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(queueCapacity),
+                runnable -> {
+                    Thread thread = new Thread(runnable, "password-verification-" + threadNumber.incrementAndGet());
+                    thread.setDaemon(true);
+                    return thread;
+                },
+                new ThreadPoolExecutor.AbortPolicy());
+        this.timeoutMillis = timeoutMillis;
+    }
+
+    /**
+     * Zwraca encoder, ktory koduje hasla w watku wywolujacym, a sprawdza je na puli
+     */
+    public PasswordEncoder verifying(PasswordEncoder delegate) {
+        return new PasswordEncoder() {
+            @Override
+            public String encode(CharSequence rawPassword) {
+                return delegate.encode(rawPassword);
+            }
+
+            @Override
+            public boolean matches(CharSequence rawPassword, String encodedPassword) {
+                return verify(() -> delegate.matches(rawPassword, encodedPassword));
+            }
+        };
+    }
+
+    private boolean verify(Callable<Boolean> verification) {
+        Future<Boolean> result;
+        try {
+            result = executor.submit(() -> timed(verification));
+        } catch (RejectedExecutionException e) {
+            rejections.increment();
+            throw new VerificationRejectedException("Password verification queue is full");
+        }
+        try {
+            return result.get(timeoutMillis, TimeUnit.MILLISECONDS);
+        } catch (TimeoutException e) {
+            result.cancel(true);
+            rejections.increment();
+            throw new VerificationRejectedException("Password verification timed out");
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new VerificationRejectedException("Password verification interrupted");
+        } catch (ExecutionException e) {
+            throw new IllegalStateException("Password verification failed", e.getCause());
+        }
+    }
+
+    private boolean timed(Callable<Boolean> verification) throws Exception {
+        long start = System.nanoTime();
+        try {
+            return verification.call();
+        } finally {
+            verificationNanos.add(System.nanoTime() - start);
+            verifications.increment();
+        }
+    }
+
+    @Override
+    public Collection<Metric<?>> metrics() {
+        long count = verifications.sum();
+        Collection<Metric<?>> metrics = new ArrayList<>();
+        metrics.add(new Metric<>("security.password-verification.queue", executor.getQueue().size()));
+        metrics.add(new Metric<>("security.password-verification.active", executor.getActiveCount()));
+        metrics.add(new Metric<>("security.password-verification.count", count));
+        metrics.add(new Metric<>("security.password-verification.rejected", rejections.sum()));
+        metrics.add(new Metric<>("security.password-verification.mean-millis",
+                count == 0 ? 0.0 : verificationNanos.sum() / (double) count / TimeUnit.MILLISECONDS.toNanos(1)));
+        return metrics;
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        executor.shutdownNow();
+    }
+}
@@ -0,0 +1,50 @@
+package com.training.security.service;
+
+import org.springframework.security.authentication.AuthenticationProvider;
+import org.springframework.security.authentication.BadCredentialsException;
+import org.springframework.security.core.Authentication;
+import org.springframework.security.core.AuthenticationException;
+import org.springframework.security.web.authentication.WebAuthenticationDetails;
+
+/**
+ * Sprawdza liczniki nieudanych prob przed oddaniem uwierzytelnienia dalej i aktualizuje je po wyniku
+ */
+public class ThrottlingAuthenticationProvider implements AuthenticationProvider {
+
+    private final AuthenticationProvider delegate;
+    private final LoginAttemptThrottle throttle;
+
+    public ThrottlingAuthenticationProvider(AuthenticationProvider delegate, LoginAttemptThrottle throttle) {
+        this.delegate = delegate;
+        this.throttle = throttle;
+    }
+
+    @Override
+    public Authentication authenticate(Authentication authentication) throws AuthenticationException {
+        String login = authentication.getName();
+        String address = remoteAddress(authentication);
+        throttle.checkAllowed(login, address);
+        try {
+            Authentication result = delegate.authenticate(authentication);
+            if (result != null) {
+                throttle.succeeded(login);
+            }
+            return result;
+        } catch (BadCredentialsException e) {
+            throttle.failed(login, address);
+            throw e;
+        }
+    }
+
+    @Override
+    public boolean supports(Class<?> authentication) {
+        return delegate.supports(authentication);
+    }
+
+    private String remoteAddress(Authentication authentication) {
+        Object details = authentication.getDetails();
+        return details instanceof WebAuthenticationDetails
+                ? ((WebAuthenticationDetails) details).getRemoteAddress()
+                : null;
+    }
+}
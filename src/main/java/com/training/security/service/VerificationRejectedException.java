@@ -0,0 +1,19 @@
+package com.training.security.service;
+
+import org.springframework.http.HttpStatus;
+import org.springframework.web.bind.annotation.ResponseStatus;
+
+@ResponseStatus(HttpStatus.SERVICE_UNAVAILABLE)
+public class VerificationRejectedException extends AuthenticationOverloadException {
+
+    private static final long RETRY_AFTER_SECONDS = 1;
+
+    public VerificationRejectedException(String message) {
+        super(message, RETRY_AFTER_SECONDS);
+    }
+
+    @Override
+    public HttpStatus getStatus() {
+        return HttpStatus.SERVICE_UNAVAILABLE;
+    }
+}
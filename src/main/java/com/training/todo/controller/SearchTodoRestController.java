@@ -1,20 +1,30 @@
 package com.training.todo.controller;
 
+import com.training.todo.controller.dto.TodoFacetedPageDto;
 import com.training.todo.controller.dto.TodoSearchParamsDto;
-import com.training.todo.domain.Todo;
+import com.training.todo.controller.dto.TodoSummaryDto;
+import com.training.todo.persistance.KeysetCursor;
+import com.training.todo.persistance.KeysetSlice;
+import com.training.todo.persistance.TodoChangeMarker;
 import com.training.todo.service.SearchTodoService;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Slice;
 import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.bind.annotation.RequestMethod;
 import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.context.request.WebRequest;
+
+import java.util.List;
 
 @RestController
 @RequestMapping("/search/todos")
 public class SearchTodoRestController {
 
+    private static final int MAX_SUGGESTIONS = 50;
+
     private SearchTodoService searchService;
 
     @Autowired
@@ -22,10 +32,104 @@ public class SearchTodoRestController {
         this.searchService = searchService;
     }
 
+    /**
+     * Dowolna kombinacja filtrow; priorytet moze byc lista po przecinku, sortowanie po kilku polach
+     * (np. sort=priority,desc - od najwazniejszych - oraz sort=name), filtr username tylko dla administratora
+     */
     @RequestMapping(method = RequestMethod.GET)
-    public Page<Todo> getAll(@RequestParam(value="name", required = false) String name,
-                             @RequestParam(value="priority", required = false) String priority,
-                             Pageable pageRequest){
-        return searchService.find(new TodoSearchParamsDto(name, priority), pageRequest);
+    public Page<TodoSummaryDto> getAll(@RequestParam(value="name", required = false) String name,
+                                       @RequestParam(value="priority", required = false) String priority,
+                                       @RequestParam(value="nameContains", required = false) String nameContains,
+                                       @RequestParam(value="completed", required = false) Boolean completed,
+                                       @RequestParam(value="username", required = false) String username,
+                                       Pageable pageRequest, WebRequest request){
+        if (notModified(request)) {
+            return null;
+        }
+        return searchService.find(new TodoSearchParamsDto(name, priority, completed, nameContains, username),
+                pageRequest);
+    }
+
+    /**
+     * Strona wynikow z liczbami todo wedlug priorytetu i stanu dla tego samego filtra (facets=true),
+     * zamiast osobnego wyszukiwania dla kazdej wartosci
+     */
+    @RequestMapping(method = RequestMethod.GET, params = {"facets=true", "!after", "!q"})
+    public TodoFacetedPageDto getAllWithFacets(@RequestParam(value="name", required = false) String name,
+                                               @RequestParam(value="priority", required = false) String priority,
+                                               @RequestParam(value="nameContains", required = false)
+                                                       String nameContains,
+                                               @RequestParam(value="completed", required = false)
+                                                       Boolean completed,
+                                               @RequestParam(value="username", required = false) String username,
+                                               Pageable pageRequest, WebRequest request){
+        if (notModified(request)) {
+            return null;
+        }
+        return searchService.findWithFacets(
+                new TodoSearchParamsDto(name, priority, completed, nameContains, username), pageRequest);
+    }
+
+    @RequestMapping(method = RequestMethod.GET, params = {"count=false", "facets!=true", "!after", "!q"})
+    public Slice<TodoSummaryDto> getAllWithoutCount(@RequestParam(value="name", required = false) String name,
+                                                    @RequestParam(value="priority", required = false) String priority,
+                                                    @RequestParam(value="nameContains", required = false)
+                                                            String nameContains,
+                                                    @RequestParam(value="completed", required = false)
+                                                            Boolean completed,
+                                                    @RequestParam(value="username", required = false) String username,
+                                                    Pageable pageRequest, WebRequest request){
+        if (notModified(request)) {
+            return null;
+        }
+        return searchService.findSlice(new TodoSearchParamsDto(name, priority, completed, nameContains, username),
+                pageRequest);
+    }
+
+    @RequestMapping(method = RequestMethod.GET, params = {"after", "!q"})
+    public KeysetSlice<TodoSummaryDto> getAllAfter(@RequestParam(value="name", required = false) String name,
+                                                   @RequestParam(value="priority", required = false) String priority,
+                                                   @RequestParam(value="nameContains", required = false)
+                                                           String nameContains,
+                                                   @RequestParam(value="completed", required = false)
+                                                           Boolean completed,
+                                                   @RequestParam(value="username", required = false) String username,
+                                                   @RequestParam("after") String after,
+                                                   Pageable pageRequest, WebRequest request){
+        if (notModified(request)) {
+            return null;
+        }
+        return searchService.find(new TodoSearchParamsDto(name, priority, completed, nameContains, username),
+                KeysetCursor.of(after, pageRequest.getSort()), pageRequest.getPageSize());
+    }
+
+    /**
+     * Wyszukiwanie pelnotekstowe w nazwie i opisie, wyniki od najlepiej dopasowanych. ETag pochodzi z wersji
+     * indeksu czytanej przed wyszukiwaniem, wiec nigdy nie opisuje wynikow nowszych niz zwrocone.
+     */
+    @RequestMapping(method = RequestMethod.GET, params = "q")
+    public Page<TodoSummaryDto> getFullText(@RequestParam("q") String query,
+                                            Pageable pageRequest, WebRequest request){
+        if (request.checkNotModified(searchService.getFullTextETag())) {
+            return null;
+        }
+        return searchService.findFullText(query, pageRequest);
+    }
+
+    /**
+     * Najczestsze i ostatnio uzywane nazwy todo zaczynajace sie od prefiksu, do podpowiadania podczas pisania
+     */
+    @RequestMapping(path = "/suggest", method = RequestMethod.GET)
+    public List<String> suggest(@RequestParam(value="prefix", defaultValue = "") String prefix,
+                                @RequestParam(value="limit", defaultValue = "10") int limit){
+        return searchService.suggestNames(prefix, Math.max(0, Math.min(limit, MAX_SUGGESTIONS)));
+    }
+
+    /**
+     * Wynik wyszukiwania zmienia sie tylko razem ze znacznikiem zmian todo uzytkownika
+     */
+    private boolean notModified(WebRequest request) {
+        TodoChangeMarker marker = searchService.getChangeMarker();
+        return request.checkNotModified(marker.getETag(), marker.getLastModified());
     }
 }
@@ -0,0 +1,48 @@
+package com.training.todo.controller;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.training.todo.domain.Todo;
+import com.training.todo.service.TodoBatchService;
+import com.training.utils.JsonRecordReader;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.web.bind.annotation.ExceptionHandler;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.ResponseStatus;
+import org.springframework.web.bind.annotation.RestController;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.List;
+
+@RestController
+@RequestMapping("/todos/batch")
+public class TodoBatchRestController {
+
+    private TodoBatchService service;
+    private ObjectMapper objectMapper;
+
+    public TodoBatchRestController(TodoBatchService service, ObjectMapper objectMapper) {
+        this.service = service;
+        this.objectMapper = objectMapper;
+    }
+
+    @PostMapping(consumes = MediaType.APPLICATION_JSON_VALUE)
+    @ResponseStatus(HttpStatus.CREATED)
+    public List<Long> createFromJsonArray(InputStream body) throws IOException {
+        return service.create(JsonRecordReader.jsonArray(objectMapper, body, Todo.class));
+    }
+
+    @PostMapping(consumes = JsonRecordReader.NDJSON_VALUE)
+    @ResponseStatus(HttpStatus.CREATED)
+    public List<Long> createFromNdjson(InputStream body) {
+        return service.create(JsonRecordReader.ndjson(objectMapper, body, Todo.class));
+    }
+
+    @ExceptionHandler(IllegalArgumentException.class)
+    @ResponseStatus(HttpStatus.BAD_REQUEST)
+    public String badRequestHandler(IllegalArgumentException e) {
+        return e.getMessage();
+    }
+}
@@ -0,0 +1,39 @@
+package com.training.todo.controller;
+
+import com.training.todo.controller.dto.TodoBulkRequestDto;
+import com.training.todo.controller.dto.TodoBulkResultDto;
+import com.training.todo.service.TodoBulkService;
+import org.springframework.http.HttpStatus;
+import org.springframework.web.bind.annotation.ExceptionHandler;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestBody;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.ResponseStatus;
+import org.springframework.web.bind.annotation.RestController;
+
+@RestController
+@RequestMapping("/todos")
+public class TodoBulkRestController {
+
+    private TodoBulkService service;
+
+    public TodoBulkRestController(TodoBulkService service) {
+        this.service = service;
+    }
+
+    @PostMapping("/bulk-complete")
+    public TodoBulkResultDto complete(@RequestBody TodoBulkRequestDto request) {
+        return new TodoBulkResultDto(service.complete(request));
+    }
+
+    @PostMapping("/bulk-delete")
+    public TodoBulkResultDto delete(@RequestBody TodoBulkRequestDto request) {
+        return new TodoBulkResultDto(service.delete(request));
+    }
+
+    @ExceptionHandler(IllegalArgumentException.class)
+    @ResponseStatus(HttpStatus.BAD_REQUEST)
+    public String badRequestHandler(IllegalArgumentException e) {
+        return e.getMessage();
+    }
+}
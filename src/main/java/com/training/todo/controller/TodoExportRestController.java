@@ -0,0 +1,41 @@
+package com.training.todo.controller;
+
+import com.training.todo.service.TodoExportService;
+import com.training.todo.service.TodoExportService.Format;
+import com.training.todo.utils.CsvRecordReader;
+import com.training.utils.JsonRecordReader;
+import org.springframework.http.HttpHeaders;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RestController;
+
+import javax.servlet.http.HttpServletResponse;
+import java.io.IOException;
+
+@RestController
+@RequestMapping("/todos/export")
+public class TodoExportRestController {
+
+    private TodoExportService service;
+
+    public TodoExportRestController(TodoExportService service) {
+        this.service = service;
+    }
+
+    @GetMapping(produces = JsonRecordReader.NDJSON_VALUE)
+    public void exportNdjson(HttpServletResponse response) throws IOException {
+        export(response, Format.NDJSON, JsonRecordReader.NDJSON_VALUE, "todos.ndjson");
+    }
+
+    @GetMapping(produces = CsvRecordReader.CSV_VALUE)
+    public void exportCsv(HttpServletResponse response) throws IOException {
+        export(response, Format.CSV, CsvRecordReader.CSV_VALUE, "todos.csv");
+    }
+
+    private void export(HttpServletResponse response, Format format, String contentType, String fileName)
+            throws IOException {
+        response.setContentType(contentType + ";charset=UTF-8");
+        response.setHeader(HttpHeaders.CONTENT_DISPOSITION, "attachment; filename=\"" + fileName + "\"");
+        service.export(format, response.getOutputStream());
+    }
+}
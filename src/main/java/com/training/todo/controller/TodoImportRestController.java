@@ -0,0 +1,77 @@
+package com.training.todo.controller;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.training.todo.domain.Todo;
+import com.training.todo.service.TodoBatchService;
+import com.training.todo.utils.CsvRecordReader;
+import com.training.utils.JsonRecordReader;
+import com.training.utils.JsonRecordReader.Record;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.web.bind.annotation.ExceptionHandler;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.ResponseStatus;
+import org.springframework.web.bind.annotation.RestController;
+
+import javax.servlet.http.HttpServletResponse;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.util.Iterator;
+
+/**
+ * Import bez limitu liczby todo; odpowiedz to raport NDJSON, jedna linia na porcje, wysylana w trakcie importu
+ */
+@RestController
+@RequestMapping("/todos/import")
+public class TodoImportRestController {
+
+    private TodoBatchService service;
+    private ObjectMapper objectMapper;
+
+    public TodoImportRestController(TodoBatchService service, ObjectMapper objectMapper) {
+        this.service = service;
+        this.objectMapper = objectMapper;
+    }
+
+    @PostMapping(consumes = MediaType.APPLICATION_JSON_VALUE)
+    public void importJsonArray(InputStream body, HttpServletResponse response) throws IOException {
+        importRecords(JsonRecordReader.jsonArray(objectMapper, body, Todo.class), response);
+    }
+
+    @PostMapping(consumes = JsonRecordReader.NDJSON_VALUE)
+    public void importNdjson(InputStream body, HttpServletResponse response) throws IOException {
+        importRecords(JsonRecordReader.ndjson(objectMapper, body, Todo.class), response);
+    }
+
+    @PostMapping(consumes = CsvRecordReader.CSV_VALUE)
+    public void importCsv(InputStream body, HttpServletResponse response) throws IOException {
+        importRecords(CsvRecordReader.csv(objectMapper, body, Todo.class), response);
+    }
+
+    private void importRecords(Iterator<Record<Todo>> records, HttpServletResponse response) throws IOException {
+        response.setContentType(JsonRecordReader.NDJSON_VALUE + ";charset=UTF-8");
+        OutputStream out = response.getOutputStream();
+        try {
+            service.importChunks(records, chunk -> {
+                try {
+                    out.write(objectMapper.writeValueAsBytes(chunk));
+                    out.write('\n');
+                    out.flush();
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+            });
+        } catch (UncheckedIOException e) {
+            throw e.getCause();
+        }
+    }
+
+    @ExceptionHandler(IllegalArgumentException.class)
+    @ResponseStatus(HttpStatus.BAD_REQUEST)
+    public String badRequestHandler(IllegalArgumentException e) {
+        return e.getMessage();
+    }
+}
@@ -1,30 +1,75 @@
 package com.training.todo.controller;
 
 
+import com.training.todo.controller.dto.TodoStatsDto;
+import com.training.todo.controller.dto.TodoSummaryDto;
 import com.training.todo.domain.Todo;
+import com.training.todo.persistance.KeysetCursor;
+import com.training.todo.persistance.KeysetSlice;
+import com.training.todo.persistance.TodoChangeMarker;
 import com.training.todo.service.TodoService;
+import com.training.todo.utils.PreconditionFailedException;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Slice;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.context.request.WebRequest;
 
 import javax.validation.Valid;
+import java.util.Map;
 
 @RestController
 @RequestMapping("/todos")
 public class TodoRestController {
 
+    public static final String MERGE_PATCH_JSON_VALUE = "application/merge-patch+json";
+
     private TodoService todoService;
 
     public TodoRestController(TodoService todoService) {
         this.todoService = todoService;
     }
 
+    // Listy zwracaja null (304) bez zapytania o strone, gdy znacznik zmian uzytkownika zgadza sie z naglowkami zadania
+
     @GetMapping
-    public Page<Todo> getAll(Pageable pageRequest){
+    public Page<TodoSummaryDto> getAll(Pageable pageRequest, WebRequest request){
+        if (notModified(request)) {
+            return null;
+        }
         return todoService.getAll(pageRequest);
     }
 
+    @GetMapping(params = {"count=false", "!after"})
+    public Slice<TodoSummaryDto> getAllWithoutCount(Pageable pageRequest, WebRequest request){
+        if (notModified(request)) {
+            return null;
+        }
+        return todoService.getSlice(pageRequest);
+    }
+
+    @GetMapping(params = "after")
+    public KeysetSlice<TodoSummaryDto> getAllAfter(@RequestParam("after") String after, Pageable pageRequest,
+                                                   WebRequest request){
+        if (notModified(request)) {
+            return null;
+        }
+        return todoService.getAll(KeysetCursor.of(after, pageRequest.getSort()), pageRequest.getPageSize());
+    }
+
+    private boolean notModified(WebRequest request) {
+        TodoChangeMarker marker = todoService.getChangeMarker();
+        return request.checkNotModified(marker.getETag(), marker.getLastModified());
+    }
+
+    @GetMapping("/stats")
+    public TodoStatsDto getStats(){
+        return todoService.getStats();
+    }
+
     @PostMapping
     @ResponseStatus(HttpStatus.CREATED)
     public Long create(@RequestBody @Valid Todo todo){
@@ -32,15 +77,84 @@ public class TodoRestController {
         return todoService.create(todo);
     }
 
+    /**
+     * Przy If-None-Match wersja sprawdzana jest jednym zapytaniem o kolumne, zanim zostanie zaladowane todo
+     */
     @GetMapping("/{id}")
-    public Todo get(@PathVariable("id") Long id){
-        return todoService.get(id);
+    public ResponseEntity<Todo> get(@PathVariable("id") Long id,
+                                    @RequestHeader(value = "If-None-Match", required = false) String ifNoneMatch){
+        if (ifNoneMatch != null) {
+            Long version = todoService.getVersion(id);
+            if (version != null && matchesAny(ifNoneMatch, version)) {
+                return ResponseEntity.status(HttpStatus.NOT_MODIFIED).eTag(eTag(version)).build();
+            }
+        }
+        Todo todo = todoService.get(id);
+        ResponseEntity.BodyBuilder response = ResponseEntity.ok();
+        if (todo.getVersion() != null) {
+            response.eTag(eTag(todo.getVersion()));
+        }
+        return response.body(todo);
     }
 
     @PutMapping("/{id}")
-    public void update(@RequestBody @Valid Todo todo, @PathVariable("id") Long id){
+    public ResponseEntity<Void> update(@RequestBody @Valid Todo todo, @PathVariable("id") Long id,
+                                       @RequestHeader(value = "If-Match", required = false) String ifMatch){
         todo.setId(id);
-        todoService.update(todo);
+        if (ifMatch == null || ifMatch.trim().equals("*")) {
+            todoService.update(todo);
+            return ResponseEntity.ok().build();
+        }
+        long version = todoService.update(todo, version(ifMatch));
+        return ResponseEntity.ok().eTag(eTag(version)).build();
+    }
+
+    @PatchMapping(value = "/{id}", consumes = {MERGE_PATCH_JSON_VALUE, MediaType.APPLICATION_JSON_VALUE})
+    public ResponseEntity<Void> patch(@RequestBody Map<String, Object> patch, @PathVariable("id") Long id,
+                                      @RequestHeader(value = "If-Match", required = false) String ifMatch){
+        if (ifMatch == null || ifMatch.trim().equals("*")) {
+            todoService.patch(id, patch, null);
+            return ResponseEntity.noContent().build();
+        }
+        long version = version(ifMatch);
+        todoService.patch(id, patch, version);
+        return ResponseEntity.noContent().eTag(eTag(version + 1)).build();
+    }
+
+    private static String eTag(long version) {
+        return "\"" + version + "\"";
+    }
+
+    /**
+     * Porownanie slabe, jak wymaga If-None-Match; "*" pasuje do kazdego istniejacego todo
+     */
+    private static boolean matchesAny(String ifNoneMatch, long version) {
+        for (String tag : ifNoneMatch.split(",")) {
+            tag = tag.trim();
+            if (tag.startsWith("W/")) {
+                tag = tag.substring(2);
+            }
+            if (tag.equals("*") || tag.equals(eTag(version))) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Wersja z naglowka If-Match; slabe ETagi (W/) sa akceptowane, bo wersja opisuje caly wiersz
+     */
+    private static long version(String ifMatch) {
+        String tag = ifMatch.trim();
+        if (tag.startsWith("W/")) {
+            tag = tag.substring(2);
+        }
+        tag = tag.replace("\"", "");
+        try {
+            return Long.parseLong(tag);
+        } catch (NumberFormatException e) {
+            throw new PreconditionFailedException("If-Match does not contain a todo version: " + ifMatch);
+        }
     }
 
     @DeleteMapping("/{id}")
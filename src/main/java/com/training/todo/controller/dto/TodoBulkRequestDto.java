@@ -0,0 +1,22 @@
+package com.training.todo.controller.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+
+import java.util.List;
+
+/**
+ * Zbior todo dla operacji masowej: lista identyfikatorow albo filtr (pusty filtr oznacza wszystkie todo uzytkownika)
+ */
+@AllArgsConstructor
+@NoArgsConstructor
+@Getter
+@Setter
+public class TodoBulkRequestDto {
+
+    private List<Long> ids;
+    private TodoSearchParamsDto filter;
+
+}
@@ -0,0 +1,12 @@
+package com.training.todo.controller.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+@AllArgsConstructor
+@Getter
+public class TodoBulkResultDto {
+
+    private long affected;
+
+}
@@ -0,0 +1,21 @@
+package com.training.todo.controller.dto;
+
+import lombok.Getter;
+import org.springframework.data.domain.PageImpl;
+import org.springframework.data.domain.Pageable;
+
+import java.util.List;
+
+/**
+ * Strona wynikow wyszukiwania z liczbami todo wedlug priorytetu i stanu
+ */
+@Getter
+public class TodoFacetedPageDto extends PageImpl<TodoSummaryDto> {
+
+    private final TodoFacetsDto facets;
+
+    public TodoFacetedPageDto(List<TodoSummaryDto> content, Pageable pageable, long total, TodoFacetsDto facets) {
+        super(content, pageable, total);
+        this.facets = facets;
+    }
+}
@@ -0,0 +1,20 @@
+package com.training.todo.controller.dto;
+
+import com.training.todo.domain.Priority;
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+import java.util.Map;
+
+/**
+ * Liczby todo w kazdej wartosci priorytetu i stanu; liczby jednego wymiaru uwzgledniaja wszystkie filtry
+ * poza filtrem tego wymiaru
+ */
+@AllArgsConstructor
+@Getter
+public class TodoFacetsDto {
+
+    private Map<Priority, Long> priority;
+    private Map<Boolean, Long> completed;
+
+}
@@ -0,0 +1,20 @@
+package com.training.todo.controller.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+import java.util.List;
+
+/**
+ * Wynik jednej porcji importu - jedna linia raportu NDJSON
+ */
+@AllArgsConstructor
+@Getter
+public class TodoImportChunkDto {
+
+    private long fromRecord;
+    private long toRecord;
+    private int imported;
+    private List<String> errors;
+
+}
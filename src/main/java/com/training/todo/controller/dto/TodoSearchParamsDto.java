@@ -1,14 +1,60 @@
 package com.training.todo.controller.dto;
 
+import com.google.common.base.Splitter;
+import com.google.common.base.Strings;
+import com.training.todo.domain.Priority;
+import com.training.todo.utils.InvalidPriorityException;
 import lombok.AllArgsConstructor;
 import lombok.Getter;
-import org.springframework.data.domain.Pageable;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+
+import java.util.ArrayList;
+import java.util.List;
 
 @AllArgsConstructor
+@NoArgsConstructor
 @Getter
+@Setter
 public class TodoSearchParamsDto {
 
+    private static final Splitter PRIORITIES = Splitter.on(',').trimResults().omitEmptyStrings();
+
     private String name;
     private String priority;
+    private Boolean completed;
+    private String nameContains;
+    /**
+     * Wlasciciel todo - filtr dostepny tylko dla administratora
+     */
+    private String username;
+
+    public TodoSearchParamsDto(String name, String priority) {
+        this(name, priority, null, null, null);
+    }
+
+    public TodoSearchParamsDto(String name, String priority, Boolean completed) {
+        this(name, priority, completed, null, null);
+    }
+
+    public TodoSearchParamsDto(String name, String priority, Boolean completed, String nameContains) {
+        this(name, priority, completed, nameContains, null);
+    }
+
+    /**
+     * Priorytety z parametru priority - po przecinku, jako nazwy, dawne wartosci tekstowe albo liczby.
+     * Inaczej niz w JSON todo nieznana wartosc jest bledem, bo filtr bez niej zwrocilby wiecej todo.
+     */
+    public List<Priority> priorities() {
+        List<Priority> priorities = new ArrayList<>();
+        for (String label : PRIORITIES.split(Strings.nullToEmpty(priority))) {
+            Priority parsed = Priority.of(label);
+            if (parsed == null) {
+                throw new InvalidPriorityException("Unknown priority: " + label);
+            }
+            priorities.add(parsed);
+        }
+        return priorities;
+    }
 
 }
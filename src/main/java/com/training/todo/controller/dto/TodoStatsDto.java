@@ -0,0 +1,17 @@
+package com.training.todo.controller.dto;
+
+import com.training.todo.domain.Priority;
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+import java.util.Map;
+
+@AllArgsConstructor
+@Getter
+public class TodoStatsDto {
+
+    private long total;
+    private long completed;
+    private Map<Priority, Long> byPriority;
+
+}
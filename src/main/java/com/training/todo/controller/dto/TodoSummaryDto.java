@@ -0,0 +1,32 @@
+package com.training.todo.controller.dto;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+import com.training.todo.domain.Priority;
+import com.training.todo.domain.Todo;
+import lombok.AllArgsConstructor;
+import lombok.EqualsAndHashCode;
+import lombok.Getter;
+import lombok.ToString;
+
+/**
+ * Element listy todo - projekcja bez opisu, tworzona wprost z zapytania (SELECT NEW), poza kontekstem persystencji
+ */
+@AllArgsConstructor
+@Getter
+@EqualsAndHashCode
+@ToString
+@JsonInclude(JsonInclude.Include.NON_NULL)
+public class TodoSummaryDto {
+
+    private Long id;
+    private String name;
+    private Priority priority;
+    private boolean completed;
+    private String username;
+    private Long version;
+
+    public static TodoSummaryDto from(Todo todo) {
+        return new TodoSummaryDto(todo.getId(), todo.getName(), todo.getPriority(), todo.isCompleted(),
+                todo.getUsername(), todo.getVersion());
+    }
+}
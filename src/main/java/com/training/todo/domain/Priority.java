@@ -0,0 +1,58 @@
+package com.training.todo.domain;
+
+import com.fasterxml.jackson.annotation.JsonCreator;
+
+import java.text.Normalizer;
+import java.util.HashMap;
+import java.util.Locale;
+import java.util.Map;
+import java.util.regex.Pattern;
+
+/**
+ * Priorytet todo, zapisywany jako liczba rowna ordinal() (kolumna TODOS.PRIORITY_LEVEL), wiec sortowanie
+ * po priorytecie malejaco daje najwazniejsze najpierw. Kolejnosc stalych jest czescia formatu w bazie -
+ * nie wolno jej zmieniac, nowy najwyzszy priorytet dopisuje sie na koncu.
+ */
+public enum Priority {
+    LOW("niski", "minor"),
+    MEDIUM("sredni", "normalny", "normal"),
+    HIGH("wysoki", "wazny", "pilny", "important", "urgent");
+
+    private static final Pattern MARKS = Pattern.compile("\\p{M}+");
+    private static final Map<String, Priority> LABELS = new HashMap<>();
+
+    static {
+        for (Priority priority : values()) {
+            LABELS.put(priority.name().toLowerCase(Locale.ROOT), priority);
+            for (String alias : priority.aliases) {
+                LABELS.put(alias, priority);
+            }
+        }
+    }
+
+    private final String[] aliases;
+
+    Priority(String... aliases) {
+        this.aliases = aliases;
+    }
+
+    /**
+     * Priorytet z nazwy stalej, dawnej wartosci tekstowej (te same aliasy co w migracji V8, bez rozrozniania
+     * wielkosci liter i znakow diakrytycznych) albo liczby z bazy. Pusta albo nieznana wartosc daje null -
+     * tak jak w migracji, todo bez priorytetu - wiec starsi klienci wysylajacy dowolny napis nie dostaja bledu.
+     */
+    @JsonCreator
+    public static Priority of(String value) {
+        if (value == null) {
+            return null;
+        }
+        String label = MARKS.matcher(Normalizer.normalize(value.trim().toLowerCase(Locale.ROOT), Normalizer.Form.NFD))
+                .replaceAll("")
+                .replace('\u0142', 'l');
+        if (!label.isEmpty() && label.length() < 3 && label.chars().allMatch(Character::isDigit)) {
+            int level = Integer.parseInt(label);
+            return level < values().length ? values()[level] : null;
+        }
+        return LABELS.get(label);
+    }
+}
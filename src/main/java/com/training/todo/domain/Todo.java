@@ -1,17 +1,27 @@
 package com.training.todo.domain;
 
 import com.fasterxml.jackson.annotation.JsonInclude;
+import com.fasterxml.jackson.annotation.JsonProperty;
 import lombok.AllArgsConstructor;
 import lombok.Builder;
 import lombok.EqualsAndHashCode;
 import lombok.Getter;
 import lombok.NoArgsConstructor;
 import lombok.Setter;
+import org.hibernate.annotations.Cache;
+import org.hibernate.annotations.CacheConcurrencyStrategy;
 
+import javax.persistence.Cacheable;
+import javax.persistence.Column;
 import javax.persistence.Entity;
+import javax.persistence.EnumType;
+import javax.persistence.Enumerated;
 import javax.persistence.GeneratedValue;
+import javax.persistence.GenerationType;
 import javax.persistence.Id;
+import javax.persistence.SequenceGenerator;
 import javax.persistence.Table;
+import javax.persistence.Version;
 import javax.validation.constraints.NotNull;
 import java.io.Serializable;
 
@@ -22,21 +32,38 @@ import java.io.Serializable;
 @EqualsAndHashCode
 @Builder
 @Entity
+@Cacheable
+@Cache(usage = CacheConcurrencyStrategy.READ_WRITE)
 @JsonInclude(JsonInclude.Include.NON_NULL)
 @Table(name = "TODOS")
 public class Todo implements Serializable{
 
     private static final long serialVersionUID = 376436963768417453L;
 
-    @Id @GeneratedValue
+    public static final String ID_SEQUENCE = "todo_seq";
+    public static final int ID_ALLOCATION_SIZE = 50;
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = ID_SEQUENCE)
+    @SequenceGenerator(name = ID_SEQUENCE, sequenceName = ID_SEQUENCE, allocationSize = ID_ALLOCATION_SIZE)
     private Long id;
 
     @NotNull
     private String name;
-    private String priority;
+    @Enumerated(EnumType.ORDINAL)
+    @Column(name = "priority_level")
+    private Priority priority;
     private String description;
     private boolean completed;
 
     private String username;
 
+    @Version
+    @JsonProperty(access = JsonProperty.Access.READ_ONLY)
+    private Long version;
+
+    public Todo(Long id, String name, Priority priority, String description, boolean completed, String username) {
+        this(id, name, priority, description, completed, username, null);
+    }
+
 }
@@ -0,0 +1,67 @@
+package com.training.todo.domain;
+
+import lombok.AllArgsConstructor;
+import lombok.EqualsAndHashCode;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import org.hibernate.annotations.Immutable;
+
+import javax.persistence.Entity;
+import javax.persistence.Id;
+import javax.persistence.IdClass;
+import javax.persistence.Table;
+import java.io.Serializable;
+import java.util.LinkedHashSet;
+import java.util.Locale;
+import java.util.Set;
+
+/**
+ * Wiersz indeksu trigramow nazw todo - tylko do zapytan JPQL, zapisywany przez TodoTrigramRepository
+ */
+@Getter
+@NoArgsConstructor
+@Entity
+@Immutable
+@IdClass(TodoNameTrigram.Key.class)
+@Table(name = "TODO_NAME_TRIGRAMS")
+public class TodoNameTrigram {
+
+    public static final int LENGTH = 3;
+
+    @Id
+    private Long todoId;
+
+    @Id
+    private String trigram;
+
+    private String username;
+
+    /**
+     * Rozne trigramy tekstu po zamianie na male litery, tak jak SUBSTRING(LOWER(name)) w migracji V7;
+     * pusty zbior dla tekstu krotszego niz LENGTH
+     */
+    public static Set<String> of(String text) {
+        Set<String> trigrams = new LinkedHashSet<>();
+        if (text == null) {
+            return trigrams;
+        }
+        String lowered = text.toLowerCase(Locale.ROOT);
+        for (int i = 0; i + LENGTH <= lowered.length(); i++) {
+            trigrams.add(lowered.substring(i, i + LENGTH));
+        }
+        return trigrams;
+    }
+
+    @Getter
+    @NoArgsConstructor
+    @AllArgsConstructor
+    @EqualsAndHashCode
+    public static class Key implements Serializable {
+
+        private static final long serialVersionUID = 6115872389436251709L;
+
+        private Long todoId;
+        private String trigram;
+
+    }
+}
@@ -0,0 +1,128 @@
+package com.training.todo.persistance;
+
+import com.training.todo.controller.dto.TodoSummaryDto;
+import com.training.todo.utils.InvalidCursorException;
+import lombok.AccessLevel;
+import lombok.AllArgsConstructor;
+import lombok.EqualsAndHashCode;
+import lombok.Getter;
+import lombok.ToString;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.domain.Sort.Direction;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Base64;
+import java.util.Iterator;
+import java.util.function.Function;
+
+/**
+ * Pozycja w stronicowaniu keyset: klucz sortowania, kierunek oraz wartosc klucza i id ostatniego zwroconego elementu.
+ * Klient dostaje ja jako nieprzezroczysty ciag znakow i odsyla w parametrze "after".
+ */
+@Getter
+@EqualsAndHashCode
+@ToString
+@AllArgsConstructor(access = AccessLevel.PRIVATE)
+public class KeysetCursor {
+
+    private static final String SEPARATOR = "|";
+
+    private final Key key;
+    private final Direction direction;
+    private final Object value;
+    private final Long id;
+
+    /**
+     * Kursor przekazany przez klienta albo, gdy jest pusty, poczatek listy posortowanej wg sort
+     */
+    public static KeysetCursor of(String after, Sort sort) {
+        return after == null || after.isEmpty() ? first(sort) : decode(after);
+    }
+
+    public static KeysetCursor first(Sort sort) {
+        if (sort == null) {
+            return new KeysetCursor(Key.ID, Direction.ASC, null, null);
+        }
+        Iterator<Sort.Order> orders = sort.iterator();
+        if (!orders.hasNext()) {
+            return new KeysetCursor(Key.ID, Direction.ASC, null, null);
+        }
+        Sort.Order order = orders.next();
+        if (orders.hasNext()) {
+            throw new InvalidCursorException("Keyset pagination supports a single sort property");
+        }
+        return new KeysetCursor(Key.of(order.getProperty()), order.getDirection(), null, null);
+    }
+
+    public static KeysetCursor decode(String cursor) {
+        String[] parts;
+        try {
+            parts = new String(Base64.getUrlDecoder().decode(cursor), StandardCharsets.UTF_8).split("\\|", 4);
+        } catch (IllegalArgumentException e) {
+            throw new InvalidCursorException("Malformed cursor");
+        }
+        if (parts.length != 4) {
+            throw new InvalidCursorException("Malformed cursor");
+        }
+        try {
+            Key key = Key.of(parts[0]);
+            return new KeysetCursor(key, Direction.fromString(parts[1]), key.parse(parts[3]), Long.valueOf(parts[2]));
+        } catch (IllegalArgumentException e) {
+            throw new InvalidCursorException("Malformed cursor");
+        }
+    }
+
+    public String encode() {
+        String raw = key.property + SEPARATOR + direction + SEPARATOR + id + SEPARATOR + value;
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(raw.getBytes(StandardCharsets.UTF_8));
+    }
+
+    public boolean isFirst() {
+        return id == null;
+    }
+
+    public KeysetCursor after(TodoSummaryDto last) {
+        return new KeysetCursor(key, direction, key.extractor.apply(last), last.getId());
+    }
+
+    /**
+     * Klucze, po ktorych mozna stronicowac - kolumny NOT NULL pokryte indeksem razem z username
+     */
+    public enum Key {
+        ID("id", TodoSummaryDto::getId) {
+            @Override
+            Object parse(String value) {
+                return Long.valueOf(value);
+            }
+        },
+        NAME("name", TodoSummaryDto::getName) {
+            @Override
+            Object parse(String value) {
+                return value;
+            }
+        };
+
+        private final String property;
+        private final Function<TodoSummaryDto, Object> extractor;
+
+        Key(String property, Function<TodoSummaryDto, Object> extractor) {
+            this.property = property;
+            this.extractor = extractor;
+        }
+
+        public String getProperty() {
+            return property;
+        }
+
+        abstract Object parse(String value);
+
+        static Key of(String property) {
+            for (Key key : values()) {
+                if (key.property.equals(property)) {
+                    return key;
+                }
+            }
+            throw new InvalidCursorException("Keyset pagination does not support sorting by " + property);
+        }
+    }
+}
@@ -0,0 +1,21 @@
+package com.training.todo.persistance;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+import java.util.List;
+
+/**
+ * Fragment listy ze stronicowania keyset - bez liczby wszystkich elementow, z kursorem do nastepnego fragmentu.
+ */
+@Getter
+@AllArgsConstructor
+public class KeysetSlice<T> {
+
+    private final List<T> content;
+    private final String next;
+
+    public boolean isHasNext() {
+        return next != null;
+    }
+}
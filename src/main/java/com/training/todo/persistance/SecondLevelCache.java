@@ -0,0 +1,94 @@
+package com.training.todo.persistance;
+
+import org.hibernate.Cache;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.SecondLevelCacheStatistics;
+import org.hibernate.stat.Statistics;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.actuate.endpoint.PublicMetrics;
+import org.springframework.boot.actuate.metrics.Metric;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronizationAdapter;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import javax.persistence.EntityManagerFactory;
+import java.io.Serializable;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.function.Consumer;
+
+/**
+ * Cache drugiego poziomu Hibernate (wlaczany w application.properties). Zapisy przez JdbcTemplate omijaja Hibernate,
+ * wiec musza same usunac zmienione encje i wyniki zapytan - teraz i ponownie po zakonczeniu transakcji,
+ * zeby rownolegly odczyt nie zapisal w cache stanu sprzed commitu.
+ * Statystyki regionow widoczne sa w /metrics, gdy wlaczone jest hibernate.generate_statistics.
+ */
+@Component
+public class SecondLevelCache implements PublicMetrics {
+
+    private final SessionFactory sessionFactory;
+
+    @Autowired
+    public SecondLevelCache(EntityManagerFactory entityManagerFactory) {
+        this.sessionFactory = entityManagerFactory.unwrap(SessionFactory.class);
+    }
+
+    /**
+     * Po zmianie lub usunieciu wierszy o podanych id z pominieciem Hibernate
+     */
+    public void evict(Class<?> entity, Collection<? extends Serializable> ids) {
+        evictNowAndAfterTransaction(cache -> {
+            if (sessionFactory.getSessionFactoryOptions().isSecondLevelCacheEnabled()) {
+                ids.forEach(id -> cache.evictEntity(entity, id));
+            }
+            evictQueryResults(cache);
+        });
+    }
+
+    /**
+     * Po wstawieniu wierszy z pominieciem Hibernate - wczesniejsze wyniki zapytan moga ich nie zawierac
+     */
+    public void evictQueryResults() {
+        evictNowAndAfterTransaction(this::evictQueryResults);
+    }
+
+    private void evictQueryResults(Cache cache) {
+        if (sessionFactory.getSessionFactoryOptions().isQueryCacheEnabled()) {
+            cache.evictQueryRegions();
+        }
+    }
+
+    private void evictNowAndAfterTransaction(Consumer<Cache> eviction) {
+        Cache cache = sessionFactory.getCache();
+        eviction.accept(cache);
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronizationAdapter() {
+                @Override
+                public void afterCompletion(int status) {
+                    eviction.accept(cache);
+                }
+            });
+        }
+    }
+
+    @Override
+    public Collection<Metric<?>> metrics() {
+        Collection<Metric<?>> metrics = new ArrayList<>();
+        Statistics statistics = sessionFactory.getStatistics();
+        if (!statistics.isStatisticsEnabled()) {
+            return metrics;
+        }
+        for (String region : statistics.getSecondLevelCacheRegionNames()) {
+            SecondLevelCacheStatistics regionStatistics = statistics.getSecondLevelCacheStatistics(region);
+            String prefix = "hibernate.cache." + region;
+            metrics.add(new Metric<>(prefix + ".size", regionStatistics.getElementCountInMemory()));
+            metrics.add(new Metric<>(prefix + ".hit", regionStatistics.getHitCount()));
+            metrics.add(new Metric<>(prefix + ".miss", regionStatistics.getMissCount()));
+            metrics.add(new Metric<>(prefix + ".put", regionStatistics.getPutCount()));
+        }
+        metrics.add(new Metric<>("hibernate.cache.query.hit", statistics.getQueryCacheHitCount()));
+        metrics.add(new Metric<>("hibernate.cache.query.miss", statistics.getQueryCacheMissCount()));
+        metrics.add(new Metric<>("hibernate.cache.query.put", statistics.getQueryCachePutCount()));
+        return metrics;
+    }
+}
@@ -0,0 +1,33 @@
+package com.training.todo.persistance;
+
+import lombok.AllArgsConstructor;
+import lombok.EqualsAndHashCode;
+import lombok.Getter;
+import lombok.ToString;
+
+/**
+ * Stan list todo widocznych dla uzytkownika: zmienia sie przy kazdym zapisie jego todo.
+ * Dla administratora (username null) obejmuje todo wszystkich uzytkownikow.
+ */
+@Getter
+@EqualsAndHashCode
+@ToString
+@AllArgsConstructor
+public class TodoChangeMarker {
+
+    private final String username;
+    private final long version;
+
+    /**
+     * Czas ostatniej zmiany w milisekundach albo -1, gdy zadne todo nie bylo jeszcze zapisane
+     */
+    private final long lastModified;
+
+    /**
+     * Silny ETag; zawiera zakres, zeby lista administratora i uzytkownika nie miala przypadkiem tego samego
+     */
+    public String getETag() {
+        String scope = username == null ? "all" : Integer.toHexString(username.hashCode());
+        return "\"" + scope + "-" + version + "\"";
+    }
+}
@@ -0,0 +1,61 @@
+package com.training.todo.persistance;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Repository;
+
+import java.sql.Timestamp;
+
+/**
+ * Znaczniki zmian todo w tabeli TODO_CHANGES. Zmiany musza byc wykonywane w transakcji zmieniajacej tabele TODOS.
+ */
+@Repository
+public class TodoChangeRepository {
+
+    private static final String TOUCH = " AS v (username) ON c.username = v.username " +
+            "WHEN MATCHED THEN UPDATE SET c.change_version = c.change_version + 1, c.modified_at = CURRENT_TIMESTAMP " +
+            "WHEN NOT MATCHED THEN INSERT (username, change_version, modified_at) " +
+            "VALUES (v.username, 1, CURRENT_TIMESTAMP)";
+
+    private static final String TOUCH_USER = "MERGE INTO todo_changes c " +
+            "USING (VALUES (CAST(? AS VARCHAR(255))))" + TOUCH;
+
+    private static final String TOUCH_OWNER = "MERGE INTO todo_changes c " +
+            "USING (SELECT username FROM todos WHERE id = ? AND username IS NOT NULL)" + TOUCH;
+
+    // Suma wersji rosnie przy kazdej zmianie dowolnego uzytkownika, wiec wystarcza jako wersja listy administratora
+    private static final String FIND_ALL = "SELECT COALESCE(SUM(change_version), 0), MAX(modified_at) FROM todo_changes";
+
+    private static final String FIND_USER = FIND_ALL + " WHERE username = ?";
+
+    private final JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    public TodoChangeRepository(JdbcTemplate jdbcTemplate) {
+        this.jdbcTemplate = jdbcTemplate;
+    }
+
+    public void changed(String username) {
+        if (username != null) {
+            jdbcTemplate.update(TOUCH_USER, username);
+        }
+    }
+
+    /**
+     * Zmiana u wlasciciela zapisanego todo o danym id - wywolywane przed usunieciem albo po zmianie wiersza
+     */
+    public void changedStored(Long id) {
+        jdbcTemplate.update(TOUCH_OWNER, id);
+    }
+
+    /**
+     * Znacznik dla uzytkownika albo, gdy username jest null, dla wszystkich
+     */
+    public TodoChangeMarker find(String username) {
+        Object[] arguments = username != null ? new Object[]{username} : new Object[0];
+        return jdbcTemplate.queryForObject(username != null ? FIND_USER : FIND_ALL, arguments, (row, number) -> {
+            Timestamp modifiedAt = row.getTimestamp(2);
+            return new TodoChangeMarker(username, row.getLong(1), modifiedAt == null ? -1 : modifiedAt.getTime());
+        });
+    }
+}
@@ -0,0 +1,22 @@
+package com.training.todo.persistance;
+
+import com.training.todo.domain.Priority;
+import lombok.AllArgsConstructor;
+import lombok.EqualsAndHashCode;
+import lombok.Getter;
+import lombok.ToString;
+
+/**
+ * Liczba todo o danym priorytecie (null - bez priorytetu) i stanie, tworzona wprost z zapytania grupujacego
+ */
+@AllArgsConstructor
+@Getter
+@EqualsAndHashCode
+@ToString
+public class TodoCountGroup {
+
+    private Priority priority;
+    private boolean completed;
+    private long count;
+
+}
@@ -0,0 +1,203 @@
+package com.training.todo.persistance;
+
+import com.training.todo.controller.dto.TodoStatsDto;
+import com.training.todo.domain.Priority;
+import com.training.todo.domain.Todo;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Repository;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Collectors;
+
+/**
+ * Liczniki todo w tabeli TODO_COUNTERS. Zmiany musza byc wykonywane w transakcji zmieniajacej tabele TODOS.
+ */
+@Repository
+public class TodoCounterRepository {
+
+    private static final int NO_PRIORITY = -1;
+
+    private static final String MERGE_DELTA = " AS v (username, priority, completed, delta) " +
+            "ON c.username = v.username AND c.priority = v.priority AND c.completed = v.completed " +
+            "WHEN MATCHED THEN UPDATE SET c.todo_count = c.todo_count + v.delta " +
+            "WHEN NOT MATCHED THEN INSERT (username, priority, completed, todo_count) " +
+            "VALUES (v.username, v.priority, v.completed, v.delta)";
+
+    private static final String ADD = "MERGE INTO todo_counters c " +
+            "USING (VALUES (CAST(? AS VARCHAR(255)), CAST(? AS SMALLINT), CAST(? AS BOOLEAN), CAST(? AS BIGINT)))" +
+            MERGE_DELTA;
+
+    private static final String ADD_STORED = "MERGE INTO todo_counters c " +
+            "USING (SELECT username, COALESCE(priority_level, -1), completed, CAST(1 AS BIGINT) FROM todos " +
+            "WHERE id = ? AND username IS NOT NULL)" +
+            MERGE_DELTA;
+
+    private static final String REMOVE_STORED = "UPDATE todo_counters c SET todo_count = todo_count - 1 " +
+            "WHERE EXISTS (SELECT 1 FROM todos t WHERE t.id = ? AND (t.username = ? OR CAST(? AS BOOLEAN)) " +
+            "AND t.username = c.username AND COALESCE(t.priority_level, -1) = c.priority " +
+            "AND t.completed = c.completed)";
+
+    private static final String ADD_GROUPED = "MERGE INTO todo_counters c " +
+            "USING (SELECT t.username, COALESCE(t.priority_level, -1), %s, CAST(%s AS BIGINT) FROM todos t " +
+            "WHERE t.username IS NOT NULL AND %s GROUP BY t.username, COALESCE(t.priority_level, -1), t.completed)" +
+            MERGE_DELTA;
+
+    private final JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    public TodoCounterRepository(JdbcTemplate jdbcTemplate) {
+        this.jdbcTemplate = jdbcTemplate;
+    }
+
+    public void added(Todo todo) {
+        add(todo, 1);
+    }
+
+    /**
+     * Jedno MERGE na kazda kombinacje uzytkownika, priorytetu i stanu wsrod dodanych todo
+     */
+    public void addedAll(Collection<Todo> todos) {
+        Map<List<Object>, Long> deltas = todos.stream()
+                .filter(todo -> todo.getUsername() != null)
+                .collect(Collectors.groupingBy(
+                        todo -> Arrays.asList(todo.getUsername(), priorityKey(todo.getPriority()), todo.isCompleted()),
+                        Collectors.counting()));
+        List<Object[]> rows = new ArrayList<>(deltas.size());
+        deltas.forEach((key, delta) -> rows.add(new Object[]{key.get(0), key.get(1), key.get(2), delta}));
+        if (!rows.isEmpty()) {
+            jdbcTemplate.batchUpdate(ADD, rows);
+        }
+    }
+
+    /**
+     * Przenosi zmienione todo miedzy grupami (priorytet, stan) jednym batchem dwoch MERGE - bez zapytan,
+     * gdy grupa sie nie zmienila. Stan przed zmiana musi byc przeczytany w tej samej transakcji.
+     */
+    public void moved(TodoState before, Todo after) {
+        int priorityBefore = priorityKey(before.getPriority());
+        int priorityAfter = priorityKey(after.getPriority());
+        if (before.getUsername() == null
+                || priorityBefore == priorityAfter && before.isCompleted() == after.isCompleted()) {
+            return;
+        }
+        jdbcTemplate.batchUpdate(ADD, Arrays.asList(
+                new Object[]{before.getUsername(), priorityBefore, before.isCompleted(), -1L},
+                new Object[]{before.getUsername(), priorityAfter, after.isCompleted(), 1L}));
+    }
+
+    /**
+     * Liczy zapisany juz wiersz todo o danym id - wywolywane po jego wstawieniu lub zmianie
+     */
+    public void addedStored(Long id) {
+        jdbcTemplate.update(ADD_STORED, id);
+    }
+
+    /**
+     * Odejmuje zapisany wiersz todo o danym id, o ile nalezy do username albo admin jest true.
+     * Wywolywane przed jego zmiana lub usunieciem, z tym samym warunkiem co sama zmiana.
+     */
+    public void removedStored(Long id, String username, boolean admin) {
+        jdbcTemplate.update(REMOVE_STORED, id, username, admin);
+    }
+
+    /**
+     * Odejmuje wszystkie zapisane wiersze spelniajace warunek na tabeli todos (alias t), jednym MERGE.
+     * Wywolywane przed ich usunieciem, z tym samym warunkiem co samo usuniecie.
+     */
+    public void removedStoredWhere(String condition, Object... arguments) {
+        jdbcTemplate.update(String.format(ADD_GROUPED, "t.completed", "-COUNT(*)", condition), arguments);
+    }
+
+    /**
+     * Przenosi do ukonczonych wiersze spelniajace warunek na tabeli todos (alias t), ktory musi wykluczac
+     * todo juz ukonczone. Wywolywane przed ich zmiana, z tym samym warunkiem co sama zmiana.
+     */
+    public void completedStoredWhere(String condition, Object... arguments) {
+        jdbcTemplate.update(String.format(ADD_GROUPED, "t.completed", "-COUNT(*)", condition), arguments);
+        jdbcTemplate.update(String.format(ADD_GROUPED, "TRUE", "COUNT(*)", condition), arguments);
+    }
+
+    private void add(Todo todo, long delta) {
+        if (todo.getUsername() == null) {
+            return;
+        }
+        jdbcTemplate.update(ADD, todo.getUsername(), priorityKey(todo.getPriority()), todo.isCompleted(), delta);
+    }
+
+    /**
+     * Liczba todo; null w username lub priority oznacza brak filtra
+     */
+    public long count(String username, Priority priority) {
+        return count(username, priority != null ? Collections.singletonList(priority) : null, null);
+    }
+
+    /**
+     * Liczba todo; null w username lub completed i pusta lista priorytetow oznaczaja brak filtra
+     */
+    public long count(String username, Collection<Priority> priorities, Boolean completed) {
+        List<String> conditions = new ArrayList<>();
+        List<Object> arguments = new ArrayList<>();
+        if (username != null) {
+            conditions.add("username = ?");
+            arguments.add(username);
+        }
+        if (priorities != null && !priorities.isEmpty()) {
+            conditions.add("priority IN (" + String.join(", ", Collections.nCopies(priorities.size(), "?")) + ")");
+            priorities.forEach(priority -> arguments.add(priority.ordinal()));
+        }
+        if (completed != null) {
+            conditions.add("completed = ?");
+            arguments.add(completed);
+        }
+        String sql = "SELECT COALESCE(SUM(todo_count), 0) FROM todo_counters";
+        if (!conditions.isEmpty()) {
+            sql += " WHERE " + String.join(" AND ", conditions);
+        }
+        return jdbcTemplate.queryForObject(sql, Long.class, arguments.toArray());
+    }
+
+    /**
+     * Podsumowanie dla uzytkownika albo, gdy username jest null, dla wszystkich.
+     * Todo bez priorytetu wliczane sa tylko do sum ogolnych.
+     */
+    public TodoStatsDto stats(String username) {
+        long total = 0;
+        long completed = 0;
+        Map<Priority, Long> byPriority = new EnumMap<>(Priority.class);
+        for (TodoCountGroup group : countGroups(username)) {
+            total += group.getCount();
+            if (group.isCompleted()) {
+                completed += group.getCount();
+            }
+            if (group.getPriority() != null) {
+                byPriority.merge(group.getPriority(), group.getCount(), Long::sum);
+            }
+        }
+        return new TodoStatsDto(total, completed, byPriority);
+    }
+
+    /**
+     * Liczby todo uzytkownika (null - wszystkich) w grupach (priorytet, stan), tak jak
+     * {@link TodoJpaRepositoryCustom#countGroups(TodoFilter)}, ale z licznikow
+     */
+    public List<TodoCountGroup> countGroups(String username) {
+        String sql = "SELECT priority, completed, SUM(todo_count) FROM todo_counters" +
+                (username != null ? " WHERE username = ?" : "") +
+                " GROUP BY priority, completed";
+        Object[] arguments = username != null ? new Object[]{username} : new Object[0];
+        return jdbcTemplate.query(sql, arguments, (row, rowNum) -> new TodoCountGroup(
+                row.getInt(1) == NO_PRIORITY ? null : Priority.values()[row.getInt(1)], row.getBoolean(2),
+                row.getLong(3)));
+    }
+
+    private static int priorityKey(Priority priority) {
+        return priority == null ? NO_PRIORITY : priority.ordinal();
+    }
+}
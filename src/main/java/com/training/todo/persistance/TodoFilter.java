@@ -0,0 +1,120 @@
+package com.training.todo.persistance;
+
+import com.training.todo.domain.Priority;
+import com.training.todo.domain.TodoNameTrigram;
+import lombok.Builder;
+import lombok.EqualsAndHashCode;
+import lombok.Getter;
+import lombok.ToString;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Dowolna kombinacja filtrow listy todo; null (albo pusta lista priorytetow) oznacza brak filtra.
+ * Warunki JPQL zaleza tylko od tego, ktore filtry sa ustawione - wartosci zawsze trafiaja do parametrow.
+ */
+@Getter
+@Builder
+@EqualsAndHashCode
+@ToString
+public class TodoFilter {
+
+    private final String username;
+    private final String name;
+    private final String nameContains;
+    private final Collection<Priority> priorities;
+    private final Boolean completed;
+
+    /**
+     * Czy liczbe todo mozna odczytac z TODO_COUNTERS zamiast COUNT na tabeli TODOS
+     */
+    public boolean isCountable() {
+        return name == null && nameContains == null;
+    }
+
+    /**
+     * Ten sam filtr bez priorytetow i stanu - liczby w grupach (priorytet, stan) sa podstawa faset obu wymiarow
+     */
+    TodoFilter withoutFacets() {
+        return TodoFilter.builder().username(username).name(name).nameContains(nameContains).build();
+    }
+
+    /**
+     * Klucz kombinacji ustawionych filtrow - ten sam dla wszystkich zapytan o tym samym tekscie JPQL
+     */
+    String shape() {
+        return (username != null ? "u" : "-") +
+                (name != null ? "n" : "-") +
+                (nameContains == null ? "-" : TodoNameTrigram.of(nameContains).isEmpty() ? "l" : "t") +
+                (hasPriorities() ? "p" : "-") +
+                (completed != null ? "c" : "-");
+    }
+
+    /**
+     * Warunki na todo (alias t) w kolejnosci zgodnej z indeksami (username, ...)
+     */
+    List<String> conditions() {
+        List<String> conditions = new ArrayList<>();
+        if (username != null) {
+            conditions.add("t.username = :username");
+        }
+        if (name != null) {
+            conditions.add("t.name = :name");
+        }
+        if (nameContains != null) {
+            if (!TodoNameTrigram.of(nameContains).isEmpty()) {
+                conditions.add("t.id IN (SELECT g.todoId FROM TodoNameTrigram g WHERE " +
+                        (username != null ? "g.username = :username AND " : "") +
+                        "g.trigram IN :trigrams GROUP BY g.todoId HAVING COUNT(g.trigram) = :trigramCount)");
+            }
+            conditions.add("LOWER(t.name) LIKE :nameContains ESCAPE '\\'");
+        }
+        if (hasPriorities()) {
+            conditions.add("t.priority IN :priorities");
+        }
+        if (completed != null) {
+            conditions.add("t.completed = :completed");
+        }
+        return conditions;
+    }
+
+    /**
+     * Wartosci parametrow uzytych w {@link #conditions()}. Fragment nazwy: todo majace wszystkie jego trigramy
+     * (przeciecie w podzapytaniu po indeksie trigramow), LIKE sprawdza juz tylko ich nazwy; fragment krotszy
+     * niz trigram filtrowany jest samym LIKE.
+     */
+    void addParameters(Map<String, Object> parameters) {
+        if (username != null) {
+            parameters.put("username", username);
+        }
+        if (name != null) {
+            parameters.put("name", name);
+        }
+        if (nameContains != null) {
+            Set<String> trigrams = TodoNameTrigram.of(nameContains);
+            if (!trigrams.isEmpty()) {
+                parameters.put("trigrams", trigrams);
+                parameters.put("trigramCount", (long) trigrams.size());
+            }
+            parameters.put("nameContains", "%" + nameContains.toLowerCase(Locale.ROOT)
+                    .replace("\\", "\\\\")
+                    .replace("%", "\\%")
+                    .replace("_", "\\_") + "%");
+        }
+        if (hasPriorities()) {
+            parameters.put("priorities", priorities);
+        }
+        if (completed != null) {
+            parameters.put("completed", completed);
+        }
+    }
+
+    private boolean hasPriorities() {
+        return priorities != null && !priorities.isEmpty();
+    }
+}
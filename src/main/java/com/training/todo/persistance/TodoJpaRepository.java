@@ -1,27 +1,78 @@
 package com.training.todo.persistance;
 
+import com.training.todo.controller.dto.TodoSummaryDto;
+import com.training.todo.domain.Priority;
 import com.training.todo.domain.Todo;
-import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Slice;
 import org.springframework.data.jpa.repository.JpaRepository;
-import org.springframework.data.repository.CrudRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import javax.persistence.QueryHint;
+import java.util.Collection;
+import java.util.List;
+
 @Repository
-public interface TodoJpaRepository extends JpaRepository<Todo, Long> {
+public interface TodoJpaRepository extends JpaRepository<Todo, Long>, TodoJpaRepositoryCustom {
+
+    // Listy zwracaja projekcje TodoSummaryDto - bez encji w kontekscie persystencji i bez kolumny description.
+    // Wyszukiwanie z filtrami - find, findSlice i findAfter z TodoJpaRepositoryCustom.
+
+    String SUMMARY = "SELECT new com.training.todo.controller.dto.TodoSummaryDto(" +
+            "t.id, t.name, t.priority, t.completed, t.username, t.version) FROM Todo t";
+
+    String COUNT = "SELECT COUNT(t) FROM Todo t";
+
+    @Query(SUMMARY + " WHERE t.id IN :ids")
+    List<TodoSummaryDto> findSummaries(@Param("ids") Collection<Long> ids);
+
+    // Operacje na pojedynczym todo z warunkiem wlasciciela w SQL - 0 wierszy oznacza brak todo albo brak dostepu.
+    // Odczyty korzystaja z cache zapytan (o ile wlaczony): wynik to id, encja pochodzi z cache drugiego poziomu.
+
+    String CACHEABLE = "org.hibernate.cacheable";
+
+    @QueryHints(@QueryHint(name = CACHEABLE, value = "true"))
+    @Query("SELECT t FROM Todo t WHERE t.id = :id AND (t.username = :username OR :admin = true)")
+    Todo findOwned(@Param("id") Long id, @Param("username") String username, @Param("admin") boolean admin);
+
+    /**
+     * Stan zapisanego todo przed zmiana - czytany zawsze z bazy, bez cache, bo jego wersja zabezpiecza UPDATE
+     */
+    @Query("SELECT NEW com.training.todo.persistance.TodoState(t.username, t.name, t.description, t.priority, " +
+            "t.completed, t.version) FROM Todo t WHERE t.id = :id AND (t.username = :username OR :admin = true)")
+    TodoState findOwnedState(@Param("id") Long id, @Param("username") String username, @Param("admin") boolean admin);
 
-    Page<Todo> findByName(String name, Pageable pageRequest);
+    default int updateOwnedIfVersion(Todo todo, long version, String username, boolean admin) {
+        return updateOwnedIfVersion(todo.getId(), todo.getName(), todo.getPriority(), todo.getDescription(),
+                todo.isCompleted(), version, username, admin);
+    }
 
-    Page<Todo> findByPriority(String priority, Pageable pageRequest);
+    // Pola todo jako osobne parametry - binder Spring Data JPA 1.11 wymaga, zeby kazdy @Param wystapil w zapytaniu
 
-    Page<Todo> findByNameAndPriority(String name, String priority, Pageable pageRequest);
+    @Modifying(clearAutomatically = true)
+    @Query("UPDATE Todo t SET t.name = :name, t.priority = :priority, " +
+            "t.description = :description, t.completed = :completed, t.version = t.version + 1 " +
+            "WHERE t.id = :id AND t.version = :version AND (t.username = :username OR :admin = true)")
+    int updateOwnedIfVersion(@Param("id") Long id, @Param("name") String name, @Param("priority") Priority priority,
+                             @Param("description") String description, @Param("completed") boolean completed,
+                             @Param("version") long version,
+                             @Param("username") String username, @Param("admin") boolean admin);
 
-    Page<Todo> findByUsername(String login, Pageable pageable);
+    @QueryHints(@QueryHint(name = CACHEABLE, value = "true"))
+    @Query("SELECT t.version FROM Todo t WHERE t.id = :id AND (t.username = :username OR :admin = true)")
+    Long findOwnedVersion(@Param("id") Long id, @Param("username") String username, @Param("admin") boolean admin);
 
-    Page<Todo> findByNameAndPriorityAndUsername(String name, String priority, String username, Pageable pageable);
+    @Modifying(clearAutomatically = true)
+    @Query("DELETE FROM Todo t WHERE t.id = :id AND (t.username = :username OR :admin = true)")
+    int deleteOwned(@Param("id") Long id, @Param("username") String username, @Param("admin") boolean admin);
 
-    Page<Todo> findByNameAndUsername(String name, String username, Pageable pageable);
+    // Listy bez filtrow i bez zapytania COUNT - pobieraja rozmiar strony + 1 wierszy, zeby ustalic hasNext
 
-    Page<Todo> findByPriorityAndUsername(String priority, String username, Pageable pageable);
+    @Query(SUMMARY + " WHERE t.username = ?1")
+    Slice<TodoSummaryDto> findSliceByUsername(String login, Pageable pageable);
 
 }
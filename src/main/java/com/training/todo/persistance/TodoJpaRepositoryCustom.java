@@ -0,0 +1,39 @@
+package com.training.todo.persistance;
+
+import com.training.todo.controller.dto.TodoSummaryDto;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Slice;
+
+import java.util.List;
+import java.util.Map;
+
+public interface TodoJpaRepositoryCustom {
+
+    /**
+     * Strona todo spelniajacych filtr, posortowana wedlug pageable, a przy rownych wartosciach po id
+     */
+    Page<TodoSummaryDto> find(TodoFilter filter, Pageable pageable);
+
+    /**
+     * Jak {@link #find(TodoFilter, Pageable)}, ale bez liczby wszystkich todo
+     */
+    Slice<TodoSummaryDto> findSlice(TodoFilter filter, Pageable pageable);
+
+    /**
+     * Nastepne size elementow spelniajacych filtr za kursorem
+     */
+    KeysetSlice<TodoSummaryDto> findAfter(TodoFilter filter, KeysetCursor cursor, int size);
+
+    /**
+     * Liczby todo w grupach (priorytet, stan) sposrod spelniajacych filtr bez warunkow na priorytet i stan
+     */
+    List<TodoCountGroup> countGroups(TodoFilter filter);
+
+    /**
+     * UPDATE tylko podanych kolumn (nazwa atrybutu -> wartosc) z warunkiem wlasciciela i, gdy podana, wersji.
+     * Zwraca liczbe zmienionych wierszy.
+     */
+    int patchOwned(Long id, Map<String, Object> changes, Long expectedVersion, String username, boolean admin);
+
+}
@@ -0,0 +1,218 @@
+package com.training.todo.persistance;
+
+import com.google.common.cache.CacheBuilder;
+import com.google.common.collect.ImmutableSet;
+import com.training.todo.controller.dto.TodoSummaryDto;
+import com.training.todo.domain.Todo;
+import com.training.todo.utils.InvalidSortException;
+import org.hibernate.FlushMode;
+import org.hibernate.jpa.QueryHints;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Slice;
+import org.springframework.data.domain.SliceImpl;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.repository.support.PageableExecutionUtils;
+
+import javax.persistence.EntityManager;
+import javax.persistence.PersistenceContext;
+import javax.persistence.TypedQuery;
+import javax.persistence.criteria.CriteriaBuilder;
+import javax.persistence.criteria.CriteriaUpdate;
+import javax.persistence.criteria.Path;
+import javax.persistence.criteria.Predicate;
+import javax.persistence.criteria.Root;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.Supplier;
+
+/**
+ * Zapytania, ktorych nie da sie wyrazic metodami pochodnymi Spring Data.
+ * Listy dla dowolnej kombinacji filtrow budowane sa z {@link TodoFilter}; tekst JPQL zalezy tylko od ksztaltu
+ * (ustawione filtry i sortowanie), wiec jest skladany raz na ksztalt i pamietany, a Hibernate parsuje go
+ * i planuje raz - jego QueryPlanCache rozpoznaje ten sam tekst zapytania.
+ */
+public class TodoJpaRepositoryImpl implements TodoJpaRepositoryCustom {
+
+    private static final Set<String> SORTABLE = ImmutableSet.of(
+            "id", "name", "priority", "completed", "username", "version");
+    private static final int MAX_QUERY_SHAPES = 1000;
+
+    @PersistenceContext
+    private EntityManager entityManager;
+
+    private final Map<String, String> queries = CacheBuilder.newBuilder()
+            .maximumSize(MAX_QUERY_SHAPES)
+            .<String, String>build()
+            .asMap();
+
+    /**
+     * COUNT wykonywany tylko, gdy liczba nie wynika z samej strony
+     */
+    @Override
+    public Page<TodoSummaryDto> find(TodoFilter filter, Pageable pageable) {
+        Map<String, Object> parameters = parameters(filter);
+        List<TodoSummaryDto> content = page(filter, parameters, pageable, pageable.getPageSize());
+        return PageableExecutionUtils.getPage(content, pageable, () -> {
+            String jpql = query("count" + filter.shape(), () -> TodoJpaRepository.COUNT + where(filter.conditions()));
+            TypedQuery<Long> count = entityManager.createQuery(jpql, Long.class)
+                    .setHint(QueryHints.HINT_FLUSH_MODE, FlushMode.MANUAL);
+            parameters.forEach(count::setParameter);
+            return count.getSingleResult();
+        });
+    }
+
+    /**
+     * Rozmiar strony + 1 wierszy, zeby ustalic hasNext bez COUNT
+     */
+    @Override
+    public Slice<TodoSummaryDto> findSlice(TodoFilter filter, Pageable pageable) {
+        List<TodoSummaryDto> rows = page(filter, parameters(filter), pageable, pageable.getPageSize() + 1);
+        if (rows.size() <= pageable.getPageSize()) {
+            return new SliceImpl<>(rows, pageable, false);
+        }
+        return new SliceImpl<>(new ArrayList<>(rows.subList(0, pageable.getPageSize())), pageable, true);
+    }
+
+    /**
+     * Warunek (klucz, id) > (:value, :id) zapisany jako alternatywa, bo JPQL nie obsluguje porownania krotek.
+     */
+    @Override
+    public KeysetSlice<TodoSummaryDto> findAfter(TodoFilter filter, KeysetCursor cursor, int size) {
+        String key = "t." + cursor.getKey().getProperty();
+        String direction = cursor.getDirection().isAscending() ? "ASC" : "DESC";
+        String comparison = cursor.getDirection().isAscending() ? " > " : " < ";
+        String jpql = query("after" + filter.shape() + cursor.getKey() + direction + cursor.isFirst(), () -> {
+            List<String> conditions = filter.conditions();
+            if (!cursor.isFirst()) {
+                if (cursor.getKey() == KeysetCursor.Key.ID) {
+                    conditions.add("t.id" + comparison + ":lastId");
+                } else {
+                    conditions.add("(" + key + comparison + ":lastValue OR (" + key + " = :lastValue AND t.id"
+                            + comparison + ":lastId))");
+                }
+            }
+            String orderBy = " ORDER BY " + key + " " + direction;
+            if (cursor.getKey() != KeysetCursor.Key.ID) {
+                orderBy += ", t.id " + direction;
+            }
+            return TodoJpaRepository.SUMMARY + where(conditions) + orderBy;
+        });
+
+        Map<String, Object> parameters = parameters(filter);
+        if (!cursor.isFirst()) {
+            if (cursor.getKey() != KeysetCursor.Key.ID) {
+                parameters.put("lastValue", cursor.getValue());
+            }
+            parameters.put("lastId", cursor.getId());
+        }
+        List<TodoSummaryDto> rows = select(jpql, parameters).setMaxResults(size + 1).getResultList();
+        if (rows.size() <= size) {
+            return new KeysetSlice<>(rows, null);
+        }
+        List<TodoSummaryDto> content = new ArrayList<>(rows.subList(0, size));
+        return new KeysetSlice<>(content, cursor.after(content.get(size - 1)).encode());
+    }
+
+    /**
+     * Jedno zapytanie GROUP BY zamiast osobnego COUNT dla kazdej wartosci priorytetu i stanu
+     */
+    @Override
+    public List<TodoCountGroup> countGroups(TodoFilter filter) {
+        TodoFilter base = filter.withoutFacets();
+        String jpql = query("groups" + base.shape(), () -> "SELECT NEW " + TodoCountGroup.class.getName() +
+                "(t.priority, t.completed, COUNT(t)) FROM Todo t" + where(base.conditions()) +
+                " GROUP BY t.priority, t.completed");
+        TypedQuery<TodoCountGroup> query = entityManager.createQuery(jpql, TodoCountGroup.class)
+                .setHint(QueryHints.HINT_FLUSH_MODE, FlushMode.MANUAL);
+        parameters(base).forEach(query::setParameter);
+        return query.getResultList();
+    }
+
+    private List<TodoSummaryDto> page(TodoFilter filter, Map<String, Object> parameters, Pageable pageable,
+                                      int maxResults) {
+        String orderBy = orderBy(pageable.getSort());
+        String jpql = query("page" + filter.shape() + orderBy,
+                () -> TodoJpaRepository.SUMMARY + where(filter.conditions()) + orderBy);
+        return select(jpql, parameters)
+                .setFirstResult(pageable.getOffset())
+                .setMaxResults(maxResults)
+                .getResultList();
+    }
+
+    /**
+     * Zapytanie tylko do odczytu i bez flush - projekcja nie dotyka zmian oczekujacych w kontekscie persystencji
+     */
+    private TypedQuery<TodoSummaryDto> select(String jpql, Map<String, Object> parameters) {
+        TypedQuery<TodoSummaryDto> query = entityManager.createQuery(jpql, TodoSummaryDto.class)
+                .setHint(QueryHints.HINT_READONLY, true)
+                .setHint(QueryHints.HINT_FLUSH_MODE, FlushMode.MANUAL);
+        parameters.forEach(query::setParameter);
+        return query;
+    }
+
+    private String query(String shape, Supplier<String> jpql) {
+        return queries.computeIfAbsent(shape, key -> jpql.get());
+    }
+
+    private static Map<String, Object> parameters(TodoFilter filter) {
+        Map<String, Object> parameters = new LinkedHashMap<>();
+        filter.addParameters(parameters);
+        return parameters;
+    }
+
+    private static String where(List<String> conditions) {
+        return conditions.isEmpty() ? "" : " WHERE " + String.join(" AND ", conditions);
+    }
+
+    /**
+     * Sortowanie tylko po atrybutach z SORTABLE; id na koncu ustala kolejnosc todo o rownych wartosciach,
+     * wiec kolejne strony sie nie nakladaja. Priorytet to poziom (Priority.ordinal()), todo bez priorytetu
+     * sa zawsze najnizej - malejaco (od najwazniejszych) na koncu, w kolejnosci indeksu (username, priority DESC, id).
+     */
+    private static String orderBy(Sort sort) {
+        List<String> orders = new ArrayList<>();
+        boolean byId = false;
+        if (sort != null) {
+            for (Sort.Order order : sort) {
+                if (!SORTABLE.contains(order.getProperty())) {
+                    throw new InvalidSortException("Unsupported sort property: " + order.getProperty());
+                }
+                orders.add("t." + order.getProperty() + (order.isAscending() ? " ASC" : " DESC") +
+                        ("priority".equals(order.getProperty()) && order.isDescending() ? " NULLS LAST" : ""));
+                byId |= "id".equals(order.getProperty());
+            }
+        }
+        if (!byId) {
+            orders.add("t.id ASC");
+        }
+        return " ORDER BY " + String.join(", ", orders);
+    }
+
+    @Override
+    public int patchOwned(Long id, Map<String, Object> changes, Long expectedVersion, String username, boolean admin) {
+        CriteriaBuilder builder = entityManager.getCriteriaBuilder();
+        CriteriaUpdate<Todo> update = builder.createCriteriaUpdate(Todo.class);
+        Root<Todo> todo = update.from(Todo.class);
+        changes.forEach(update::set);
+        Path<Long> version = todo.get("version");
+        update.set(version, builder.sum(version, 1L));
+
+        List<Predicate> predicates = new ArrayList<>();
+        predicates.add(builder.equal(todo.get("id"), id));
+        if (expectedVersion != null) {
+            predicates.add(builder.equal(version, expectedVersion));
+        }
+        if (!admin) {
+            predicates.add(builder.equal(todo.get("username"), username));
+        }
+        update.where(predicates.toArray(new Predicate[predicates.size()]));
+
+        int updated = entityManager.createQuery(update).executeUpdate();
+        entityManager.clear();
+        return updated;
+    }
+}
@@ -0,0 +1,26 @@
+package com.training.todo.persistance;
+
+import com.training.todo.domain.Priority;
+import lombok.AllArgsConstructor;
+import lombok.EqualsAndHashCode;
+import lombok.Getter;
+import lombok.ToString;
+
+/**
+ * Zapisany stan todo czytany przed jego zmiana (SELECT NEW) - kolumny, od ktorych zaleza liczniki, trigramy
+ * i indeksy w pamieci, oraz wersja, ktora zabezpiecza zmiane przed rownoleglym zapisem
+ */
+@AllArgsConstructor
+@Getter
+@EqualsAndHashCode
+@ToString
+public class TodoState {
+
+    private String username;
+    private String name;
+    private String description;
+    private Priority priority;
+    private boolean completed;
+    private long version;
+
+}
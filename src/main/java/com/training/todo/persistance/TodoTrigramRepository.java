@@ -0,0 +1,79 @@
+package com.training.todo.persistance;
+
+import com.training.todo.domain.Todo;
+import com.training.todo.domain.TodoNameTrigram;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Repository;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import java.util.stream.Collectors;
+
+/**
+ * Trigramy nazw todo w tabeli TODO_NAME_TRIGRAMS. Zmiany musza byc wykonywane w transakcji zmieniajacej tabele TODOS.
+ */
+@Repository
+public class TodoTrigramRepository {
+
+    private static final String INSERT = "INSERT INTO todo_name_trigrams (todo_id, trigram, username) VALUES (?, ?, ?)";
+
+    private static final String INSERT_STORED = "INSERT INTO todo_name_trigrams (todo_id, trigram, username) " +
+            "SELECT id, ?, username FROM todos WHERE id = ?";
+
+    private static final String DELETE = "DELETE FROM todo_name_trigrams WHERE todo_id = ?";
+
+    private static final String DELETE_ORPHANED = "DELETE FROM todo_name_trigrams g WHERE g.todo_id IN (%s) " +
+            "AND NOT EXISTS (SELECT 1 FROM todos t WHERE t.id = g.todo_id)";
+
+    private final JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    public TodoTrigramRepository(JdbcTemplate jdbcTemplate) {
+        this.jdbcTemplate = jdbcTemplate;
+    }
+
+    /**
+     * Po zalozeniu todo - identyfikator, nazwa i wlasciciel brane sa z obiektu, wiersz nie musi byc jeszcze zapisany
+     */
+    public void added(Todo todo) {
+        addedAll(Collections.singletonList(todo));
+    }
+
+    public void addedAll(Collection<Todo> todos) {
+        List<Object[]> rows = new ArrayList<>();
+        for (Todo todo : todos) {
+            for (String trigram : TodoNameTrigram.of(todo.getName())) {
+                rows.add(new Object[]{todo.getId(), trigram, todo.getUsername()});
+            }
+        }
+        if (!rows.isEmpty()) {
+            jdbcTemplate.batchUpdate(INSERT, rows);
+        }
+    }
+
+    /**
+     * Po zmianie nazwy zapisanego todo; wlasciciel brany jest z wiersza TODOS
+     */
+    public void renamedStored(Long id, String name) {
+        jdbcTemplate.update(DELETE, id);
+        List<Object[]> rows = TodoNameTrigram.of(name).stream()
+                .map(trigram -> new Object[]{trigram, id})
+                .collect(Collectors.toList());
+        if (!rows.isEmpty()) {
+            jdbcTemplate.batchUpdate(INSERT_STORED, rows);
+        }
+    }
+
+    /**
+     * Po usunieciu todo - usuwa trigramy tylko tych z podanych id, ktorych nie ma juz w TODOS
+     */
+    public void removedDeleted(Collection<Long> ids) {
+        if (!ids.isEmpty()) {
+            jdbcTemplate.update(String.format(DELETE_ORPHANED, String.join(", ", Collections.nCopies(ids.size(), "?"))),
+                    ids.toArray());
+        }
+    }
+}
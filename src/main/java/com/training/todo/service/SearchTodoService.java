@@ -3,90 +3,212 @@ package com.training.todo.service;
 import com.google.common.base.Strings;
 import com.google.common.collect.Lists;
 import com.training.security.service.CurrentUserProvider;
+import com.training.todo.controller.dto.TodoFacetedPageDto;
+import com.training.todo.controller.dto.TodoFacetsDto;
 import com.training.todo.controller.dto.TodoSearchParamsDto;
-import com.training.todo.domain.Todo;
+import com.training.todo.controller.dto.TodoSummaryDto;
+import com.training.todo.domain.Priority;
+import com.training.todo.persistance.KeysetCursor;
+import com.training.todo.persistance.KeysetSlice;
+import com.training.todo.persistance.TodoChangeMarker;
+import com.training.todo.persistance.TodoChangeRepository;
+import com.training.todo.persistance.TodoCountGroup;
+import com.training.todo.persistance.TodoCounterRepository;
+import com.training.todo.persistance.TodoFilter;
 import com.training.todo.persistance.TodoJpaRepository;
+import com.training.todo.utils.ForbiddenException;
+import com.training.todo.utils.IndexNotReadyException;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageImpl;
 import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Slice;
 import org.springframework.security.access.prepost.PreAuthorize;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.util.Comparator;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
 
 @Service
 public class SearchTodoService {
 
     private TodoJpaRepository todoRepository;
 
+    private TodoCounterRepository counterRepository;
+
+    private TodoChangeRepository changeRepository;
+
     private CurrentUserProvider currentUserProvider;
 
+    private TodoFullTextIndex fullTextIndex;
+
+    private TodoNameSuggestions nameSuggestions;
+
     @Autowired
-    public SearchTodoService(TodoJpaRepository todoRepository, CurrentUserProvider currentUserProvider) {
+    public SearchTodoService(TodoJpaRepository todoRepository, TodoCounterRepository counterRepository,
+                             TodoChangeRepository changeRepository, CurrentUserProvider currentUserProvider,
+                             TodoFullTextIndex fullTextIndex, TodoNameSuggestions nameSuggestions) {
         this.todoRepository = todoRepository;
+        this.counterRepository = counterRepository;
+        this.changeRepository = changeRepository;
         this.currentUserProvider = currentUserProvider;
+        this.fullTextIndex = fullTextIndex;
+        this.nameSuggestions = nameSuggestions;
     }
 
+    /**
+     * Znacznik zmian todo, w ktorych szuka biezacy uzytkownik
+     */
     @PreAuthorize("isAuthenticated()")
-    public Page<Todo> find(TodoSearchParamsDto searchParams, Pageable pageable) {
-        if (currentUserProvider.isAdminLoggedIn()) {
-            return findForAdmin(searchParams, pageable);
-        } else {
-            return findForUser(searchParams, pageable);
-        }
+    public TodoChangeMarker getChangeMarker() {
+        return changeRepository.find(
+                currentUserProvider.isAdminLoggedIn() ? null : currentUserProvider.getCurrentUserName());
     }
 
-    @PreAuthorize("hasRole('ADMIN')")
-    private Page<Todo> findForAdmin(TodoSearchParamsDto searchParams, Pageable pageable){
-        boolean nameIsPresent = !Strings.isNullOrEmpty(searchParams.getName());
-        boolean priorityIsPresent = !Strings.isNullOrEmpty(searchParams.getPriority());
-        if(nameIsPresent && priorityIsPresent){
-            return todoRepository.findByNameAndPriority(searchParams.getName(), searchParams.getPriority(), pageable);
-        }
-        if(nameIsPresent){
-            return todoRepository.findByName(searchParams.getName(), pageable);
+    /**
+     * ETag wynikow wyszukiwania pelnotekstowego - z wersji indeksu w pamieci, nie ze znacznika zmian w bazie,
+     * bo indeks jest odswiezany dopiero po commicie
+     */
+    @PreAuthorize("isAuthenticated()")
+    public String getFullTextETag() {
+        String scope = currentUserProvider.isAdminLoggedIn()
+                ? "all" : Integer.toHexString(currentUserProvider.getCurrentUserName().hashCode());
+        return "\"ft-" + scope + "-" + ready(fullTextIndex).getVersion() + "\"";
+    }
+
+    /**
+     * Wyszukiwanie w transakcji tylko do odczytu, zwraca projekcje zamiast encji. Gdy filtr nie dotyczy nazwy,
+     * liczba wszystkich todo pochodzi z TODO_COUNTERS zamiast zapytania COUNT.
+     */
+    @PreAuthorize("isAuthenticated()")
+    @Transactional(readOnly = true)
+    public Page<TodoSummaryDto> find(TodoSearchParamsDto searchParams, Pageable pageable) {
+        TodoFilter filter = filter(searchParams);
+        if (filter.isCountable()) {
+            return counted(todoRepository.findSlice(filter, pageable), pageable,
+                    counterRepository.count(filter.getUsername(), filter.getPriorities(), filter.getCompleted()));
         }
-        if(priorityIsPresent){
-            return todoRepository.findByPriority(searchParams.getPriority(), pageable);
+        return todoRepository.find(filter, pageable);
+    }
+
+    /**
+     * Strona wynikow z fasetami priorytetu i stanu. Fasety i liczba wszystkich wynikow wyliczane sa z jednego
+     * zestawu liczb w grupach (priorytet, stan) - z TODO_COUNTERS, a gdy filtr dotyczy nazwy, z jednego
+     * zapytania GROUP BY - wiec zamiast zapytania COUNT na kazda wartosc wystarczaja dwa zapytania.
+     * Todo bez priorytetu nie maja fasety priorytetu, ale wliczane sa do pozostalych liczb.
+     */
+    @PreAuthorize("isAuthenticated()")
+    @Transactional(readOnly = true)
+    public TodoFacetedPageDto findWithFacets(TodoSearchParamsDto searchParams, Pageable pageable) {
+        TodoFilter filter = filter(searchParams);
+        List<TodoCountGroup> groups = filter.isCountable()
+                ? counterRepository.countGroups(filter.getUsername())
+                : todoRepository.countGroups(filter);
+        Map<Priority, Long> byPriority = new EnumMap<>(Priority.class);
+        Map<Boolean, Long> byCompleted = new TreeMap<>();
+        long total = 0;
+        for (TodoCountGroup group : groups) {
+            if (group.getCount() == 0) {
+                continue;
+            }
+            boolean priorityMatches = filter.getPriorities().isEmpty()
+                    || filter.getPriorities().contains(group.getPriority());
+            boolean completedMatches = filter.getCompleted() == null
+                    || filter.getCompleted() == group.isCompleted();
+            if (completedMatches && group.getPriority() != null) {
+                byPriority.merge(group.getPriority(), group.getCount(), Long::sum);
+            }
+            if (priorityMatches) {
+                byCompleted.merge(group.isCompleted(), group.getCount(), Long::sum);
+            }
+            if (priorityMatches && completedMatches) {
+                total += group.getCount();
+            }
         }
-        return todoRepository.findAll(pageable);
+        return new TodoFacetedPageDto(todoRepository.findSlice(filter, pageable).getContent(), pageable, total,
+                new TodoFacetsDto(byPriority, byCompleted));
     }
 
-    private Page<Todo> findForUser(TodoSearchParamsDto searchParams, Pageable pageable) {
-        boolean nameIsPresent = !Strings.isNullOrEmpty(searchParams.getName());
-        boolean priorityIsPresent = !Strings.isNullOrEmpty(searchParams.getPriority());
-        Page<Todo> todos;
-        if (nameIsPresent && priorityIsPresent){
-            todos = findByNameAndPriorityForUser(searchParams, pageable);
-        } else if(nameIsPresent) {
-            todos = findByNameForUser(searchParams, pageable);
+    @PreAuthorize("isAuthenticated()")
+    @Transactional(readOnly = true)
+    public Slice<TodoSummaryDto> findSlice(TodoSearchParamsDto searchParams, Pageable pageable) {
+        return todoRepository.findSlice(filter(searchParams), pageable);
+    }
 
-        } else if(priorityIsPresent){
-            todos = findByPriorityForUser(searchParams, pageable);
+    @PreAuthorize("isAuthenticated()")
+    @Transactional(readOnly = true)
+    public KeysetSlice<TodoSummaryDto> find(TodoSearchParamsDto searchParams, KeysetCursor after, int size) {
+        return todoRepository.findAfter(filter(searchParams), after, size);
+    }
 
-        } else {
-            todos = findAllForUser(pageable);
+    /**
+     * Wyszukiwanie pelnotekstowe w nazwie i opisie; kolejnosc wedlug trafnosci (sortowanie z pageable jest
+     * pomijane), z bazy czytane sa tylko todo z zadanej strony
+     */
+    @PreAuthorize("isAuthenticated()")
+    @Transactional(readOnly = true)
+    public Page<TodoSummaryDto> findFullText(String query, Pageable pageable) {
+        String username = currentUserProvider.isAdminLoggedIn() ? null : currentUserProvider.getCurrentUserName();
+        TodoFullTextIndex.Hits hits = ready(fullTextIndex).search(username, query,
+                pageable.getOffset() + pageable.getPageSize());
+        List<Long> ids = hits.getIds().subList(Math.min(pageable.getOffset(), hits.getIds().size()),
+                hits.getIds().size());
+        if (ids.isEmpty()) {
+            return new PageImpl<>(Lists.newArrayList(), pageable, hits.getTotal());
         }
-        return todos;
+        List<TodoSummaryDto> todos = todoRepository.findSummaries(ids);
+        todos.sort(Comparator.comparingInt(todo -> ids.indexOf(todo.getId())));
+        return new PageImpl<>(todos, pageable, hits.getTotal());
     }
 
-    private Page<Todo> findByNameAndPriorityForUser(TodoSearchParamsDto searchParams, Pageable pageable) {
-        return todoRepository.findByNameAndPriorityAndUsername(
-                searchParams.getName(),
-                searchParams.getPriority(),
-                currentUserProvider.getCurrentUserName(),
-                pageable);
+    /**
+     * Podpowiedzi z nazw wlasnych todo biezacego uzytkownika (takze administratora), bez zapytan do bazy
+     */
+    @PreAuthorize("isAuthenticated()")
+    public List<String> suggestNames(String prefix, int limit) {
+        return ready(nameSuggestions).suggest(currentUserProvider.getCurrentUserName(), prefix, limit);
     }
 
-    private Page<Todo> findByNameForUser(TodoSearchParamsDto searchParams, Pageable pageable) {
-        return todoRepository.findByNameAndUsername(
-                searchParams.getName(), currentUserProvider.getCurrentUserName(), pageable);
+    /**
+     * Do konca pierwszej przebudowy indeks zwracalby czesciowe wyniki - zamiast nich 503
+     */
+    private static <T extends TodoRowIndex> T ready(T index) {
+        if (!index.isReady()) {
+            throw new IndexNotReadyException(index.getClass().getSimpleName() + " is still being built");
+        }
+        return index;
     }
 
-    private Page<Todo> findByPriorityForUser(TodoSearchParamsDto searchParams, Pageable pageable) {
-        return todoRepository.findByPriorityAndUsername(
-                searchParams.getPriority(), currentUserProvider.getCurrentUserName(), pageable);
+    /**
+     * Filtr z parametrow wyszukiwania; zwykly uzytkownik szuka tylko we wlasnych todo. Priorytety mozna podac
+     * po przecinku (albo powtarzajac parametr) - wystarczy zgodnosc z jednym z nich.
+     */
+    private TodoFilter filter(TodoSearchParamsDto searchParams) {
+        String username = Strings.emptyToNull(searchParams.getUsername());
+        if (!currentUserProvider.isAdminLoggedIn()) {
+            String currentUserName = currentUserProvider.getCurrentUserName();
+            if (username != null && !username.equals(currentUserName)) {
+                throw new ForbiddenException("User " + currentUserName + " can not search todos of other users");
+            }
+            username = currentUserName;
+        }
+        return TodoFilter.builder()
+                .username(username)
+                .name(Strings.emptyToNull(searchParams.getName()))
+                .nameContains(Strings.emptyToNull(searchParams.getNameContains()))
+                .priorities(searchParams.priorities())
+                .completed(searchParams.getCompleted())
+                .build();
     }
 
-    private Page<Todo> findAllForUser(Pageable pageable) {
-        return todoRepository.findByUsername(currentUserProvider.getCurrentUserName(), pageable);
+    /**
+     * Strona z suma z TODO_COUNTERS zamiast osobnego zapytania COUNT
+     */
+    private Page<TodoSummaryDto> counted(Slice<TodoSummaryDto> slice, Pageable pageable, long total) {
+        return new PageImpl<>(slice.getContent(), pageable, total);
     }
 }
\ No newline at end of file
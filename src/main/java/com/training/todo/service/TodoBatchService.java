@@ -0,0 +1,214 @@
+package com.training.todo.service;
+
+import com.training.security.service.CurrentUserProvider;
+import com.training.todo.controller.dto.TodoImportChunkDto;
+import com.training.todo.domain.Todo;
+import com.training.todo.persistance.SecondLevelCache;
+import com.training.todo.persistance.TodoChangeRepository;
+import com.training.todo.persistance.TodoCounterRepository;
+import com.training.todo.persistance.TodoTrigramRepository;
+import com.training.utils.JsonRecordReader.Record;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.dao.DataAccessException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.security.access.prepost.PreAuthorize;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import javax.validation.ConstraintViolation;
+import javax.validation.Validator;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Objects;
+import java.util.Set;
+import java.util.function.Consumer;
+import java.util.stream.Collectors;
+
+/**
+ * Zakladanie wielu todo w jednej transakcji: identyfikatory pobierane z sekwencji blokami,
+ * wiersze zapisywane batchami JDBC. Niepoprawny rekord wycofuje cala paczke.
+ * Import dowolnej wielkosci zapisuje kazda porcje w osobnej transakcji i odrzuca tylko porcje z bledem.
+ */
+@Service
+public class TodoBatchService {
+
+    private static final String INSERT_TODO =
+            "INSERT INTO todos (id, name, priority_level, description, completed, username) VALUES (?, ?, ?, ?, ?, ?)";
+    private static final String NEXT_ID_BLOCK = "CALL NEXT VALUE FOR " + Todo.ID_SEQUENCE;
+
+    private final JdbcTemplate jdbcTemplate;
+    private final TodoCounterRepository counterRepository;
+    private final TodoChangeRepository changeRepository;
+    private final TodoTrigramRepository trigramRepository;
+    private final CurrentUserProvider currentUserProvider;
+    private final SecondLevelCache secondLevelCache;
+    private final Validator validator;
+    private final TransactionTemplate transactionTemplate;
+    private final ApplicationEventPublisher eventPublisher;
+    private final int chunkSize;
+    private final int maxSize;
+
+    @Autowired
+    public TodoBatchService(JdbcTemplate jdbcTemplate, TodoCounterRepository counterRepository,
+                            TodoChangeRepository changeRepository, TodoTrigramRepository trigramRepository,
+                            CurrentUserProvider currentUserProvider, SecondLevelCache secondLevelCache,
+                            Validator validator, PlatformTransactionManager transactionManager,
+                            ApplicationEventPublisher eventPublisher,
+                            @Value("${todo.batch.chunk-size:500}") int chunkSize,
+                            @Value("${todo.batch.max-size:10000}") int maxSize) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.counterRepository = counterRepository;
+        this.changeRepository = changeRepository;
+        this.trigramRepository = trigramRepository;
+        this.currentUserProvider = currentUserProvider;
+        this.secondLevelCache = secondLevelCache;
+        this.validator = validator;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.eventPublisher = eventPublisher;
+        this.chunkSize = chunkSize;
+        this.maxSize = maxSize;
+    }
+
+    /**
+     * Zwraca identyfikatory w kolejnosci rekordow wejsciowych
+     */
+    @PreAuthorize("isAuthenticated()")
+    @Transactional
+    public List<Long> create(Iterator<Record<Todo>> records) {
+        String username = currentUserProvider.getCurrentUserName();
+        IdBlock ids = new IdBlock();
+        List<Long> created = new ArrayList<>();
+        List<Todo> chunk = new ArrayList<>(chunkSize);
+        while (records.hasNext()) {
+            Todo todo = validated(records.next());
+            if (created.size() + chunk.size() >= maxSize) {
+                throw new IllegalArgumentException("Batch exceeds " + maxSize + " todos");
+            }
+            todo.setId(ids.next());
+            todo.setUsername(username);
+            chunk.add(todo);
+            if (chunk.size() == chunkSize) {
+                created.addAll(insert(chunk));
+                chunk.clear();
+            }
+        }
+        if (!chunk.isEmpty()) {
+            created.addAll(insert(chunk));
+        }
+        if (!created.isEmpty()) {
+            changeRepository.changed(username);
+        }
+        return created;
+    }
+
+    /**
+     * Rekordy czytane sa porcjami po chunkSize; porcja z niepoprawnym rekordem albo bledem zapisu jest odrzucana
+     * w calosci, pozostale sa zatwierdzane. Wynik kazdej porcji trafia do report zaraz po jej zakonczeniu,
+     * w pamieci jest tylko jedna porcja.
+     */
+    @PreAuthorize("isAuthenticated()")
+    public void importChunks(Iterator<Record<Todo>> records, Consumer<TodoImportChunkDto> report) {
+        String username = currentUserProvider.getCurrentUserName();
+        IdBlock ids = new IdBlock();
+        List<Record<Todo>> chunk = new ArrayList<>(chunkSize);
+        while (records.hasNext()) {
+            chunk.add(records.next());
+            if (chunk.size() == chunkSize) {
+                report.accept(importChunk(chunk, username, ids));
+                chunk.clear();
+            }
+        }
+        if (!chunk.isEmpty()) {
+            report.accept(importChunk(chunk, username, ids));
+        }
+    }
+
+    private TodoImportChunkDto importChunk(List<Record<Todo>> records, String username, IdBlock ids) {
+        long fromRecord = records.get(0).getNumber();
+        long toRecord = records.get(records.size() - 1).getNumber();
+        List<String> errors = records.stream()
+                .map(this::error)
+                .filter(Objects::nonNull)
+                .collect(Collectors.toList());
+        if (!errors.isEmpty()) {
+            return new TodoImportChunkDto(fromRecord, toRecord, 0, errors);
+        }
+        try {
+            transactionTemplate.execute(status -> {
+                List<Todo> todos = new ArrayList<>(records.size());
+                for (Record<Todo> record : records) {
+                    Todo todo = record.getValue();
+                    todo.setId(ids.next());
+                    todo.setUsername(username);
+                    todos.add(todo);
+                }
+                insert(todos);
+                changeRepository.changed(username);
+                return null;
+            });
+        } catch (DataAccessException e) {
+            return new TodoImportChunkDto(fromRecord, toRecord, 0,
+                    Collections.singletonList(e.getMostSpecificCause().getMessage()));
+        }
+        return new TodoImportChunkDto(fromRecord, toRecord, records.size(), Collections.emptyList());
+    }
+
+    private Todo validated(Record<Todo> record) {
+        String error = error(record);
+        if (error != null) {
+            throw new IllegalArgumentException(error);
+        }
+        return record.getValue();
+    }
+
+    private String error(Record<Todo> record) {
+        if (!record.isValid()) {
+            return "Record " + record.getNumber() + ": " + record.getError();
+        }
+        Set<ConstraintViolation<Todo>> violations = validator.validate(record.getValue());
+        if (!violations.isEmpty()) {
+            return "Record " + record.getNumber() + ": " + violations.stream()
+                    .map(violation -> violation.getPropertyPath() + " " + violation.getMessage())
+                    .collect(Collectors.joining(", "));
+        }
+        return null;
+    }
+
+    private List<Long> insert(List<Todo> todos) {
+        jdbcTemplate.batchUpdate(INSERT_TODO, todos.stream()
+                .map(todo -> new Object[]{todo.getId(), todo.getName(),
+                        todo.getPriority() != null ? todo.getPriority().ordinal() : null,
+                        todo.getDescription(), todo.isCompleted(), todo.getUsername()})
+                .collect(Collectors.toList()));
+        counterRepository.addedAll(todos);
+        trigramRepository.addedAll(todos);
+        secondLevelCache.evictQueryResults();
+        List<Long> ids = todos.stream().map(Todo::getId).collect(Collectors.toList());
+        eventPublisher.publishEvent(new TodosModifiedEvent(ids));
+        return ids;
+    }
+
+    /**
+     * Blok identyfikatorow w semantyce pooled-lo: wartosc sekwencji v daje v .. v + ID_ALLOCATION_SIZE - 1,
+     * tak samo jak generator Hibernate dla encji Todo
+     */
+    private class IdBlock {
+
+        private long next;
+        private long end;
+
+        long next() {
+            if (next == end) {
+                next = jdbcTemplate.queryForObject(NEXT_ID_BLOCK, Long.class);
+                end = next + Todo.ID_ALLOCATION_SIZE;
+            }
+            return next++;
+        }
+    }
+}
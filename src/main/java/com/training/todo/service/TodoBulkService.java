@@ -0,0 +1,191 @@
+package com.training.todo.service;
+
+import com.google.common.base.Strings;
+import com.google.common.collect.Lists;
+import com.training.security.service.CurrentUserProvider;
+import com.training.todo.controller.dto.TodoBulkRequestDto;
+import com.training.todo.controller.dto.TodoSearchParamsDto;
+import com.training.todo.domain.Priority;
+import com.training.todo.domain.Todo;
+import com.training.todo.persistance.SecondLevelCache;
+import com.training.todo.persistance.TodoChangeRepository;
+import com.training.todo.persistance.TodoCounterRepository;
+import com.training.todo.persistance.TodoTrigramRepository;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.security.access.prepost.PreAuthorize;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashSet;
+import java.util.List;
+
+/**
+ * Masowe ukonczenie i usuniecie todo biezacego uzytkownika (takze administratora - tylko jego wlasnych todo).
+ * Zbior wybierany jest lista identyfikatorow albo filtrem i przetwarzany porcjami po chunkSize wierszy;
+ * kazda porcja to jedno UPDATE/DELETE z korekta licznikow w osobnej transakcji, wiec blad przerywa operacje
+ * po ostatniej zatwierdzonej porcji. Obie operacje mozna bezpiecznie powtorzyc.
+ */
+@Service
+public class TodoBulkService {
+
+    private enum Operation {
+        COMPLETE("UPDATE todos t SET completed = TRUE, version = version + 1 WHERE "),
+        DELETE("DELETE FROM todos t WHERE ");
+
+        private final String statement;
+
+        Operation(String statement) {
+            this.statement = statement;
+        }
+    }
+
+    private final JdbcTemplate jdbcTemplate;
+    private final TodoCounterRepository counterRepository;
+    private final TodoChangeRepository changeRepository;
+    private final TodoTrigramRepository trigramRepository;
+    private final CurrentUserProvider currentUserProvider;
+    private final SecondLevelCache secondLevelCache;
+    private final TransactionTemplate transactionTemplate;
+    private final ApplicationEventPublisher eventPublisher;
+    private final int chunkSize;
+
+    @Autowired
+    public TodoBulkService(JdbcTemplate jdbcTemplate, TodoCounterRepository counterRepository,
+                           TodoChangeRepository changeRepository, TodoTrigramRepository trigramRepository,
+                           CurrentUserProvider currentUserProvider, SecondLevelCache secondLevelCache,
+                           PlatformTransactionManager transactionManager, ApplicationEventPublisher eventPublisher,
+                           @Value("${todo.bulk.chunk-size:500}") int chunkSize) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.counterRepository = counterRepository;
+        this.changeRepository = changeRepository;
+        this.trigramRepository = trigramRepository;
+        this.currentUserProvider = currentUserProvider;
+        this.secondLevelCache = secondLevelCache;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.eventPublisher = eventPublisher;
+        this.chunkSize = chunkSize;
+    }
+
+    /**
+     * @return liczba todo oznaczonych jako ukonczone (bez tych, ktore juz byly ukonczone)
+     */
+    @PreAuthorize("isAuthenticated()")
+    public long complete(TodoBulkRequestDto request) {
+        return apply(Operation.COMPLETE, request);
+    }
+
+    /**
+     * @return liczba usunietych todo
+     */
+    @PreAuthorize("isAuthenticated()")
+    public long delete(TodoBulkRequestDto request) {
+        return apply(Operation.DELETE, request);
+    }
+
+    private long apply(Operation operation, TodoBulkRequestDto request) {
+        if ((request.getIds() == null) == (request.getFilter() == null)) {
+            throw new IllegalArgumentException("Exactly one of ids or filter is required");
+        }
+        List<String> conditions = new ArrayList<>();
+        List<Object> arguments = new ArrayList<>();
+        String username = currentUserProvider.getCurrentUserName();
+        conditions.add("t.username = ?");
+        arguments.add(username);
+        if (operation == Operation.COMPLETE) {
+            conditions.add("t.completed = FALSE");
+        }
+        if (request.getIds() != null) {
+            return applyToIds(operation, username, conditions, arguments, request.getIds());
+        }
+        addFilter(request.getFilter(), conditions, arguments);
+        return applyToFilter(operation, username, conditions, arguments);
+    }
+
+    private long applyToIds(Operation operation, String username, List<String> conditions, List<Object> arguments,
+                            List<Long> ids) {
+        if (ids.contains(null)) {
+            throw new IllegalArgumentException("Ids must not contain null");
+        }
+        long affected = 0;
+        for (List<Long> chunk : Lists.partition(new ArrayList<>(new LinkedHashSet<>(ids)), chunkSize)) {
+            affected += applyToChunk(operation, username, conditions, arguments, chunk);
+        }
+        return affected;
+    }
+
+    /**
+     * Identyfikatory kolejnych porcji wybierane sa po kluczu (username, id), bez OFFSET
+     */
+    private long applyToFilter(Operation operation, String username, List<String> conditions,
+                               List<Object> arguments) {
+        String selectChunk = "SELECT t.id FROM todos t WHERE " + String.join(" AND ", conditions) +
+                " AND t.id > ? ORDER BY t.id LIMIT " + chunkSize;
+        long affected = 0;
+        long lastId = Long.MIN_VALUE;
+        List<Long> chunk;
+        do {
+            List<Object> chunkArguments = new ArrayList<>(arguments);
+            chunkArguments.add(lastId);
+            chunk = jdbcTemplate.queryForList(selectChunk, Long.class, chunkArguments.toArray());
+            if (chunk.isEmpty()) {
+                break;
+            }
+            affected += applyToChunk(operation, username, conditions, arguments, chunk);
+            lastId = chunk.get(chunk.size() - 1);
+        } while (chunk.size() == chunkSize);
+        return affected;
+    }
+
+    /**
+     * Porcja zmieniana jest z pelnym warunkiem, wiec wiersze zmienione od chwili wyboru identyfikatorow sa pomijane
+     */
+    private int applyToChunk(Operation operation, String username, List<String> conditions, List<Object> arguments,
+                             List<Long> ids) {
+        String condition = String.join(" AND ", conditions) +
+                " AND t.id IN (" + String.join(", ", Collections.nCopies(ids.size(), "?")) + ")";
+        List<Object> chunkArguments = new ArrayList<>(arguments);
+        chunkArguments.addAll(ids);
+        Object[] values = chunkArguments.toArray();
+        return transactionTemplate.execute(status -> {
+            if (operation == Operation.COMPLETE) {
+                counterRepository.completedStoredWhere(condition, values);
+            } else {
+                counterRepository.removedStoredWhere(condition, values);
+            }
+            int affected = jdbcTemplate.update(operation.statement + condition, values);
+            if (affected > 0) {
+                changeRepository.changed(username);
+                if (operation == Operation.DELETE) {
+                    trigramRepository.removedDeleted(ids);
+                    eventPublisher.publishEvent(new TodosModifiedEvent(ids));
+                }
+            }
+            secondLevelCache.evict(Todo.class, ids);
+            return affected;
+        });
+    }
+
+    private static void addFilter(TodoSearchParamsDto filter, List<String> conditions, List<Object> arguments) {
+        String name = Strings.emptyToNull(filter.getName());
+        List<Priority> priorities = filter.priorities();
+        if (name != null) {
+            conditions.add("t.name = ?");
+            arguments.add(name);
+        }
+        if (!priorities.isEmpty()) {
+            conditions.add("t.priority_level IN (" +
+                    String.join(", ", Collections.nCopies(priorities.size(), "?")) + ")");
+            priorities.forEach(priority -> arguments.add(priority.ordinal()));
+        }
+        if (filter.getCompleted() != null) {
+            conditions.add("t.completed = ?");
+            arguments.add(filter.getCompleted());
+        }
+    }
+}
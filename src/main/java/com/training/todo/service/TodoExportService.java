@@ -0,0 +1,133 @@
+package com.training.todo.service;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.training.security.service.CurrentUserProvider;
+import com.training.todo.domain.Priority;
+import com.training.todo.domain.Todo;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowCallbackHandler;
+import org.springframework.security.access.prepost.PreAuthorize;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import javax.sql.DataSource;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+
+/**
+ * Eksport wszystkich todo biezacego uzytkownika (administratora - wszystkich uzytkownikow) jako NDJSON albo CSV.
+ * Wiersze czytane sa kursorem JDBC porcjami po fetchSize i od razu zapisywane do strumienia odpowiedzi,
+ * bez encji i kontekstu utrwalania, wiec pamiec nie zalezy od liczby todo.
+ */
+@Service
+public class TodoExportService {
+
+    public enum Format {
+        NDJSON, CSV
+    }
+
+    private static final String SELECT_TODOS =
+            "SELECT id, name, priority_level, description, completed, username, version FROM todos t";
+    private static final String CSV_HEADER = "id,name,priority,description,completed,username,version";
+
+    private final JdbcTemplate jdbcTemplate;
+    private final CurrentUserProvider currentUserProvider;
+    private final ObjectMapper objectMapper;
+
+    @Autowired
+    public TodoExportService(DataSource dataSource, CurrentUserProvider currentUserProvider,
+                             ObjectMapper objectMapper, @Value("${todo.export.fetch-size:500}") int fetchSize) {
+        this.jdbcTemplate = new JdbcTemplate(dataSource);
+        this.jdbcTemplate.setFetchSize(fetchSize);
+        this.currentUserProvider = currentUserProvider;
+        this.objectMapper = objectMapper;
+    }
+
+    /**
+     * Transakcja tylko do odczytu utrzymuje kursor otwarty (bez autocommit) przez caly eksport
+     *
+     * @return liczba wyeksportowanych todo
+     */
+    @PreAuthorize("isAuthenticated()")
+    @Transactional(readOnly = true)
+    public long export(Format format, OutputStream out) throws IOException {
+        Writer writer = new BufferedWriter(new OutputStreamWriter(out, StandardCharsets.UTF_8));
+        if (format == Format.CSV) {
+            writer.write(CSV_HEADER);
+            writer.write("\r\n");
+        }
+        long[] exported = {0};
+        RowCallbackHandler handler = row -> {
+            write(format, writer, row);
+            exported[0]++;
+        };
+        try {
+            if (currentUserProvider.isAdminLoggedIn()) {
+                jdbcTemplate.query(SELECT_TODOS + " ORDER BY t.id", handler);
+            } else {
+                jdbcTemplate.query(SELECT_TODOS + " WHERE t.username = ? ORDER BY t.id", handler,
+                        currentUserProvider.getCurrentUserName());
+            }
+        } catch (UncheckedIOException e) {
+            throw e.getCause();
+        }
+        writer.flush();
+        return exported[0];
+    }
+
+    private void write(Format format, Writer writer, ResultSet row) throws SQLException {
+        Priority priority = row.getObject(3) != null ? Priority.values()[row.getInt(3)] : null;
+        Todo todo = new Todo(row.getLong(1), row.getString(2), priority, row.getString(4),
+                row.getBoolean(5), row.getString(6), row.getLong(7));
+        try {
+            if (format == Format.NDJSON) {
+                writer.write(objectMapper.writeValueAsString(todo));
+                writer.write('\n');
+            } else {
+                writeCsv(writer, todo);
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private static void writeCsv(Writer writer, Todo todo) throws IOException {
+        writer.write(String.valueOf(todo.getId()));
+        writer.write(',');
+        writer.write(csvField(todo.getName()));
+        writer.write(',');
+        writer.write(todo.getPriority() != null ? todo.getPriority().name() : "");
+        writer.write(',');
+        writer.write(csvField(todo.getDescription()));
+        writer.write(',');
+        writer.write(String.valueOf(todo.isCompleted()));
+        writer.write(',');
+        writer.write(csvField(todo.getUsername()));
+        writer.write(',');
+        writer.write(String.valueOf(todo.getVersion()));
+        writer.write("\r\n");
+    }
+
+    /**
+     * RFC 4180: pole z przecinkiem, cudzyslowem albo koncem linii w cudzyslowach, cudzyslow podwojony;
+     * null jako puste pole
+     */
+    static String csvField(String value) {
+        if (value == null) {
+            return "";
+        }
+        if (value.indexOf(',') < 0 && value.indexOf('"') < 0 && value.indexOf('\n') < 0 && value.indexOf('\r') < 0) {
+            return value;
+        }
+        return "\"" + value.replace("\"", "\"\"") + "\"";
+    }
+}
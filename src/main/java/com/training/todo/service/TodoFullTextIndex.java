@@ -0,0 +1,268 @@
+package com.training.todo.service;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import javax.sql.DataSource;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.text.Normalizer;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.regex.Pattern;
+
+/**
+ * Indeks odwrocony nazw i opisow todo w pamieci, osobny dla kazdego uzytkownika.
+ * Wyniki sortowane sa wedlug BM25 (bez normalizacji dlugosci), slowo w nazwie wazy NAME_WEIGHT razy wiecej.
+ * Idf liczony jest z todo uzytkownika, a przy wyszukiwaniu administratora - z todo wszystkich uzytkownikow,
+ * zeby wyniki roznych uzytkownikow byly porownywalne.
+ */
+@Component
+public class TodoFullTextIndex extends TodoRowIndex {
+
+    private static final Pattern NON_WORD = Pattern.compile("[^\\p{L}\\p{Nd}]+");
+    private static final Pattern MARKS = Pattern.compile("\\p{M}+");
+    private static final float NAME_WEIGHT = 3;
+    private static final float SATURATION = 1.2f;
+
+    private final Map<String, UserIndex> users = new ConcurrentHashMap<>();
+    private final Map<Long, String> owners = new ConcurrentHashMap<>();
+
+    @Autowired
+    public TodoFullTextIndex(DataSource dataSource, @Value("${todo.full-text.rebuild-threads:4}") int rebuildThreads) {
+        super(dataSource, "id, username, name, description", rebuildThreads);
+    }
+
+    @Override
+    protected void put(ResultSet row) throws SQLException {
+        Long id = row.getLong(1);
+        String username = String.valueOf(row.getString(2));
+        Map<String, Float> weights = new HashMap<>();
+        for (String token : tokens(row.getString(3))) {
+            weights.merge(token, NAME_WEIGHT, Float::sum);
+        }
+        for (String token : tokens(row.getString(4))) {
+            weights.merge(token, 1f, Float::sum);
+        }
+        String previousOwner = owners.put(id, username);
+        if (previousOwner != null && !previousOwner.equals(username)) {
+            users.get(previousOwner).remove(id);
+        }
+        users.computeIfAbsent(username, owner -> new UserIndex()).put(id, weights);
+    }
+
+    @Override
+    protected void remove(Long id) {
+        String owner = owners.remove(id);
+        if (owner != null) {
+            users.get(owner).remove(id);
+        }
+    }
+
+    /**
+     * Todo zawierajace wszystkie slowa zapytania, najlepiej dopasowane najpierw (przy rownym wyniku - rosnaco po id)
+     *
+     * @param username wlasciciel albo null dla wszystkich uzytkownikow
+     * @param limit    liczba pierwszych trafien do zwrocenia
+     */
+    public Hits search(String username, String query, int limit) {
+        List<String> terms = new ArrayList<>(new HashSet<>(tokens(query)));
+        Collector collector = new Collector(limit);
+        if (terms.isEmpty()) {
+            return collector.hits();
+        }
+        if (username != null) {
+            UserIndex index = users.get(username);
+            if (index != null) {
+                index.search(terms, null, collector);
+            }
+        } else {
+            Map<String, Integer> frequencies = new HashMap<>();
+            long documents = 0;
+            for (UserIndex index : users.values()) {
+                documents += index.documentFrequencies(terms, frequencies);
+            }
+            if (frequencies.size() < terms.size()) {
+                return collector.hits();
+            }
+            Map<String, Float> idf = new HashMap<>();
+            for (Map.Entry<String, Integer> frequency : frequencies.entrySet()) {
+                idf.put(frequency.getKey(), idf(frequency.getValue(), documents));
+            }
+            users.values().forEach(index -> index.search(terms, idf, collector));
+        }
+        return collector.hits();
+    }
+
+    /**
+     * Male litery bez znakow diakrytycznych, podzial na wszystkim, co nie jest litera ani cyfra
+     */
+    static List<String> tokens(String text) {
+        if (text == null) {
+            return Collections.emptyList();
+        }
+        String normalized = MARKS.matcher(Normalizer.normalize(text.toLowerCase(Locale.ROOT), Normalizer.Form.NFD))
+                .replaceAll("")
+                .replace('\u0142', 'l');
+        List<String> tokens = new ArrayList<>();
+        for (String token : NON_WORD.split(normalized)) {
+            if (!token.isEmpty()) {
+                tokens.add(token);
+            }
+        }
+        return tokens;
+    }
+
+    private static float idf(int documentFrequency, long documents) {
+        return (float) Math.log(1 + (documents - documentFrequency + 0.5) / (documentFrequency + 0.5));
+    }
+
+    @Getter
+    @AllArgsConstructor
+    public static class Hits {
+
+        private final List<Long> ids;
+        private final long total;
+
+    }
+
+    private static class UserIndex {
+
+        private final Map<String, Map<Long, Float>> postings = new HashMap<>();
+        private final Map<Long, Set<String>> terms = new HashMap<>();
+
+        synchronized void put(Long id, Map<String, Float> weights) {
+            remove(id);
+            weights.forEach((term, weight) -> postings.computeIfAbsent(term, t -> new HashMap<>()).put(id, weight));
+            terms.put(id, weights.keySet());
+        }
+
+        synchronized void remove(Long id) {
+            Set<String> previous = terms.remove(id);
+            if (previous == null) {
+                return;
+            }
+            for (String term : previous) {
+                Map<Long, Float> documents = postings.get(term);
+                documents.remove(id);
+                if (documents.isEmpty()) {
+                    postings.remove(term);
+                }
+            }
+        }
+
+        /**
+         * Dodaje do frequencies liczbe todo zawierajacych kazde ze slow
+         *
+         * @return liczba wszystkich todo uzytkownika
+         */
+        synchronized int documentFrequencies(List<String> queryTerms, Map<String, Integer> frequencies) {
+            for (String term : queryTerms) {
+                Map<Long, Float> documents = postings.get(term);
+                if (documents != null) {
+                    frequencies.merge(term, documents.size(), Integer::sum);
+                }
+            }
+            return terms.size();
+        }
+
+        /**
+         * Przeglada najkrotsza liste trafien i sprawdza pozostale slowa w ich mapach
+         *
+         * @param termIdf idf slow policzony dla wielu uzytkownikow albo null, zeby liczyc go z todo tego uzytkownika
+         */
+        synchronized void search(List<String> queryTerms, Map<String, Float> termIdf, Collector collector) {
+            List<String> sorted = new ArrayList<>(queryTerms.size());
+            for (String term : queryTerms) {
+                if (!postings.containsKey(term)) {
+                    return;
+                }
+                sorted.add(term);
+            }
+            sorted.sort(Comparator.comparingInt(term -> postings.get(term).size()));
+            List<Map<Long, Float>> lists = new ArrayList<>(sorted.size());
+            float[] idf = new float[sorted.size()];
+            for (int i = 0; i < sorted.size(); i++) {
+                Map<Long, Float> documents = postings.get(sorted.get(i));
+                lists.add(documents);
+                idf[i] = termIdf != null ? termIdf.get(sorted.get(i)) : idf(documents.size(), terms.size());
+            }
+            candidates:
+            for (Map.Entry<Long, Float> candidate : lists.get(0).entrySet()) {
+                float score = idf[0] * saturated(candidate.getValue());
+                for (int i = 1; i < lists.size(); i++) {
+                    Float weight = lists.get(i).get(candidate.getKey());
+                    if (weight == null) {
+                        continue candidates;
+                    }
+                    score += idf[i] * saturated(weight);
+                }
+                collector.add(candidate.getKey(), score);
+            }
+        }
+
+        private static float saturated(float weight) {
+            return weight * (SATURATION + 1) / (weight + SATURATION);
+        }
+    }
+
+    /**
+     * Najlepsze limit trafien w kopcu minimalnym i liczba wszystkich trafien
+     */
+    private static class Collector {
+
+        private static final Comparator<Hit> WORST_FIRST = Comparator.<Hit>comparingDouble(hit -> hit.score)
+                .thenComparing(Comparator.<Hit>comparingLong(hit -> hit.id).reversed());
+
+        private final int limit;
+        private final PriorityQueue<Hit> best;
+        private long total;
+
+        Collector(int limit) {
+            this.limit = limit;
+            this.best = new PriorityQueue<>(Math.max(1, limit), WORST_FIRST);
+        }
+
+        synchronized void add(long id, float score) {
+            total++;
+            if (limit == 0) {
+                return;
+            }
+            Hit hit = new Hit(id, score);
+            if (best.size() < limit) {
+                best.add(hit);
+            } else if (WORST_FIRST.compare(hit, best.peek()) > 0) {
+                best.poll();
+                best.add(hit);
+            }
+        }
+
+        Hits hits() {
+            List<Hit> sorted = new ArrayList<>(best);
+            sorted.sort(WORST_FIRST.reversed());
+            List<Long> ids = new ArrayList<>(sorted.size());
+            sorted.forEach(hit -> ids.add(hit.id));
+            return new Hits(ids, total);
+        }
+    }
+
+    @AllArgsConstructor
+    private static class Hit {
+
+        private final long id;
+        private final float score;
+
+    }
+}
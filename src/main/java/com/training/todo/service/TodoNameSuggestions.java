@@ -0,0 +1,197 @@
+package com.training.todo.service;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.actuate.endpoint.PublicMetrics;
+import org.springframework.boot.actuate.metrics.Metric;
+import org.springframework.stereotype.Component;
+
+import javax.sql.DataSource;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Podpowiedzi nazw todo: dla kazdego uzytkownika posortowana mapa roznych nazw (bez rozrozniania wielkosci liter)
+ * z liczba todo o tej nazwie i czasem jej ostatniego uzycia. Czasem jest logiczny zegar - przy budowie po starcie
+ * id todo, potem kolejne wartosci przy kazdej zmianie, wiec nazwa nadana przed chwila jest nowsza od starych.
+ * Rozmiar struktur w bajtach (szacowany) widoczny jest w /metrics - lacznie, srednio na uzytkownika i dla
+ * TOP_USERS_IN_METRICS najwiekszych, bez loginow w nazwach metryk.
+ */
+@Component
+public class TodoNameSuggestions extends TodoRowIndex implements PublicMetrics {
+
+    private static final int TOP_USERS_IN_METRICS = 10;
+
+    private final Map<String, UserNames> users = new ConcurrentHashMap<>();
+    private final Map<Long, String> owners = new ConcurrentHashMap<>();
+    private final AtomicLong clock = new AtomicLong();
+
+    @Autowired
+    public TodoNameSuggestions(DataSource dataSource,
+                               @Value("${todo.suggest.rebuild-threads:4}") int rebuildThreads) {
+        super(dataSource, "id, username, name", rebuildThreads);
+    }
+
+    @Override
+    protected void put(ResultSet row) throws SQLException {
+        Long id = row.getLong(1);
+        String username = String.valueOf(row.getString(2));
+        String name = row.getString(3);
+        long used = isRebuilding() ? id : clock.incrementAndGet();
+        clock.accumulateAndGet(used, Math::max);
+        String previousOwner = owners.put(id, username);
+        if (previousOwner != null && !previousOwner.equals(username)) {
+            users.get(previousOwner).remove(id);
+        }
+        if (name == null) {
+            users.computeIfAbsent(username, owner -> new UserNames()).remove(id);
+        } else {
+            users.computeIfAbsent(username, owner -> new UserNames()).put(id, name, used);
+        }
+    }
+
+    @Override
+    protected void remove(Long id) {
+        String owner = owners.remove(id);
+        if (owner != null) {
+            users.get(owner).remove(id);
+        }
+    }
+
+    /**
+     * Nazwy todo uzytkownika zaczynajace sie od prefiksu (bez rozrozniania wielkosci liter), najczestsze najpierw,
+     * przy rownej liczbie - ostatnio uzyte
+     */
+    public List<String> suggest(String username, String prefix, int limit) {
+        UserNames names = users.get(username);
+        if (names == null || limit <= 0) {
+            return new ArrayList<>();
+        }
+        return names.suggest(prefix == null ? "" : prefix.toLowerCase(Locale.ROOT), limit);
+    }
+
+    @Override
+    public Collection<Metric<?>> metrics() {
+        List<Long> sizes = new ArrayList<>(users.size());
+        long names = 0;
+        long bytes = 0;
+        for (UserNames userNames : users.values()) {
+            synchronized (userNames) {
+                names += userNames.byKey.size();
+                bytes += userNames.bytes;
+                sizes.add(userNames.bytes);
+            }
+        }
+        sizes.sort(Comparator.reverseOrder());
+        Collection<Metric<?>> metrics = new ArrayList<>();
+        metrics.add(new Metric<>("todo.suggest.users", sizes.size()));
+        metrics.add(new Metric<>("todo.suggest.names", names));
+        metrics.add(new Metric<>("todo.suggest.todos", owners.size()));
+        metrics.add(new Metric<>("todo.suggest.bytes", bytes + owners.size() * UserNames.OWNER_BYTES));
+        metrics.add(new Metric<>("todo.suggest.bytes.user.avg", sizes.isEmpty() ? 0 : bytes / sizes.size()));
+        for (int i = 0; i < Math.min(TOP_USERS_IN_METRICS, sizes.size()); i++) {
+            metrics.add(new Metric<>("todo.suggest.bytes.user.top" + (i + 1), sizes.get(i)));
+        }
+        return metrics;
+    }
+
+    private static class UserNames {
+
+        /**
+         * Przyblizone rozmiary obiektow w 64-bitowej JVM ze skompresowanymi wskaznikami
+         */
+        private static final long NAME_BYTES = 32 + 40;
+        private static final long TODO_BYTES = 32 + 16 + 8;
+        private static final long OWNER_BYTES = 32 + 16 + 8;
+
+        private static final Comparator<Name> WORST_FIRST = Comparator.<Name>comparingInt(name -> name.count)
+                .thenComparingLong(name -> name.used);
+
+        private final TreeMap<String, Name> byKey = new TreeMap<>();
+        private final Map<Long, Name> todos = new HashMap<>();
+        private long bytes;
+
+        synchronized void put(Long id, String text, long used) {
+            Name previous = todos.get(id);
+            if (previous != null && previous.text.equals(text)) {
+                previous.used = Math.max(previous.used, used);
+                return;
+            }
+            remove(id);
+            String key = text.toLowerCase(Locale.ROOT);
+            Name name = byKey.get(key);
+            if (name == null) {
+                name = new Name(key.equals(text) ? text : key, text);
+                byKey.put(name.key, name);
+                bytes += NAME_BYTES + stringBytes(name.text) + (name.key == name.text ? 0 : stringBytes(name.key));
+            }
+            name.count++;
+            name.used = Math.max(name.used, used);
+            todos.put(id, name);
+            bytes += TODO_BYTES;
+        }
+
+        synchronized void remove(Long id) {
+            Name name = todos.remove(id);
+            if (name == null) {
+                return;
+            }
+            bytes -= TODO_BYTES;
+            if (--name.count == 0) {
+                byKey.remove(name.key);
+                bytes -= NAME_BYTES + stringBytes(name.text) + (name.key == name.text ? 0 : stringBytes(name.key));
+            }
+        }
+
+        /**
+         * Najlepsze limit nazw z zakresu kluczy prefiksu w kopcu minimalnym
+         */
+        synchronized List<String> suggest(String prefix, int limit) {
+            PriorityQueue<Name> best = new PriorityQueue<>(limit, WORST_FIRST);
+            for (Name name : byKey.subMap(prefix, true, prefix + Character.MAX_VALUE, false).values()) {
+                if (best.size() < limit) {
+                    best.add(name);
+                } else if (WORST_FIRST.compare(name, best.peek()) > 0) {
+                    best.poll();
+                    best.add(name);
+                }
+            }
+            List<Name> sorted = new ArrayList<>(best);
+            sorted.sort(WORST_FIRST.reversed());
+            List<String> texts = new ArrayList<>(sorted.size());
+            sorted.forEach(name -> texts.add(name.text));
+            return texts;
+        }
+
+        private static long stringBytes(String value) {
+            return 24 + 16 + 2L * value.length();
+        }
+    }
+
+    /**
+     * Nazwa w postaci pierwszego todo, ktore ja nadalo; key to ta sama instancja, gdy nazwa ma tylko male litery
+     */
+    private static class Name {
+
+        private final String key;
+        private final String text;
+        private int count;
+        private long used;
+
+        Name(String key, String text) {
+            this.key = key;
+            this.text = text;
+        }
+    }
+}
@@ -0,0 +1,205 @@
+package com.training.todo.service;
+
+import com.google.common.collect.Lists;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowCallbackHandler;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import javax.annotation.PreDestroy;
+import javax.sql.DataSource;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Indeks todo w pamieci odtwarzany z tabeli TODOS: budowany rownolegle (zakresy id) po starcie aplikacji
+ * (do konca przebudowy {@link #isReady()} jest false), potem aktualizowany po zatwierdzeniu transakcji
+ * publikujacych {@link TodosModifiedEvent} - zmienione wiersze sa ponownie czytane z bazy, wiec zdarzenie niesie
+ * tylko id. Odczyt odbywa sie w osobnym watku, poza watkiem zadania: id z kolejnych zdarzen zbierane sa w jeden
+ * zbior i czytane razem, wiec indeks jest chwile opozniony wzgledem bazy - dlatego odpowiedzi z indeksu
+ * wersjonowane sa {@link #getVersion()}, a nie znacznikiem zmian w bazie. Pierwsza z czytanych kolumn to id.
+ */
+@Slf4j
+abstract class TodoRowIndex {
+
+    private static final int REFRESH_CHUNK = 500;
+    private static final long REFRESH_RETRY_MILLIS = 1000;
+
+    private final JdbcTemplate jdbcTemplate;
+    private final String selectTodos;
+    private final int rebuildThreads;
+
+    private final Set<Long> modifiedDuringRebuild = ConcurrentHashMap.newKeySet();
+    private volatile boolean rebuilding;
+    private volatile boolean ready;
+
+    private final Set<Long> pending = ConcurrentHashMap.newKeySet();
+    private final AtomicBoolean refreshScheduled = new AtomicBoolean();
+    private final ScheduledExecutorService refresher;
+
+    private final String instance = Long.toHexString(ThreadLocalRandom.current().nextLong());
+    private final AtomicLong generation = new AtomicLong();
+
+    TodoRowIndex(DataSource dataSource, String columns, int rebuildThreads) {
+        this.jdbcTemplate = new JdbcTemplate(dataSource);
+        this.jdbcTemplate.setFetchSize(1000);
+        this.selectTodos = "SELECT " + columns + " FROM todos";
+        this.rebuildThreads = rebuildThreads;
+        this.refresher = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, getClass().getSimpleName() + "-refresh");
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    /**
+     * Zapisuje w indeksie wiersz o id z pierwszej kolumny, zastepujac jego poprzednia wersje
+     */
+    protected abstract void put(ResultSet row) throws SQLException;
+
+    protected abstract void remove(Long id);
+
+    protected boolean isRebuilding() {
+        return rebuilding;
+    }
+
+    /**
+     * Czy zakonczyla sie pierwsza przebudowa - wczesniej indeks zawiera tylko czesc todo
+     */
+    boolean isReady() {
+        return ready;
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void rebuild() throws InterruptedException {
+        rebuilding = true;
+        long start = System.currentTimeMillis();
+        try {
+            Map<String, Object> range = jdbcTemplate.queryForMap(
+                    "SELECT MIN(id) AS min_id, MAX(id) AS max_id FROM todos");
+            if (range.get("min_id") != null) {
+                rebuild(((Number) range.get("min_id")).longValue(), ((Number) range.get("max_id")).longValue());
+            }
+        } finally {
+            rebuilding = false;
+        }
+        List<Long> modified = new ArrayList<>(modifiedDuringRebuild);
+        modifiedDuringRebuild.removeAll(modified);
+        refresh(modified);
+        ready = true;
+        log.info("{} built in {} ms", getClass().getSimpleName(), System.currentTimeMillis() - start);
+    }
+
+    private void rebuild(long minId, long maxId) throws InterruptedException {
+        long span = (maxId - minId) / rebuildThreads + 1;
+        ExecutorService executor = Executors.newFixedThreadPool(rebuildThreads);
+        try {
+            List<Future<?>> parts = new ArrayList<>();
+            for (long from = minId; from <= maxId; from += span) {
+                long partFrom = from;
+                long partTo = Math.min(from + span - 1, maxId);
+                parts.add(executor.submit(() -> jdbcTemplate.query(selectTodos + " WHERE id BETWEEN ? AND ?",
+                        (RowCallbackHandler) this::put, partFrom, partTo)));
+            }
+            for (Future<?> part : parts) {
+                part.get();
+            }
+        } catch (ExecutionException e) {
+            throw new IllegalStateException(getClass().getSimpleName() + " rebuild failed", e.getCause());
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    /**
+     * Po commicie (albo od razu, poza transakcja) id trafiaja do zbioru czekajacych na odczyt; watek odswiezania
+     * zaplanowany jest tylko raz, az przejmie zbior. W trakcie przebudowy id sa dodatkowo odswiezane po jej koncu,
+     * bo watek przebudowy mogl przeczytac wiersz sprzed zmiany.
+     */
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onTodosModified(TodosModifiedEvent event) {
+        if (rebuilding) {
+            modifiedDuringRebuild.addAll(event.getIds());
+        }
+        pending.addAll(event.getIds());
+        if (refreshScheduled.compareAndSet(false, true)) {
+            refresher.execute(this::refreshPending);
+        }
+    }
+
+    /**
+     * Wersja zawartosci indeksu: zmienia sie dopiero po zastosowaniu odswiezenia lub przebudowy, wiec odpowiedz
+     * zbudowana po jej odczytaniu nie jest starsza niz wersja. Czesc losowa odroznia kolejne uruchomienia.
+     */
+    String getVersion() {
+        return instance + "-" + generation.get();
+    }
+
+    /**
+     * Czeka, az zostana odczytane wszystkie id ze zdarzen przyjetych przed wywolaniem, takze po ponowieniach
+     */
+    void awaitRefresh() throws InterruptedException, ExecutionException {
+        refresher.submit(() -> { }).get();
+        while (refreshScheduled.get()) {
+            TimeUnit.MILLISECONDS.sleep(10);
+            refresher.submit(() -> { }).get();
+        }
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        refresher.shutdownNow();
+    }
+
+    /**
+     * Gdy odczyt sie nie uda, id wracaja do zbioru czekajacych i odczyt jest ponawiany po REFRESH_RETRY_MILLIS -
+     * inaczej indeks pozostalby niezgodny z baza dla tych todo az do restartu
+     */
+    private void refreshPending() {
+        refreshScheduled.set(false);
+        List<Long> ids = new ArrayList<>(pending);
+        pending.removeAll(ids);
+        try {
+            refresh(ids);
+        } catch (RuntimeException e) {
+            log.warn("{} refresh of {} todos failed, retrying in {} ms", getClass().getSimpleName(), ids.size(),
+                    REFRESH_RETRY_MILLIS, e);
+            pending.addAll(ids);
+            if (refreshScheduled.compareAndSet(false, true)) {
+                refresher.schedule(this::refreshPending, REFRESH_RETRY_MILLIS, TimeUnit.MILLISECONDS);
+            }
+        }
+    }
+
+    private void refresh(Collection<Long> ids) {
+        for (List<Long> chunk : Lists.partition(new ArrayList<>(ids), REFRESH_CHUNK)) {
+            Set<Long> missing = new HashSet<>(chunk);
+            jdbcTemplate.query(selectTodos + " WHERE id IN (" +
+                    String.join(", ", Collections.nCopies(chunk.size(), "?")) + ")", row -> {
+                missing.remove(row.getLong(1));
+                put(row);
+            }, chunk.toArray());
+            missing.forEach(this::remove);
+        }
+        generation.incrementAndGet();
+    }
+}
@@ -1,102 +1,332 @@
 package com.training.todo.service;
 
 import com.training.security.service.CurrentUserProvider;
+import com.training.todo.controller.dto.TodoStatsDto;
+import com.training.todo.controller.dto.TodoSummaryDto;
+import com.training.todo.domain.Priority;
 import com.training.todo.domain.Todo;
+import com.training.todo.persistance.KeysetCursor;
+import com.training.todo.persistance.KeysetSlice;
+import com.training.todo.persistance.TodoChangeMarker;
+import com.training.todo.persistance.TodoChangeRepository;
+import com.training.todo.persistance.TodoCounterRepository;
+import com.training.todo.persistance.TodoFilter;
 import com.training.todo.persistance.TodoJpaRepository;
+import com.training.todo.persistance.TodoState;
+import com.training.todo.persistance.TodoTrigramRepository;
+import com.training.todo.utils.ConcurrentUpdateException;
 import com.training.todo.utils.ForbiddenException;
+import com.training.todo.utils.InvalidPatchException;
+import com.training.todo.utils.PreconditionFailedException;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageImpl;
 import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Slice;
 import org.springframework.security.access.prepost.PreAuthorize;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
 
 import javax.persistence.EntityNotFoundException;
-import java.util.Optional;
-
-import static java.util.Optional.ofNullable;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Objects;
 
 @Service
 public class TodoService {
 
+    private static final int UPDATE_ATTEMPTS = 3;
+
     private TodoJpaRepository todoRepository;
 
+    private TodoCounterRepository counterRepository;
+
+    private TodoChangeRepository changeRepository;
+
+    private TodoTrigramRepository trigramRepository;
+
     private CurrentUserProvider currentUserProvider;
 
+    private ApplicationEventPublisher eventPublisher;
+
     @Autowired
-    public TodoService(TodoJpaRepository todoRepository, CurrentUserProvider currentUserProvider) {
+    public TodoService(TodoJpaRepository todoRepository, TodoCounterRepository counterRepository,
+                       TodoChangeRepository changeRepository, TodoTrigramRepository trigramRepository,
+                       CurrentUserProvider currentUserProvider, ApplicationEventPublisher eventPublisher) {
         this.todoRepository = todoRepository;
+        this.counterRepository = counterRepository;
+        this.changeRepository = changeRepository;
+        this.trigramRepository = trigramRepository;
         this.currentUserProvider = currentUserProvider;
+        this.eventPublisher = eventPublisher;
     }
 
+    /**
+     * Listy czytane sa w transakcji tylko do odczytu (flush MANUAL, sesja read-only) i zwracaja projekcje,
+     * wiec nie tworza migawek encji ani nie podlegaja dirty checkingowi. Sortowanie jak w wyszukiwaniu
+     * (TodoJpaRepositoryCustom#findSlice), takze sort=priority,desc - od najwazniejszych, po indeksie.
+     */
     @PreAuthorize("isAuthenticated()")
-    public Page<Todo> getAll(Pageable pageable){
-        if (currentUserProvider.isAdminLoggedIn()) {
-            return getAllForAdmin(pageable);
-        } else {
-            return getAllForUser(pageable);
-        }
+    @Transactional(readOnly = true)
+    public Page<TodoSummaryDto> getAll(Pageable pageable){
+        TodoFilter filter = ownTodos();
+        return new PageImpl<>(todoRepository.findSlice(filter, pageable).getContent(), pageable,
+                counterRepository.count(filter.getUsername(), null));
     }
 
-    private Page<Todo> getAllForAdmin(Pageable pageable) {
-        return todoRepository.findAll(pageable);
+    @PreAuthorize("isAuthenticated()")
+    public TodoStatsDto getStats() {
+        return counterRepository.stats(
+                currentUserProvider.isAdminLoggedIn() ? null : currentUserProvider.getCurrentUserName());
     }
 
-    private Page<Todo> getAllForUser(Pageable pageable) {
-        return todoRepository.findByUsername(
-                currentUserProvider.getCurrentUserName(), pageable);
+    /**
+     * Znacznik zmian list widocznych dla biezacego uzytkownika - jedno zapytanie po kluczu glownym
+     */
+    @PreAuthorize("isAuthenticated()")
+    public TodoChangeMarker getChangeMarker() {
+        return changeRepository.find(
+                currentUserProvider.isAdminLoggedIn() ? null : currentUserProvider.getCurrentUserName());
+    }
+
+    @PreAuthorize("isAuthenticated()")
+    @Transactional(readOnly = true)
+    public Slice<TodoSummaryDto> getSlice(Pageable pageable) {
+        return todoRepository.findSlice(ownTodos(), pageable);
     }
 
     @PreAuthorize("isAuthenticated()")
+    @Transactional(readOnly = true)
+    public KeysetSlice<TodoSummaryDto> getAll(KeysetCursor after, int size) {
+        return todoRepository.findAfter(ownTodos(), after, size);
+    }
+
+    /**
+     * Todo biezacego uzytkownika, a dla administratora wszystkie
+     */
+    private TodoFilter ownTodos() {
+        String username = currentUserProvider.isAdminLoggedIn() ? null : currentUserProvider.getCurrentUserName();
+        return TodoFilter.builder().username(username).build();
+    }
+
+    @PreAuthorize("isAuthenticated()")
+    @Transactional
     public Long create(Todo todo) {
-        todo.setUsername(currentUserProvider.getCurrentUserName());
-        return todoRepository.save(todo).getId();
+        return create(todo, currentUserProvider.getCurrentUserName());
+    }
+
+    private Long create(Todo todo, String username) {
+        todo.setUsername(username);
+        Todo saved = todoRepository.save(todo);
+        Long id = saved.getId();
+        counterRepository.added(todo);
+        trigramRepository.added(saved);
+        changeRepository.changed(username);
+        todosModified(id);
+        return id;
+    }
+
+    /**
+     * Wersja todo (ETag) bez ladowania encji; null, gdy todo nie istnieje albo nalezy do innego uzytkownika
+     */
+    @PreAuthorize("isAuthenticated()")
+    public Long getVersion(Long id) {
+        return todoRepository.findOwnedVersion(id, currentUserProvider.getCurrentUserName(),
+                currentUserProvider.isAdminLoggedIn());
     }
 
     @PreAuthorize("isAuthenticated()")
     public Todo get(Long id) {
-        Todo result = todoRepository.findOne(id);
-        if(result == null){
-            throw new EntityNotFoundException();
-        }
-        if (hasAccessTo(result)) {
+        String username = currentUserProvider.getCurrentUserName();
+        Todo result = todoRepository.findOwned(id, username, currentUserProvider.isAdminLoggedIn());
+        if (result != null) {
             return result;
         }
-        throw new ForbiddenException("User " + currentUserProvider.getCurrentUserName() +
+        if (!todoRepository.exists(id)) {
+            throw new EntityNotFoundException();
+        }
+        throw new ForbiddenException("User " + username +
                 " tried to get todo which not belong to him");
     }
 
+    /**
+     * Odczyt zapisanego stanu i UPDATE z warunkiem wlasciciela i jego wersji; liczniki zmieniane sa tylko,
+     * gdy zmienil sie priorytet albo stan. To nie jest juz jedno zapytanie - liczniki, trigramy i indeksy
+     * potrzebuja stanu sprzed zmiany. Gdy wiersz zmieni sie rownolegle miedzy odczytem a UPDATE,
+     * zmiana powtarzana jest od odczytu, najwyzej UPDATE_ATTEMPTS razy, potem 409.
+     */
     @PreAuthorize("isAuthenticated()")
+    @Transactional
     public void update(Todo todo) {
-        Optional<Todo> fromDatabase = ofNullable(todoRepository.findOne(todo.getId()));
-        if (isNotPresent(fromDatabase)) {
-            create(todo);
-            return;
+        String username = currentUserProvider.getCurrentUserName();
+        boolean admin = currentUserProvider.isAdminLoggedIn();
+        for (int attempt = 1; ; attempt++) {
+            TodoState stored = todoRepository.findOwnedState(todo.getId(), username, admin);
+            if (stored == null) {
+                break;
+            }
+            if (todoRepository.updateOwnedIfVersion(todo, stored.getVersion(), username, admin) == 1) {
+                updated(todo, stored);
+                return;
+            }
+            if (attempt == UPDATE_ATTEMPTS) {
+                throw new ConcurrentUpdateException("Todo " + todo.getId() + " was modified concurrently");
+            }
         }
-        if (hasAccessTo(fromDatabase.get())) {
-            todo.setUsername(fromDatabase.get().getUsername());
-            todoRepository.save(todo);
+        if (!todoRepository.exists(todo.getId())) {
+            create(todo, username);
             return;
         }
-        throw new ForbiddenException("User " + currentUserProvider.getCurrentUserName() +
+        throw new ForbiddenException("User " + username +
                 " tried to update todo which not belong to him");
     }
 
+    /**
+     * Warunkowa zmiana dla If-Match: UPDATE wykona sie tylko przy zgodnej wersji, bez blokowania wiersza.
+     *
+     * @return nowa wersja todo
+     */
     @PreAuthorize("isAuthenticated()")
-    public void delete(Long id) {
-        Optional<Todo> todo = ofNullable(todoRepository.findOne(id));
-        if (isNotPresent(todo)) {
+    @Transactional
+    public long update(Todo todo, long expectedVersion) {
+        String username = currentUserProvider.getCurrentUserName();
+        boolean admin = currentUserProvider.isAdminLoggedIn();
+        TodoState stored = todoRepository.findOwnedState(todo.getId(), username, admin);
+        if (stored == null && todoRepository.exists(todo.getId())) {
+            throw new ForbiddenException("User " + username +
+                    " tried to update todo which not belong to him");
+        }
+        if (stored == null || stored.getVersion() != expectedVersion
+                || todoRepository.updateOwnedIfVersion(todo, expectedVersion, username, admin) != 1) {
+            throw new PreconditionFailedException("Todo " + todo.getId() + " is not in version " + expectedVersion);
+        }
+        updated(todo, stored);
+        return expectedVersion + 1;
+    }
+
+    private void updated(Todo todo, TodoState stored) {
+        counterRepository.moved(stored, todo);
+        changeRepository.changed(stored.getUsername());
+        boolean renamed = !Objects.equals(stored.getName(), todo.getName());
+        if (renamed) {
+            trigramRepository.renamedStored(todo.getId(), todo.getName());
+        }
+        if (renamed || !Objects.equals(stored.getDescription(), todo.getDescription())) {
+            todosModified(todo.getId());
+        }
+    }
+
+    /**
+     * JSON Merge Patch: jedno UPDATE wylacznie przeslanych kolumn. Liczniki korygowane sa tylko,
+     * gdy zmienia sie priorytet albo stan ukonczenia.
+     *
+     * @param expectedVersion wersja z If-Match albo null
+     */
+    @PreAuthorize("isAuthenticated()")
+    @Transactional
+    public void patch(Long id, Map<String, Object> patch, Long expectedVersion) {
+        Map<String, Object> changes = validatedPatch(patch);
+        String username = currentUserProvider.getCurrentUserName();
+        boolean admin = currentUserProvider.isAdminLoggedIn();
+        boolean countersAffected = changes.containsKey("priority") || changes.containsKey("completed");
+        if (countersAffected) {
+            counterRepository.removedStored(id, username, admin);
+        }
+        if (todoRepository.patchOwned(id, changes, expectedVersion, username, admin) == 1) {
+            if (countersAffected) {
+                counterRepository.addedStored(id);
+            }
+            changeRepository.changedStored(id);
+            if (changes.containsKey("name")) {
+                trigramRepository.renamedStored(id, (String) changes.get("name"));
+            }
+            if (changes.containsKey("name") || changes.containsKey("description")) {
+                todosModified(id);
+            }
+            return;
+        }
+        boolean exists = todoRepository.exists(id);
+        if (expectedVersion != null && (!exists || todoRepository.findOwnedVersion(id, username, admin) != null)) {
+            throw new PreconditionFailedException("Todo " + id + " is not in version " + expectedVersion);
+        }
+        if (!exists) {
             throw new EntityNotFoundException();
         }
-        if (hasAccessTo(todo.get())) {
-            todoRepository.delete(id);
+        throw new ForbiddenException("User " + username +
+                " tried to update todo which not belong to him");
+    }
+
+    private Map<String, Object> validatedPatch(Map<String, Object> patch) {
+        if (patch.isEmpty()) {
+            throw new InvalidPatchException("Patch is empty");
+        }
+        Map<String, Object> changes = new LinkedHashMap<>();
+        patch.forEach((field, value) -> {
+            switch (field) {
+                case "name":
+                    changes.put(field, requireType(field, value, String.class, false));
+                    break;
+                case "priority":
+                    changes.put(field, priority(value));
+                    break;
+                case "description":
+                    changes.put(field, requireType(field, value, String.class, true));
+                    break;
+                case "completed":
+                    changes.put(field, requireType(field, value, Boolean.class, false));
+                    break;
+                default:
+                    throw new InvalidPatchException("Field " + field + " cannot be patched");
+            }
+        });
+        return changes;
+    }
+
+    /**
+     * Tak jak przy odczycie JSON todo (Priority.of) - napis albo liczba, nieznana wartosc to brak priorytetu
+     */
+    private static Priority priority(Object value) {
+        if (value != null && !(value instanceof String) && !(value instanceof Number)) {
+            throw new InvalidPatchException("Field priority must be null, string or number");
+        }
+        return value == null ? null : Priority.of(value.toString());
+    }
+
+    private static Object requireType(String field, Object value, Class<?> type, boolean nullable) {
+        if (value == null ? !nullable : !type.isInstance(value)) {
+            throw new InvalidPatchException("Field " + field + " must be " +
+                    (nullable ? "null or " : "") + type.getSimpleName().toLowerCase());
+        }
+        return value;
+    }
+
+    /**
+     * DELETE z warunkiem wlasciciela; liczniki i znacznik zmian korygowane sa przed nim tym samym warunkiem,
+     * a trigramy po nim - dodatkowe zapytania, ale bez odczytu encji.
+     */
+    @PreAuthorize("isAuthenticated()")
+    @Transactional
+    public void delete(Long id) {
+        String username = currentUserProvider.getCurrentUserName();
+        boolean admin = currentUserProvider.isAdminLoggedIn();
+        counterRepository.removedStored(id, username, admin);
+        changeRepository.changedStored(id);
+        if (todoRepository.deleteOwned(id, username, admin) == 1) {
+            trigramRepository.removedDeleted(Collections.singletonList(id));
+            todosModified(id);
             return;
         }
-        throw new ForbiddenException("User " + currentUserProvider.getCurrentUserName() +
+        if (!todoRepository.exists(id)) {
+            throw new EntityNotFoundException();
+        }
+        throw new ForbiddenException("User " + username +
                 " tried to delete todo which not belong to him");
     }
 
-    private boolean isNotPresent(Optional optional) {
-        return !optional.isPresent();
+    private void todosModified(Long id) {
+        eventPublisher.publishEvent(new TodosModifiedEvent(Collections.singletonList(id)));
     }
 
     boolean hasAccessTo(Todo todo) {
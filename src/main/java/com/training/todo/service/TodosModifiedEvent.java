@@ -0,0 +1,19 @@
+package com.training.todo.service;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.ToString;
+
+import java.util.Collection;
+
+/**
+ * Publikowany w transakcji zakladajacej, zmieniajacej albo usuwajacej todo o podanych identyfikatorach
+ */
+@Getter
+@AllArgsConstructor
+@ToString
+public class TodosModifiedEvent {
+
+    private Collection<Long> ids;
+
+}
@@ -0,0 +1,164 @@
+package com.training.todo.utils;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import com.training.utils.JsonRecordReader.Record;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.Reader;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+
+/**
+ * Czyta CSV (RFC 4180, pierwszy wiersz to nazwy pol) po jednym rekordzie. Puste pole bez cudzyslowow to null,
+ * pola mapowane sa na typ przez Jacksona, wiec obowiazuja te same nazwy i konwersje co w JSON.
+ * Tak jak w {@link JsonRecordReader} blad jednego rekordu trafia do {@link Record#getError()}.
+ */
+public class CsvRecordReader<T> implements Iterator<Record<T>> {
+
+    public static final String CSV_VALUE = "text/csv";
+
+    private static final int NONE = -2;
+
+    private final ObjectMapper mapper;
+    private final Class<T> type;
+    private final Reader in;
+
+    private List<String> columns;
+    private Record<T> next;
+    private long number;
+    private int lookahead = NONE;
+
+    private CsvRecordReader(ObjectMapper mapper, Class<T> type, Reader in) {
+        this.mapper = mapper;
+        this.type = type;
+        this.in = in;
+    }
+
+    public static <T> CsvRecordReader<T> csv(ObjectMapper mapper, InputStream in, Class<T> type) throws IOException {
+        CsvRecordReader<T> reader = new CsvRecordReader<>(mapper, type,
+                new BufferedReader(new InputStreamReader(in, StandardCharsets.UTF_8)));
+        reader.columns = reader.readFields();
+        if (reader.columns == null || reader.columns.contains(null)) {
+            throw new IllegalArgumentException("Expected CSV header line with field names");
+        }
+        return reader;
+    }
+
+    @Override
+    public boolean hasNext() {
+        if (next == null) {
+            try {
+                next = readRecord();
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        }
+        return next != null;
+    }
+
+    @Override
+    public Record<T> next() {
+        if (!hasNext()) {
+            throw new NoSuchElementException();
+        }
+        Record<T> result = next;
+        next = null;
+        return result;
+    }
+
+    private Record<T> readRecord() throws IOException {
+        List<String> fields;
+        try {
+            fields = readFields();
+        } catch (IllegalArgumentException e) {
+            return new Record<>(++number, null, e.getMessage());
+        }
+        if (fields == null) {
+            return null;
+        }
+        number++;
+        if (fields.size() != columns.size()) {
+            return new Record<>(number, null, "Expected " + columns.size() + " fields, got " + fields.size());
+        }
+        ObjectNode node = mapper.createObjectNode();
+        for (int i = 0; i < fields.size(); i++) {
+            if (fields.get(i) != null) {
+                node.put(columns.get(i), fields.get(i));
+            }
+        }
+        try {
+            return new Record<>(number, mapper.treeToValue(node, type), null);
+        } catch (JsonProcessingException e) {
+            return new Record<>(number, null, e.getOriginalMessage());
+        }
+    }
+
+    /**
+     * Pola jednego rekordu albo null na koncu strumienia; puste linie sa pomijane
+     */
+    private List<String> readFields() throws IOException {
+        List<String> fields = new ArrayList<>();
+        StringBuilder field = new StringBuilder();
+        boolean quoted = false;
+        boolean inQuotes = false;
+        int c;
+        while ((c = read()) != -1) {
+            if (inQuotes) {
+                if (c != '"') {
+                    field.append((char) c);
+                } else if (peek() == '"') {
+                    field.append((char) read());
+                } else {
+                    inQuotes = false;
+                }
+            } else if (c == '"' && field.length() == 0 && !quoted) {
+                inQuotes = true;
+                quoted = true;
+            } else if (c == ',') {
+                fields.add(quoted || field.length() > 0 ? field.toString() : null);
+                field.setLength(0);
+                quoted = false;
+            } else if (c == '\n') {
+                if (fields.isEmpty() && field.length() == 0 && !quoted) {
+                    continue;
+                }
+                break;
+            } else if (c != '\r') {
+                field.append((char) c);
+            }
+        }
+        if (inQuotes) {
+            throw new IllegalArgumentException("Unterminated quoted field");
+        }
+        if (c == -1 && fields.isEmpty() && field.length() == 0 && !quoted) {
+            return null;
+        }
+        fields.add(quoted || field.length() > 0 ? field.toString() : null);
+        return fields;
+    }
+
+    private int read() throws IOException {
+        if (lookahead != NONE) {
+            int c = lookahead;
+            lookahead = NONE;
+            return c;
+        }
+        return in.read();
+    }
+
+    private int peek() throws IOException {
+        if (lookahead == NONE) {
+            lookahead = in.read();
+        }
+        return lookahead;
+    }
+}
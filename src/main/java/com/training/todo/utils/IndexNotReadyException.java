@@ -0,0 +1,12 @@
+package com.training.todo.utils;
+
+import org.springframework.http.HttpStatus;
+import org.springframework.web.bind.annotation.ResponseStatus;
+
+@ResponseStatus(HttpStatus.SERVICE_UNAVAILABLE)
+public class IndexNotReadyException extends RuntimeException {
+
+    public IndexNotReadyException(String message) {
+        super(message);
+    }
+}
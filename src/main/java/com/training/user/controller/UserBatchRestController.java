@@ -0,0 +1,47 @@
+package com.training.user.controller;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.training.user.controller.dto.UserBatchResultDto;
+import com.training.user.domain.User;
+import com.training.user.service.UserBatchService;
+import com.training.utils.JsonRecordReader;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.web.bind.annotation.ExceptionHandler;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.ResponseStatus;
+import org.springframework.web.bind.annotation.RestController;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.List;
+
+@RestController
+@RequestMapping("/users/batch")
+public class UserBatchRestController {
+
+    private UserBatchService service;
+    private ObjectMapper objectMapper;
+
+    public UserBatchRestController(UserBatchService service, ObjectMapper objectMapper) {
+        this.service = service;
+        this.objectMapper = objectMapper;
+    }
+
+    @PostMapping(consumes = MediaType.APPLICATION_JSON_VALUE)
+    public List<UserBatchResultDto> createFromJsonArray(InputStream body) throws IOException {
+        return service.create(JsonRecordReader.jsonArray(objectMapper, body, User.class));
+    }
+
+    @PostMapping(consumes = JsonRecordReader.NDJSON_VALUE)
+    public List<UserBatchResultDto> createFromNdjson(InputStream body) {
+        return service.create(JsonRecordReader.ndjson(objectMapper, body, User.class));
+    }
+
+    @ExceptionHandler(IllegalArgumentException.class)
+    @ResponseStatus(HttpStatus.BAD_REQUEST)
+    public String badRequestHandler(IllegalArgumentException e) {
+        return e.getMessage();
+    }
+}
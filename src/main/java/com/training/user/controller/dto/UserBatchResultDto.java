@@ -0,0 +1,21 @@
+package com.training.user.controller.dto;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+@AllArgsConstructor
+@Getter
+@JsonInclude(JsonInclude.Include.NON_NULL)
+public class UserBatchResultDto {
+
+    public enum Status {
+        CREATED, ALREADY_EXISTS, DUPLICATE, INVALID, FAILED
+    }
+
+    private long row;
+    private String login;
+    private Status status;
+    private String message;
+
+}
@@ -8,20 +8,28 @@ import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
 import javax.transaction.Transactional;
+import java.util.Collection;
+import java.util.Set;
 
 @Repository
 public interface UserRepository extends JpaRepository<User, String> {
 
+    // Hibernate usuwa przy zapytaniach UPDATE caly region User z cache drugiego poziomu;
+    // clearAutomatically czysci tez kontekst persystencji, zeby findOne nie zwrocil starej encji
+
     @Transactional
-    @Modifying
+    @Modifying(clearAutomatically = true)
     @Query("Update User u SET u.passwordHash=:passwordHash WHERE u.login=:login")
     void updatePassword(@Param("login") String login,
                         @Param("passwordHash") String passwordHash);
 
     @Transactional
-    @Modifying
+    @Modifying(clearAutomatically = true)
     @Query("Update User u SET u.role=:role WHERE u.login=:login")
     void updateRole(@Param("login") String login,
                     @Param("role") User.Role role);
 
+    @Query("SELECT u.login FROM User u WHERE u.login IN :logins")
+    Set<String> findExistingLogins(@Param("logins") Collection<String> logins);
+
 }
@@ -0,0 +1,212 @@
+package com.training.user.service;
+
+import com.training.user.controller.dto.UserBatchResultDto;
+import com.training.user.controller.dto.UserBatchResultDto.Status;
+import com.training.user.domain.User;
+import com.training.user.persistance.UserRepository;
+import com.training.utils.JsonRecordReader.Record;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataAccessException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.security.access.prepost.PreAuthorize;
+import org.springframework.security.crypto.password.PasswordEncoder;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import javax.annotation.PreDestroy;
+import javax.validation.ConstraintViolation;
+import javax.validation.Validator;
+import java.sql.BatchUpdateException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.stream.Collectors;
+
+/**
+ * Zakladanie wielu uzytkownikow naraz: walidacja i sprawdzenie istniejacych loginow paczkami,
+ * rownolegle haszowanie hasel i wstawianie batchami JDBC, kazda paczka we wlasnej transakcji.
+ */
+@Service
+@Slf4j
+public class UserBatchService {
+
+    private static final String INSERT_USER = "INSERT INTO users (login, password_hash, role) VALUES (?, ?, ?)";
+
+    private final UserRepository userRepository;
+    private final PasswordEncoder passwordEncoder;
+    private final JdbcTemplate jdbcTemplate;
+    private final TransactionTemplate transactionTemplate;
+    private final Validator validator;
+    private final int chunkSize;
+    private final ForkJoinPool hashingPool = new ForkJoinPool(Runtime.getRuntime().availableProcessors());
+
+    @Autowired
+    public UserBatchService(UserRepository userRepository, PasswordEncoder passwordEncoder, JdbcTemplate jdbcTemplate,
+                            PlatformTransactionManager transactionManager, Validator validator,
+                            @Value("${user.batch.chunk-size:500}") int chunkSize) {
+        this.userRepository = userRepository;
+        this.passwordEncoder = passwordEncoder;
+        this.jdbcTemplate = jdbcTemplate;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.validator = validator;
+        this.chunkSize = chunkSize;
+    }
+
+    @PreAuthorize("hasRole('ADMIN')")
+    public List<UserBatchResultDto> create(Iterator<Record<User>> records) {
+        List<UserBatchResultDto> results = new ArrayList<>();
+        Set<String> seenLogins = new HashSet<>();
+        List<Record<User>> chunk = new ArrayList<>(chunkSize);
+        while (records.hasNext()) {
+            chunk.add(records.next());
+            if (chunk.size() == chunkSize) {
+                results.addAll(createChunk(chunk, seenLogins));
+                chunk.clear();
+            }
+        }
+        if (!chunk.isEmpty()) {
+            results.addAll(createChunk(chunk, seenLogins));
+        }
+        return results;
+    }
+
+    private List<UserBatchResultDto> createChunk(List<Record<User>> chunk, Set<String> seenLogins) {
+        List<UserBatchResultDto> results = new ArrayList<>(chunk.size());
+        List<Record<User>> candidates = new ArrayList<>(chunk.size());
+        for (Record<User> record : chunk) {
+            String error = validationError(record);
+            if (error != null) {
+                results.add(result(record, Status.INVALID, error));
+            } else if (!seenLogins.add(record.getValue().getLogin())) {
+                results.add(result(record, Status.DUPLICATE, null));
+            } else {
+                candidates.add(record);
+            }
+        }
+        if (candidates.isEmpty()) {
+            return results;
+        }
+        Set<String> existing = userRepository.findExistingLogins(candidates.stream()
+                .map(record -> record.getValue().getLogin())
+                .collect(Collectors.toList()));
+        List<Record<User>> toInsert = new ArrayList<>(candidates.size());
+        for (Record<User> record : candidates) {
+            if (existing.contains(record.getValue().getLogin())) {
+                results.add(result(record, Status.ALREADY_EXISTS, null));
+            } else {
+                toInsert.add(record);
+            }
+        }
+        if (!toInsert.isEmpty()) {
+            for (UserBatchResultDto result : insert(toInsert)) {
+                if (result.getStatus() == Status.FAILED) {
+                    // login nie zostal zalozony - kolejny rekord z tym loginem nie jest duplikatem
+                    seenLogins.remove(result.getLogin());
+                }
+                results.add(result);
+            }
+        }
+        results.sort(Comparator.comparingLong(UserBatchResultDto::getRow));
+        return results;
+    }
+
+    private String validationError(Record<User> record) {
+        if (!record.isValid()) {
+            return record.getError();
+        }
+        Set<ConstraintViolation<User>> violations = validator.validate(record.getValue());
+        if (violations.isEmpty()) {
+            return null;
+        }
+        return violations.stream()
+                .map(violation -> violation.getPropertyPath() + " " + violation.getMessage())
+                .collect(Collectors.joining(", "));
+    }
+
+    /**
+     * Wstawia paczke jednym batchem. Gdy batch sie wywroci, a sterownik zdradza, na ktorym wierszu
+     * (BatchUpdateException), tylko ten rekord dostaje FAILED, a pozostale sa wstawiane ponownie.
+     */
+    private List<UserBatchResultDto> insert(List<Record<User>> records) {
+        List<Record<User>> pending = new ArrayList<>(records);
+        List<Object[]> rows = new ArrayList<>(hashPasswords(records));
+        List<UserBatchResultDto> results = new ArrayList<>(records.size());
+        while (!pending.isEmpty()) {
+            try {
+                transactionTemplate.execute(status -> jdbcTemplate.batchUpdate(INSERT_USER, rows));
+                pending.forEach(record -> results.add(result(record, Status.CREATED, null)));
+                return results;
+            } catch (DataAccessException e) {
+                String message = e.getMostSpecificCause().getMessage();
+                int failed = failedRow(e, pending.size());
+                if (failed < 0) {
+                    log.warn("Could not insert users batch", e);
+                    pending.forEach(record -> results.add(result(record, Status.FAILED, message)));
+                    return results;
+                }
+                log.warn("Could not insert user {}: {}", pending.get(failed).getValue().getLogin(), message);
+                results.add(result(pending.remove(failed), Status.FAILED, message));
+                rows.remove(failed);
+            }
+        }
+        return results;
+    }
+
+    /**
+     * Indeks wiersza, na ktorym wywrocil sie batch, albo -1 gdy sterownik go nie podaje
+     */
+    private static int failedRow(DataAccessException e, int size) {
+        for (Throwable cause = e; cause != null; cause = cause.getCause()) {
+            if (cause instanceof BatchUpdateException) {
+                int[] counts = ((BatchUpdateException) cause).getUpdateCounts();
+                if (counts == null) {
+                    return -1;
+                }
+                for (int i = 0; i < counts.length; i++) {
+                    if (counts[i] == Statement.EXECUTE_FAILED) {
+                        return i;
+                    }
+                }
+                return counts.length < size ? counts.length : -1;
+            }
+        }
+        return -1;
+    }
+
+    private List<Object[]> hashPasswords(List<Record<User>> records) {
+        try {
+            return hashingPool.submit(() -> records.parallelStream()
+                    .map(Record::getValue)
+                    .map(user -> new Object[]{
+                            user.getLogin(),
+                            passwordEncoder.encode(user.getPasswordHash()),
+                            user.getRole().ordinal()})
+                    .collect(Collectors.toList()))
+                    .get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Password hashing interrupted", e);
+        } catch (ExecutionException e) {
+            throw new IllegalStateException("Password hashing failed", e.getCause());
+        }
+    }
+
+    private UserBatchResultDto result(Record<User> record, Status status, String message) {
+        String login = record.getValue() != null ? record.getValue().getLogin() : null;
+        return new UserBatchResultDto(record.getNumber(), login, status, message);
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        hashingPool.shutdown();
+    }
+}
@@ -0,0 +1,17 @@
+package com.training.user.service;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.ToString;
+
+/**
+ * Publikowany po kazdej zmianie hasla, roli lub usunieciu uzytkownika
+ */
+@Getter
+@AllArgsConstructor
+@ToString
+public class UserModifiedEvent {
+
+    private String login;
+
+}
@@ -7,6 +7,7 @@ import com.training.user.controller.dto.UserDto;
 import com.training.user.domain.User;
 import com.training.user.persistance.UserRepository;
 import org.apache.commons.text.RandomStringGenerator;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.dao.EmptyResultDataAccessException;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
@@ -26,11 +27,14 @@ public class UserService {
     private PasswordEncoder passwordEncoder;
     private CurrentUserProvider currentUserProvider;
     private User2UserDtoConverter converter;
+    private ApplicationEventPublisher eventPublisher;
 
-    public UserService(UserRepository userRepository, PasswordEncoder passwordEncoder, CurrentUserProvider currentUserProvider) {
+    public UserService(UserRepository userRepository, PasswordEncoder passwordEncoder, CurrentUserProvider currentUserProvider,
+                       ApplicationEventPublisher eventPublisher) {
         this.userRepository = userRepository;
         this.passwordEncoder = passwordEncoder;
         this.currentUserProvider = currentUserProvider;
+        this.eventPublisher = eventPublisher;
         this.converter = new User2UserDtoConverter();
     }
 
@@ -63,6 +67,7 @@ public class UserService {
     public void delete(String login) {
         isRemovable(login);
         tryToDelete(login);
+        userModified(login);
     }
 
     private void isRemovable(String login) {
@@ -93,6 +98,7 @@ public class UserService {
         String password = generatePassword();
         String passwordHash = passwordEncoder.encode(password);
         userRepository.updatePassword(login, passwordHash);
+        userModified(login);
         return password;
     }
 
@@ -118,6 +124,7 @@ public class UserService {
         checkExist(login);
         checkCanUpdateRole(login);
         userRepository.updateRole(login, role);
+        userModified(login);
     }
 
     private void checkCanUpdateRole(String login) {
@@ -136,8 +143,13 @@ public class UserService {
         if (isLoggedIn(login)) {
             userRepository.updatePassword(login,
                     passwordEncoder.encode(password));
+            userModified(login);
         } else {
             throw new ForbiddenException("Could not change other user password");
         }
     }
+
+    private void userModified(String login) {
+        eventPublisher.publishEvent(new UserModifiedEvent(login));
+    }
 }
@@ -0,0 +1,144 @@
+package com.training.utils;
+
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.core.JsonToken;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+
+/**
+ * Czyta strumien rekordow (tablica JSON albo NDJSON) po jednym elemencie, bez wczytywania calego ciala zadania.
+ * Blad mapowania jednego rekordu nie przerywa czytania kolejnych - trafia do {@link Record#getError()}.
+ * Blad skladni tablicy JSON tez trafia do rekordu, ale konczy czytanie - dalszej czesci nie da sie odnalezc.
+ */
+public class JsonRecordReader<T> implements Iterator<JsonRecordReader.Record<T>> {
+
+    public static final String NDJSON_VALUE = "application/x-ndjson";
+
+    private final ObjectMapper mapper;
+    private final Class<T> type;
+    private final BufferedReader lines;
+    private final JsonParser parser;
+
+    private Record<T> next;
+    private long number;
+    private boolean malformed;
+
+    private JsonRecordReader(ObjectMapper mapper, Class<T> type, BufferedReader lines, JsonParser parser) {
+        this.mapper = mapper;
+        this.type = type;
+        this.lines = lines;
+        this.parser = parser;
+    }
+
+    public static <T> JsonRecordReader<T> ndjson(ObjectMapper mapper, InputStream in, Class<T> type) {
+        return new JsonRecordReader<>(mapper, type,
+                new BufferedReader(new InputStreamReader(in, StandardCharsets.UTF_8)), null);
+    }
+
+    public static <T> JsonRecordReader<T> jsonArray(ObjectMapper mapper, InputStream in, Class<T> type) throws IOException {
+        JsonParser parser = mapper.getFactory().createParser(in);
+        JsonToken token;
+        try {
+            token = parser.nextToken();
+        } catch (JsonProcessingException e) {
+            token = null;
+        }
+        if (token != JsonToken.START_ARRAY) {
+            throw new IllegalArgumentException("Expected JSON array of records");
+        }
+        return new JsonRecordReader<>(mapper, type, null, parser);
+    }
+
+    @Override
+    public boolean hasNext() {
+        if (next == null) {
+            try {
+                next = lines != null ? readLine() : readElement();
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        }
+        return next != null;
+    }
+
+    @Override
+    public Record<T> next() {
+        if (!hasNext()) {
+            throw new NoSuchElementException();
+        }
+        Record<T> result = next;
+        next = null;
+        return result;
+    }
+
+    private Record<T> readLine() throws IOException {
+        String line;
+        do {
+            line = lines.readLine();
+            if (line == null) {
+                return null;
+            }
+            number++;
+        } while (line.trim().isEmpty());
+        try {
+            return new Record<>(number, mapper.readValue(line, type), null);
+        } catch (JsonProcessingException e) {
+            return new Record<>(number, null, e.getOriginalMessage());
+        }
+    }
+
+    private Record<T> readElement() throws IOException {
+        if (malformed) {
+            return null;
+        }
+        JsonNode node;
+        try {
+            JsonToken token = parser.nextToken();
+            if (token == JsonToken.END_ARRAY) {
+                return null;
+            }
+            if (token == null) {
+                return malformed("Unexpected end of JSON array");
+            }
+            node = mapper.readTree(parser);
+        } catch (JsonProcessingException e) {
+            return malformed(e.getOriginalMessage());
+        }
+        number++;
+        try {
+            return new Record<>(number, mapper.treeToValue(node, type), null);
+        } catch (JsonProcessingException e) {
+            return new Record<>(number, null, e.getOriginalMessage());
+        }
+    }
+
+    private Record<T> malformed(String error) {
+        malformed = true;
+        return new Record<>(++number, null, error);
+    }
+
+    @Getter
+    @AllArgsConstructor
+    public static class Record<T> {
+
+        private final long number;
+        private final T value;
+        private final String error;
+
+        public boolean isValid() {
+            return error == null;
+        }
+    }
+}
@@ -0,0 +1,30 @@
+package db.migration;
+
+import org.flywaydb.core.api.migration.jdbc.JdbcMigration;
+
+import java.sql.Connection;
+import java.sql.ResultSet;
+import java.sql.Statement;
+
+/**
+ * Identyfikatory todo przydzielane blokami po 50 (optymalizator pooled-lo Hibernate i TodoBatchService).
+ * Sekwencja zaczyna sie za najwiekszym istniejacym id - wczesniejsze todo dostawaly id z kolumny IDENTITY,
+ * a pierwszy blok nie moze sie z nimi pokryc. Migracja w Javie, bo HSQLDB przyjmuje w START WITH tylko stala.
+ */
+public class V4__todo_id_sequence implements JdbcMigration {
+
+    private static final int ALLOCATION_SIZE = 50;
+
+    @Override
+    public void migrate(Connection connection) throws Exception {
+        try (Statement statement = connection.createStatement()) {
+            long start;
+            try (ResultSet maxId = statement.executeQuery("SELECT COALESCE(MAX(id), 0) + 1 FROM todos")) {
+                maxId.next();
+                start = maxId.getLong(1);
+            }
+            statement.execute("CREATE SEQUENCE todo_seq AS BIGINT START WITH " + start +
+                    " INCREMENT BY " + ALLOCATION_SIZE);
+        }
+    }
+}
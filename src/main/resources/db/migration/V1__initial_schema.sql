@@ -0,0 +1,17 @@
+-- Schemat odpowiadajacy dotychczasowemu mapowaniu encji User i Todo (wczesniej generowany przez Hibernate)
+
+CREATE TABLE users (
+    login         VARCHAR(255) NOT NULL PRIMARY KEY,
+    password_hash VARCHAR(255) NOT NULL,
+    role          INTEGER      NOT NULL
+);
+
+CREATE TABLE todos (
+    id          BIGINT GENERATED BY DEFAULT AS IDENTITY (START WITH 1) PRIMARY KEY,
+    name        VARCHAR(255) NOT NULL,
+    priority    VARCHAR(255),
+    description VARCHAR(255),
+    completed   BOOLEAN      NOT NULL,
+    username    VARCHAR(255),
+    CONSTRAINT fk_todos_users FOREIGN KEY (username) REFERENCES users (login)
+);
@@ -0,0 +1,16 @@
+-- Indeksy pod sciezki dostepu TodoService i SearchTodoService
+
+-- findByUsername (sortowanie/stronicowanie po id)
+CREATE INDEX idx_todos_username_id ON todos (username, id);
+
+-- findByNameAndUsername, findByNameAndPriorityAndUsername
+CREATE INDEX idx_todos_username_name ON todos (username, name, priority);
+
+-- findByPriorityAndUsername
+CREATE INDEX idx_todos_username_priority ON todos (username, priority);
+
+-- administrator: findByName, findByNameAndPriority
+CREATE INDEX idx_todos_name_priority ON todos (name, priority);
+
+-- administrator: findByPriority
+CREATE INDEX idx_todos_priority ON todos (priority);
@@ -0,0 +1,16 @@
+-- Liczniki todo per uzytkownik, priorytet i stan ukonczenia, utrzymywane przez TodoService w tej samej transakcji
+-- Brak priorytetu zapisywany jest jako pusty napis, bo kolumna wchodzi do klucza glownego
+
+CREATE TABLE todo_counters (
+    username   VARCHAR(255) NOT NULL,
+    priority   VARCHAR(255) NOT NULL,
+    completed  BOOLEAN      NOT NULL,
+    todo_count BIGINT       NOT NULL,
+    PRIMARY KEY (username, priority, completed)
+);
+
+INSERT INTO todo_counters (username, priority, completed, todo_count)
+    SELECT username, COALESCE(priority, ''), completed, COUNT(*)
+    FROM todos
+    WHERE username IS NOT NULL
+    GROUP BY username, COALESCE(priority, ''), completed;
@@ -0,0 +1,3 @@
+-- Wersja wiersza dla optymistycznej kontroli wspolbieznosci (ETag / If-Match)
+
+ALTER TABLE todos ADD COLUMN version BIGINT DEFAULT 0 NOT NULL;
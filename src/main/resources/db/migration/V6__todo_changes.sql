@@ -0,0 +1,14 @@
+-- Znacznik ostatniej zmiany todo per uzytkownik (wersja i czas) dla ETag / Last-Modified list todo.
+-- Utrzymywany przez zapisy TodoService, TodoBatchService i TodoBulkService w tej samej transakcji.
+
+CREATE TABLE todo_changes (
+    username       VARCHAR(255) NOT NULL PRIMARY KEY,
+    change_version BIGINT       NOT NULL,
+    modified_at    TIMESTAMP    NOT NULL
+);
+
+INSERT INTO todo_changes (username, change_version, modified_at)
+    SELECT username, 1, CURRENT_TIMESTAMP
+    FROM todos
+    WHERE username IS NOT NULL
+    GROUP BY username;
@@ -0,0 +1,20 @@
+-- Trigramy nazw todo (male litery) dla wyszukiwania fragmentu nazwy bez przegladania calej tabeli TODOS.
+-- Utrzymywane przez zapisy TodoService, TodoBatchService i TodoBulkService w tej samej transakcji.
+
+CREATE TABLE todo_name_trigrams (
+    todo_id  BIGINT       NOT NULL,
+    trigram  VARCHAR(3)   NOT NULL,
+    username VARCHAR(255),
+    PRIMARY KEY (todo_id, trigram)
+);
+
+-- wyszukiwanie uzytkownika
+CREATE INDEX idx_todo_name_trigrams_username ON todo_name_trigrams (username, trigram, todo_id);
+
+-- wyszukiwanie administratora
+CREATE INDEX idx_todo_name_trigrams_trigram ON todo_name_trigrams (trigram, todo_id);
+
+INSERT INTO todo_name_trigrams (todo_id, trigram, username)
+    SELECT DISTINCT t.id, SUBSTRING(LOWER(t.name) FROM n.i FOR 3), t.username
+    FROM todos t, UNNEST(SEQUENCE_ARRAY(1, 253, 1)) AS n(i)
+    WHERE n.i <= CHAR_LENGTH(t.name) - 2;
@@ -0,0 +1,48 @@
+-- Priorytet jako SMALLINT rowny Priority.ordinal() zamiast dowolnego napisu.
+-- Nowa kolumna PRIORITY_LEVEL wypelniana jest z dawnych wartosci (te same aliasy co Priority.of, nieznane
+-- napisy - bez priorytetu), po czym stara kolumna PRIORITY jest usuwana. Migracja jest jednokierunkowa:
+-- liczniki dostaja klucz SMALLINT, ktorego poprzednia wersja aplikacji nie potrafi zapisac.
+
+ALTER TABLE todos ADD COLUMN priority_level SMALLINT;
+
+UPDATE todos SET priority_level = CASE
+        WHEN LOWER(TRIM(priority)) IN ('low', 'niski', 'minor', '0') THEN 0
+        WHEN LOWER(TRIM(priority)) IN ('medium', 'sredni', 'średni', 'normalny', 'normal', '1') THEN 1
+        WHEN LOWER(TRIM(priority)) IN ('high', 'wysoki', 'wazny', 'ważny', 'pilny', 'important', 'urgent', '2') THEN 2
+    END
+WHERE priority IS NOT NULL;
+
+-- indeksy z V2 przeniesione na nowa kolumne
+DROP INDEX idx_todos_username_name;
+DROP INDEX idx_todos_username_priority;
+DROP INDEX idx_todos_name_priority;
+DROP INDEX idx_todos_priority;
+
+ALTER TABLE todos DROP COLUMN priority;
+
+CREATE INDEX idx_todos_username_name ON todos (username, name, priority_level);
+
+-- filtr po priorytecie oraz sortowanie od najwazniejszych (priority DESC, id) bez sortowania wynikow
+CREATE INDEX idx_todos_username_priority ON todos (username, priority_level DESC, id);
+
+CREATE INDEX idx_todos_name_priority ON todos (name, priority_level);
+
+-- administrator: jak wyzej, dla wszystkich uzytkownikow
+CREATE INDEX idx_todos_priority ON todos (priority_level DESC, id);
+
+-- liczniki kluczowane poziomem priorytetu; brak priorytetu zapisywany jest jako -1
+DROP TABLE todo_counters;
+
+CREATE TABLE todo_counters (
+    username   VARCHAR(255) NOT NULL,
+    priority   SMALLINT     NOT NULL,
+    completed  BOOLEAN      NOT NULL,
+    todo_count BIGINT       NOT NULL,
+    PRIMARY KEY (username, priority, completed)
+);
+
+INSERT INTO todo_counters (username, priority, completed, todo_count)
+    SELECT username, COALESCE(priority_level, -1), completed, COUNT(*)
+    FROM todos
+    WHERE username IS NOT NULL
+    GROUP BY username, COALESCE(priority_level, -1), completed;
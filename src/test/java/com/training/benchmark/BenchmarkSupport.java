@@ -0,0 +1,60 @@
+package com.training.benchmark;
+
+import java.lang.management.ManagementFactory;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Pomocnicze metody dla benchmarkow uruchamianych profilem Mavena "benchmark" (mvn test -Pbenchmark).
+ */
+final class BenchmarkSupport {
+
+    private BenchmarkSupport() {
+    }
+
+    /**
+     * Liczby wierszy z wlasciwosci systemowej (np. -Dbenchmark.rows=10000,100000), albo wartosci domyslne
+     */
+    static List<Integer> rowCounts(String defaults) {
+        List<Integer> counts = new ArrayList<>();
+        for (String count : System.getProperty("benchmark.rows", defaults).split(",")) {
+            counts.add(Integer.valueOf(count.trim()));
+        }
+        return counts;
+    }
+
+    static int iterations(int defaultIterations) {
+        return Integer.getInteger("benchmark.iterations", defaultIterations);
+    }
+
+    /**
+     * Mediana czasu jednego wywolania w mikrosekundach, po rozgrzewce rownej liczbie pomiarow
+     */
+    static double medianMicros(int iterations, Runnable operation) {
+        for (int i = 0; i < iterations; i++) {
+            operation.run();
+        }
+        long[] samples = new long[iterations];
+        for (int i = 0; i < iterations; i++) {
+            long start = System.nanoTime();
+            operation.run();
+            samples[i] = System.nanoTime() - start;
+        }
+        Arrays.sort(samples);
+        return samples[iterations / 2] / (double) TimeUnit.MICROSECONDS.toNanos(1);
+    }
+
+    /**
+     * Bajty zaalokowane przez biezacy watek w jednym wywolaniu, po jednym wywolaniu rozgrzewkowym
+     */
+    static long allocatedBytes(Runnable operation) {
+        com.sun.management.ThreadMXBean threads = (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+        long threadId = Thread.currentThread().getId();
+        operation.run();
+        long before = threads.getThreadAllocatedBytes(threadId);
+        operation.run();
+        return threads.getThreadAllocatedBytes(threadId) - before;
+    }
+}
@@ -0,0 +1,87 @@
+package com.training.benchmark;
+
+import com.training.todo.domain.Priority;
+import lombok.extern.slf4j.Slf4j;
+import org.flywaydb.core.Flyway;
+import org.junit.Test;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DataSourceTransactionManager;
+import org.springframework.jdbc.datasource.embedded.EmbeddedDatabase;
+import org.springframework.jdbc.datasource.embedded.EmbeddedDatabaseBuilder;
+import org.springframework.jdbc.datasource.embedded.EmbeddedDatabaseType;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Zapis todo pojedynczo (id z sekwencji i INSERT w osobnej transakcji na kazde todo) w porownaniu
+ * z TodoBatchService (bloki id z sekwencji, batch JDBC, jedna transakcja).
+ */
+@Slf4j
+public class TodoBatchInsertBenchmark {
+
+    private static final String USERNAME = "henio";
+    private static final int ALLOCATION_SIZE = 50;
+    private static final String INSERT_TODO =
+            "INSERT INTO todos (id, name, priority_level, description, completed, username) VALUES (?, ?, ?, ?, ?, ?)";
+
+    @Test
+    public void singleInsertsAgainstBatchedInserts() {
+        int chunkSize = Integer.getInteger("benchmark.chunk-size", 500);
+        for (int rows : BenchmarkSupport.rowCounts("1000,10000")) {
+            EmbeddedDatabase database = new EmbeddedDatabaseBuilder()
+                    .setType(EmbeddedDatabaseType.HSQL)
+                    .generateUniqueName(true)
+                    .build();
+            try {
+                Flyway flyway = new Flyway();
+                flyway.setDataSource(database);
+                flyway.migrate();
+                JdbcTemplate jdbcTemplate = new JdbcTemplate(database);
+                jdbcTemplate.update("INSERT INTO users (login, password_hash, role) VALUES (?, 'hash', 0)", USERNAME);
+                TransactionTemplate transactionTemplate = new TransactionTemplate(new DataSourceTransactionManager(database));
+
+                double single = BenchmarkSupport.medianMicros(3, () -> {
+                    for (int i = 0; i < rows; i++) {
+                        int number = i;
+                        transactionTemplate.execute(status ->
+                                jdbcTemplate.update(INSERT_TODO, row(nextBlock(jdbcTemplate), number)));
+                    }
+                });
+                double batched = BenchmarkSupport.medianMicros(3, () -> transactionTemplate.execute(status -> {
+                    List<Object[]> chunk = new ArrayList<>(chunkSize);
+                    long next = 0;
+                    long end = 0;
+                    for (int i = 0; i < rows; i++) {
+                        if (next == end) {
+                            next = nextBlock(jdbcTemplate);
+                            end = next + ALLOCATION_SIZE;
+                        }
+                        chunk.add(row(next++, i));
+                        if (chunk.size() == chunkSize || i == rows - 1) {
+                            jdbcTemplate.batchUpdate(INSERT_TODO, chunk);
+                            chunk.clear();
+                        }
+                    }
+                    return null;
+                }));
+                assertThat(jdbcTemplate.queryForObject("SELECT COUNT(*) FROM todos", Long.class)).isEqualTo(12L * rows);
+                log.info("rows={} single: {} ms, batched (chunk {}): {} ms", rows,
+                        String.format("%.1f", single / 1000), chunkSize, String.format("%.1f", batched / 1000));
+            } finally {
+                database.shutdown();
+            }
+        }
+    }
+
+    private static long nextBlock(JdbcTemplate jdbcTemplate) {
+        return jdbcTemplate.queryForObject("CALL NEXT VALUE FOR todo_seq", Long.class);
+    }
+
+    private static Object[] row(long id, int number) {
+        return new Object[]{id, "todo" + number, Priority.HIGH.ordinal(), "opis", false, USERNAME};
+    }
+}
@@ -0,0 +1,111 @@
+package com.training.benchmark;
+
+import lombok.extern.slf4j.Slf4j;
+import org.junit.Test;
+import org.springframework.core.io.ClassPathResource;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.embedded.EmbeddedDatabase;
+import org.springframework.jdbc.datasource.embedded.EmbeddedDatabaseBuilder;
+import org.springframework.jdbc.datasource.embedded.EmbeddedDatabaseType;
+import org.springframework.jdbc.datasource.init.ScriptUtils;
+
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Czas zapytan odpowiadajacych finderom TodoJpaRepository przed i po migracji V2 (indeksy), dla rosnacej tabeli TODOS.
+ */
+@Slf4j
+public class TodoIndexBenchmark {
+
+    private static final String SCHEMA = "db/migration/V1__initial_schema.sql";
+    private static final String INDEXES = "db/migration/V2__todo_search_indexes.sql";
+
+    private static final int USERS = 1000;
+    private static final int NAMES = 500;
+    private static final String[] PRIORITIES = {"LOW", "MEDIUM", "HIGH"};
+    private static final int INSERT_CHUNK = 10000;
+
+    @Test
+    public void findersWithAndWithoutIndexes() throws SQLException {
+        for (int rows : BenchmarkSupport.rowCounts("10000,100000,1000000")) {
+            EmbeddedDatabase database = new EmbeddedDatabaseBuilder()
+                    .setType(EmbeddedDatabaseType.HSQL)
+                    .generateUniqueName(true)
+                    .addScript(SCHEMA)
+                    .build();
+            try {
+                JdbcTemplate jdbcTemplate = new JdbcTemplate(database);
+                populate(jdbcTemplate, rows);
+                Map<String, Double> withoutIndexes = measure(jdbcTemplate);
+                try (Connection connection = database.getConnection()) {
+                    ScriptUtils.executeSqlScript(connection, new ClassPathResource(INDEXES));
+                }
+                Map<String, Double> withIndexes = measure(jdbcTemplate);
+                withoutIndexes.forEach((query, micros) -> log.info("rows={} {}: {} us -> {} us",
+                        rows, query, String.format("%.1f", micros), String.format("%.1f", withIndexes.get(query))));
+            } finally {
+                database.shutdown();
+            }
+        }
+    }
+
+    private void populate(JdbcTemplate jdbcTemplate, int rows) {
+        List<Object[]> users = new ArrayList<>(USERS);
+        for (int i = 0; i < USERS; i++) {
+            users.add(new Object[]{user(i), "hash", 1});
+        }
+        jdbcTemplate.batchUpdate("INSERT INTO users (login, password_hash, role) VALUES (?, ?, ?)", users);
+
+        Random random = new Random(42);
+        List<Object[]> todos = new ArrayList<>(INSERT_CHUNK);
+        for (int i = 0; i < rows; i++) {
+            todos.add(new Object[]{"todo" + random.nextInt(NAMES), PRIORITIES[random.nextInt(PRIORITIES.length)],
+                    "opis", random.nextBoolean(), user(random.nextInt(USERS))});
+            if (todos.size() == INSERT_CHUNK || i == rows - 1) {
+                jdbcTemplate.batchUpdate(
+                        "INSERT INTO todos (name, priority, description, completed, username) VALUES (?, ?, ?, ?, ?)",
+                        todos);
+                todos.clear();
+            }
+        }
+        assertThat(jdbcTemplate.queryForObject("SELECT COUNT(*) FROM todos", Long.class)).isEqualTo(rows);
+    }
+
+    private Map<String, Double> measure(JdbcTemplate jdbcTemplate) {
+        int iterations = BenchmarkSupport.iterations(20);
+        Random random = new Random(7);
+        Map<String, Double> results = new LinkedHashMap<>();
+        results.put("findByUsername", BenchmarkSupport.medianMicros(iterations, () -> jdbcTemplate.queryForList(
+                "SELECT * FROM todos WHERE username = ? ORDER BY id LIMIT 20",
+                user(random.nextInt(USERS)))));
+        results.put("countByUsername", BenchmarkSupport.medianMicros(iterations, () -> jdbcTemplate.queryForObject(
+                "SELECT COUNT(*) FROM todos WHERE username = ?", Long.class,
+                user(random.nextInt(USERS)))));
+        results.put("findByNameAndUsername", BenchmarkSupport.medianMicros(iterations, () -> jdbcTemplate.queryForList(
+                "SELECT * FROM todos WHERE name = ? AND username = ? LIMIT 20",
+                "todo" + random.nextInt(NAMES), user(random.nextInt(USERS)))));
+        results.put("findByPriorityAndUsername", BenchmarkSupport.medianMicros(iterations, () -> jdbcTemplate.queryForList(
+                "SELECT * FROM todos WHERE priority = ? AND username = ? LIMIT 20",
+                PRIORITIES[random.nextInt(PRIORITIES.length)], user(random.nextInt(USERS)))));
+        results.put("findByNameAndPriorityAndUsername", BenchmarkSupport.medianMicros(iterations, () -> jdbcTemplate.queryForList(
+                "SELECT * FROM todos WHERE name = ? AND priority = ? AND username = ? LIMIT 20",
+                "todo" + random.nextInt(NAMES), PRIORITIES[random.nextInt(PRIORITIES.length)],
+                user(random.nextInt(USERS)))));
+        results.put("findByNameAndPriority", BenchmarkSupport.medianMicros(iterations, () -> jdbcTemplate.queryForList(
+                "SELECT * FROM todos WHERE name = ? AND priority = ? LIMIT 20",
+                "todo" + random.nextInt(NAMES), PRIORITIES[random.nextInt(PRIORITIES.length)])));
+        return results;
+    }
+
+    private static String user(int number) {
+        return "user" + number;
+    }
+}
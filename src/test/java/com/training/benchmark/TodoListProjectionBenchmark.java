@@ -0,0 +1,105 @@
+package com.training.benchmark;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.google.common.base.Strings;
+import com.training.todo.domain.Priority;
+import com.training.todo.domain.Todo;
+import com.training.todo.persistance.TodoJpaRepository;
+import lombok.extern.slf4j.Slf4j;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.junit4.SpringRunner;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import javax.persistence.EntityManager;
+import javax.sql.DataSource;
+import java.io.UncheckedIOException;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Lista todo jako zarzadzane encje w zwyklej transakcji (migawki, dirty checking przy flush, opis w JSON)
+ * w porownaniu z projekcja TodoSummaryDto w transakcji tylko do odczytu. Mierzy czas i alokacje calej listy
+ * razem z serializacja.
+ */
+@Slf4j
+@RunWith(SpringRunner.class)
+@DataJpaTest
+public class TodoListProjectionBenchmark {
+
+    private static final String USERNAME = "henio";
+    private static final String DESCRIPTION = Strings.repeat("opis ", 51);
+    private static final String INSERT_TODO =
+            "INSERT INTO todos (id, name, priority_level, description, completed, username) VALUES (?, ?, ?, ?, ?, ?)";
+
+    @Autowired
+    private EntityManager entityManager;
+
+    @Autowired
+    private TodoJpaRepository todoRepository;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    @Autowired
+    private DataSource dataSource;
+
+    private final ObjectMapper objectMapper = new ObjectMapper();
+
+    @Test
+    @Transactional(propagation = Propagation.NOT_SUPPORTED)
+    public void entitiesAgainstReadOnlyProjections() {
+        JdbcTemplate jdbcTemplate = new JdbcTemplate(dataSource);
+        TransactionTemplate readWrite = new TransactionTemplate(transactionManager);
+        TransactionTemplate readOnly = new TransactionTemplate(transactionManager);
+        readOnly.setReadOnly(true);
+        int iterations = BenchmarkSupport.iterations(20);
+        jdbcTemplate.update("INSERT INTO users (login, password_hash, role) VALUES (?, 'hash', 0)", USERNAME);
+        try {
+            for (int rows : BenchmarkSupport.rowCounts("100,1000,10000")) {
+                populate(jdbcTemplate, rows);
+                Runnable entities = () -> readWrite.execute(status -> json(entityManager
+                        .createQuery("SELECT t FROM Todo t WHERE t.username = :username ORDER BY t.id", Todo.class)
+                        .setParameter("username", USERNAME)
+                        .setMaxResults(rows)
+                        .getResultList()));
+                Runnable projections = () -> readOnly.execute(status ->
+                        json(todoRepository.findSliceByUsername(USERNAME, new PageRequest(0, rows)).getContent()));
+
+                log.info("rows={} entities: {} us, {} KB; projections: {} us, {} KB", rows,
+                        String.format("%.1f", BenchmarkSupport.medianMicros(iterations, entities)),
+                        BenchmarkSupport.allocatedBytes(entities) / 1024,
+                        String.format("%.1f", BenchmarkSupport.medianMicros(iterations, projections)),
+                        BenchmarkSupport.allocatedBytes(projections) / 1024);
+            }
+        } finally {
+            jdbcTemplate.update("DELETE FROM todos WHERE username = ?", USERNAME);
+            jdbcTemplate.update("DELETE FROM users WHERE login = ?", USERNAME);
+        }
+    }
+
+    private static void populate(JdbcTemplate jdbcTemplate, int rows) {
+        jdbcTemplate.update("DELETE FROM todos WHERE username = ?", USERNAME);
+        List<Object[]> todos = new ArrayList<>(rows);
+        for (int i = 0; i < rows; i++) {
+            todos.add(new Object[]{i + 1L, "todo" + i, Priority.HIGH.ordinal(), DESCRIPTION, i % 2 == 0, USERNAME});
+        }
+        jdbcTemplate.batchUpdate(INSERT_TODO, todos);
+    }
+
+    private byte[] json(Object value) {
+        try {
+            return objectMapper.writeValueAsBytes(value);
+        } catch (JsonProcessingException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+}
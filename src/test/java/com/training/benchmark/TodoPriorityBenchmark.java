@@ -0,0 +1,103 @@
+package com.training.benchmark;
+
+import lombok.extern.slf4j.Slf4j;
+import org.flywaydb.core.Flyway;
+import org.flywaydb.core.api.MigrationVersion;
+import org.junit.Test;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.embedded.EmbeddedDatabase;
+import org.springframework.jdbc.datasource.embedded.EmbeddedDatabaseBuilder;
+import org.springframework.jdbc.datasource.embedded.EmbeddedDatabaseType;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+/**
+ * Lista uzytkownika od najwazniejszych i filtr po priorytecie przed migracja V8 (priorytet jako napis -
+ * kolejnosc waznosci trzeba wyliczyc CASE, wiec baza sortuje wszystkie todo uzytkownika) i po niej
+ * (poziom SMALLINT w indeksie (username, priority_level DESC, id)), oraz czas samej migracji.
+ */
+@Slf4j
+public class TodoPriorityBenchmark {
+
+    private static final int USERS = 100;
+    private static final String[] LABELS = {"niski", "sredni", "wysoki", null};
+    private static final int INSERT_CHUNK = 10000;
+    private static final String LEGACY_LEVEL =
+            "CASE priority WHEN 'wysoki' THEN 2 WHEN 'sredni' THEN 1 WHEN 'niski' THEN 0 END";
+
+    @Test
+    public void highestFirstBeforeAndAfterMigration() {
+        for (int rows : BenchmarkSupport.rowCounts("10000,100000")) {
+            EmbeddedDatabase database = new EmbeddedDatabaseBuilder()
+                    .setType(EmbeddedDatabaseType.HSQL)
+                    .generateUniqueName(true)
+                    .build();
+            try {
+                Flyway flyway = new Flyway();
+                flyway.setDataSource(database);
+                flyway.setTarget(MigrationVersion.fromVersion("7"));
+                flyway.migrate();
+                JdbcTemplate jdbcTemplate = new JdbcTemplate(database);
+                populate(jdbcTemplate, rows);
+                Map<String, Double> before = measure(jdbcTemplate,
+                        "SELECT id, name FROM todos WHERE username = ? ORDER BY " + LEGACY_LEVEL + " DESC NULLS LAST, " +
+                                "id LIMIT 20",
+                        "SELECT id, name FROM todos WHERE username = ? AND priority = 'wysoki' ORDER BY id LIMIT 20");
+
+                long start = System.nanoTime();
+                flyway.setTarget(MigrationVersion.LATEST);
+                flyway.migrate();
+                double migration = (System.nanoTime() - start) / 1e6;
+
+                Map<String, Double> after = measure(jdbcTemplate,
+                        "SELECT id, name FROM todos WHERE username = ? ORDER BY priority_level DESC NULLS LAST, " +
+                                "id LIMIT 20",
+                        "SELECT id, name FROM todos WHERE username = ? AND priority_level = 2 ORDER BY id LIMIT 20");
+                log.info("rows={} migration V8: {} ms", rows, String.format("%.1f", migration));
+                before.forEach((query, micros) -> log.info("rows={} {}: {} us -> {} us",
+                        rows, query, String.format("%.1f", micros), String.format("%.1f", after.get(query))));
+            } finally {
+                database.shutdown();
+            }
+        }
+    }
+
+    private void populate(JdbcTemplate jdbcTemplate, int rows) {
+        List<Object[]> users = new ArrayList<>(USERS);
+        for (int i = 0; i < USERS; i++) {
+            users.add(new Object[]{user(i), "hash", 1});
+        }
+        jdbcTemplate.batchUpdate("INSERT INTO users (login, password_hash, role) VALUES (?, ?, ?)", users);
+
+        Random random = new Random(42);
+        List<Object[]> todos = new ArrayList<>(INSERT_CHUNK);
+        for (int i = 0; i < rows; i++) {
+            todos.add(new Object[]{"todo" + i, LABELS[random.nextInt(LABELS.length)], random.nextBoolean(),
+                    user(random.nextInt(USERS))});
+            if (todos.size() == INSERT_CHUNK || i == rows - 1) {
+                jdbcTemplate.batchUpdate(
+                        "INSERT INTO todos (name, priority, completed, username) VALUES (?, ?, ?, ?)", todos);
+                todos.clear();
+            }
+        }
+    }
+
+    private Map<String, Double> measure(JdbcTemplate jdbcTemplate, String highestFirst, String highOnly) {
+        int iterations = BenchmarkSupport.iterations(50);
+        Random random = new Random(7);
+        Map<String, Double> results = new LinkedHashMap<>();
+        results.put("highestFirst", BenchmarkSupport.medianMicros(iterations, () ->
+                jdbcTemplate.queryForList(highestFirst, user(random.nextInt(USERS)))));
+        results.put("highOnly", BenchmarkSupport.medianMicros(iterations, () ->
+                jdbcTemplate.queryForList(highOnly, user(random.nextInt(USERS)))));
+        return results;
+    }
+
+    private static String user(int number) {
+        return "user" + number;
+    }
+}
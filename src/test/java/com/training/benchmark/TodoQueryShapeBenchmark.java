@@ -0,0 +1,94 @@
+package com.training.benchmark;
+
+import com.training.todo.controller.dto.TodoSummaryDto;
+import com.training.todo.domain.Priority;
+import com.training.todo.domain.Todo;
+import com.training.todo.persistance.TodoFilter;
+import com.training.todo.persistance.TodoJpaRepository;
+import com.training.user.domain.User;
+import lombok.extern.slf4j.Slf4j;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Sort;
+import org.springframework.test.context.junit4.SpringRunner;
+
+import javax.persistence.EntityManager;
+import javax.persistence.criteria.CriteriaBuilder;
+import javax.persistence.criteria.CriteriaQuery;
+import javax.persistence.criteria.Root;
+import java.util.List;
+
+import static com.google.common.collect.Lists.newArrayList;
+
+/**
+ * Narzut parsowania i planowania zapytania na jedno wyszukiwanie z filtrami (uzytkownik, priorytety, stan):
+ * JPQL o nowym tekscie (Hibernate parsuje i planuje go za kazdym razem), Criteria API budowane przy kazdym
+ * zapytaniu (jak Specifications) oraz ksztalt zapamietany w TodoJpaRepositoryImpl. Tabela jest mala,
+ * wiec roznice czasu to glownie narzut przygotowania zapytania, a nie jego wykonanie.
+ */
+@Slf4j
+@RunWith(SpringRunner.class)
+@DataJpaTest
+public class TodoQueryShapeBenchmark {
+
+    private static final String USERNAME = "henio";
+    private static final Priority[] PRIORITIES = Priority.values();
+    private static final int ROWS = 100;
+    private static final int PAGE_SIZE = 20;
+
+    @Autowired
+    private EntityManager entityManager;
+
+    @Autowired
+    private TodoJpaRepository todoRepository;
+
+    private int uniqueQuery;
+
+    @Test
+    public void parsingAndPlanningPerRequest() {
+        entityManager.persist(User.builder().login(USERNAME).passwordHash("hash").role(User.Role.USER).build());
+        for (int i = 0; i < ROWS; i++) {
+            entityManager.persist(Todo.builder().name("todo" + i).priority(PRIORITIES[i % PRIORITIES.length])
+                    .completed(i % 2 == 0).username(USERNAME).build());
+        }
+        entityManager.flush();
+        entityManager.clear();
+        int iterations = BenchmarkSupport.iterations(200);
+        List<Priority> priorities = newArrayList(Priority.LOW, Priority.HIGH);
+        TodoFilter filter = TodoFilter.builder().username(USERNAME).priorities(priorities).completed(false).build();
+        PageRequest page = new PageRequest(0, PAGE_SIZE, new Sort("name"));
+
+        Runnable uncached = () -> {
+            String suffix = String.valueOf(uniqueQuery++);
+            entityManager.createQuery(TodoJpaRepository.SUMMARY + " WHERE t.username = :username" + suffix +
+                    " AND t.priority IN :priorities" + suffix + " AND t.completed = :completed" + suffix +
+                    " ORDER BY t.name ASC, t.id ASC", TodoSummaryDto.class)
+                    .setParameter("username" + suffix, USERNAME)
+                    .setParameter("priorities" + suffix, priorities)
+                    .setParameter("completed" + suffix, false)
+                    .setMaxResults(PAGE_SIZE + 1)
+                    .getResultList();
+        };
+        Runnable criteria = () -> {
+            CriteriaBuilder builder = entityManager.getCriteriaBuilder();
+            CriteriaQuery<TodoSummaryDto> query = builder.createQuery(TodoSummaryDto.class);
+            Root<Todo> todo = query.from(Todo.class);
+            query.select(builder.construct(TodoSummaryDto.class, todo.get("id"), todo.get("name"),
+                    todo.get("priority"), todo.get("completed"), todo.get("username"), todo.get("version")))
+                    .where(builder.equal(todo.get("username"), USERNAME),
+                            todo.get("priority").in(priorities),
+                            builder.equal(todo.get("completed"), false))
+                    .orderBy(builder.asc(todo.get("name")), builder.asc(todo.get("id")));
+            entityManager.createQuery(query).setMaxResults(PAGE_SIZE + 1).getResultList();
+        };
+        Runnable cachedShape = () -> todoRepository.findSlice(filter, page);
+
+        log.info("query per request: new JPQL text {} us, Criteria API {} us, cached shape {} us",
+                String.format("%.1f", BenchmarkSupport.medianMicros(iterations, uncached)),
+                String.format("%.1f", BenchmarkSupport.medianMicros(iterations, criteria)),
+                String.format("%.1f", BenchmarkSupport.medianMicros(iterations, cachedShape)));
+    }
+}
@@ -0,0 +1,79 @@
+package com.training.security.controller;
+
+import com.training.security.controller.dto.LoginDto;
+import com.training.security.service.AccessTokenService;
+import com.training.security.service.AuthenticationThrottledException;
+import com.training.security.service.VerificationRejectedException;
+import org.junit.Before;
+import org.junit.Test;
+import org.mockito.Mock;
+import org.mockito.MockitoAnnotations;
+import org.springframework.http.HttpHeaders;
+import org.springframework.security.authentication.AuthenticationManager;
+import org.springframework.security.authentication.BadCredentialsException;
+import org.springframework.security.core.Authentication;
+import org.springframework.test.web.servlet.MockMvc;
+
+import static com.training.utils.TestJsonUtils.APPLICATION_JSON_UTF8;
+import static com.training.utils.TestJsonUtils.convertObjectToJson;
+import static org.mockito.Matchers.any;
+import static org.mockito.Mockito.when;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.header;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+import static org.springframework.test.web.servlet.setup.MockMvcBuilders.standaloneSetup;
+
+public class StandaloneAccessTokenRestControllerTest {
+
+    private static final String TOKEN_URL = "/auth/token";
+    private static final LoginDto LOGIN = new LoginDto("henio", "secret");
+
+    private MockMvc mockMvc;
+
+    @Mock
+    private AuthenticationManager authenticationManager;
+
+    @Mock
+    private AccessTokenService accessTokenService;
+
+    @Before
+    public void setUp() {
+        MockitoAnnotations.initMocks(this);
+        mockMvc = standaloneSetup(new AccessTokenRestController(authenticationManager, accessTokenService)).build();
+    }
+
+    @Test
+    public void create_verificationQueueFull_returns503WithRetryAfter() throws Exception {
+        // given
+        when(authenticationManager.authenticate(any(Authentication.class)))
+                .thenThrow(new VerificationRejectedException("Password verification queue is full"));
+        // when
+        mockMvc.perform(post(TOKEN_URL).contentType(APPLICATION_JSON_UTF8).content(convertObjectToJson(LOGIN)))
+                // then
+                .andExpect(status().isServiceUnavailable())
+                .andExpect(header().string(HttpHeaders.RETRY_AFTER, "1"));
+    }
+
+    @Test
+    public void create_loginLockedOut_returns429WithRetryAfter() throws Exception {
+        // given
+        when(authenticationManager.authenticate(any(Authentication.class)))
+                .thenThrow(new AuthenticationThrottledException("Too many failed login attempts", 30));
+        // when
+        mockMvc.perform(post(TOKEN_URL).contentType(APPLICATION_JSON_UTF8).content(convertObjectToJson(LOGIN)))
+                // then
+                .andExpect(status().isTooManyRequests())
+                .andExpect(header().string(HttpHeaders.RETRY_AFTER, "30"));
+    }
+
+    @Test
+    public void create_badCredentials_returns401() throws Exception {
+        // given
+        when(authenticationManager.authenticate(any(Authentication.class)))
+                .thenThrow(new BadCredentialsException("Bad credentials"));
+        // when
+        mockMvc.perform(post(TOKEN_URL).contentType(APPLICATION_JSON_UTF8).content(convertObjectToJson(LOGIN)))
+                // then
+                .andExpect(status().isUnauthorized());
+    }
+}
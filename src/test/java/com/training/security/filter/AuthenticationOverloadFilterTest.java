@@ -0,0 +1,26 @@
+package com.training.security.filter;
+
+import com.training.security.service.VerificationRejectedException;
+import org.junit.Test;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class AuthenticationOverloadFilterTest {
+
+    @Test
+    public void doFilter_verificationRejected_returns503WithRetryAfter() throws Exception {
+        // given
+        MockHttpServletResponse response = new MockHttpServletResponse();
+        // when
+        new AuthenticationOverloadFilter().doFilter(new MockHttpServletRequest(), response, (request, ignored) -> {
+            throw new VerificationRejectedException("Password verification queue is full");
+        });
+        // then
+        assertThat(response.getStatus()).isEqualTo(HttpStatus.SERVICE_UNAVAILABLE.value());
+        assertThat(response.getHeader(HttpHeaders.RETRY_AFTER)).isEqualTo("1");
+    }
+}
@@ -0,0 +1,115 @@
+package com.training.security.service;
+
+import com.training.security.model.CurrentUser;
+import com.training.user.service.UserModifiedEvent;
+import org.junit.Test;
+import org.springframework.security.authentication.BadCredentialsException;
+
+import java.time.Clock;
+import java.time.Instant;
+import java.time.ZoneId;
+import java.time.ZoneOffset;
+
+import static com.training.utils.FakeUsers.LOGGED_USER_ADMIN;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.junit.Assert.fail;
+
+public class AccessTokenServiceTest {
+
+    private static final String SECRET = "test-secret";
+
+    private final MutableClock clock = new MutableClock();
+    private final AccessTokenService service = new AccessTokenService(SECRET, 60, clock);
+
+    @Test
+    public void verify_issuedToken_returnsUserWithSameLoginAndRole() {
+        // given
+        String token = service.issue(LOGGED_USER_ADMIN);
+        // when
+        CurrentUser actual = service.verify(token);
+        // then
+        assertThat(actual.getLogin()).isEqualTo(LOGGED_USER_ADMIN.getLogin());
+        assertThat(actual.getRole()).isEqualTo(LOGGED_USER_ADMIN.getRole());
+    }
+
+    @Test
+    public void verify_tokenSignedWithOtherSecret_throwsBadCredentials() {
+        // given
+        String token = new AccessTokenService("other-secret", 60, clock).issue(LOGGED_USER_ADMIN);
+        // when
+        try {
+            service.verify(token);
+            fail("Token signed with other secret should be rejected");
+        } catch (BadCredentialsException e) {
+            // then pass
+        }
+    }
+
+    @Test
+    public void verify_expiredToken_throwsBadCredentials() {
+        // given
+        String token = new AccessTokenService(SECRET, -1, clock).issue(LOGGED_USER_ADMIN);
+        // when
+        try {
+            service.verify(token);
+            fail("Expired token should be rejected");
+        } catch (BadCredentialsException e) {
+            // then pass
+        }
+    }
+
+    @Test
+    public void verify_tokenIssuedBeforeUserModification_throwsBadCredentials() {
+        // given
+        String token = service.issue(LOGGED_USER_ADMIN);
+        service.onUserModified(new UserModifiedEvent(LOGGED_USER_ADMIN.getLogin()));
+        // when
+        try {
+            service.verify(token);
+            fail("Token issued before user modification should be rejected");
+        } catch (BadCredentialsException e) {
+            // then pass
+        }
+    }
+
+    @Test
+    public void onUserModified_revocationOlderThanTokenTtl_isDropped() {
+        // given
+        AccessTokenService shortLived = new AccessTokenService(SECRET, 0, clock);
+        shortLived.onUserModified(new UserModifiedEvent("first"));
+        clock.advance(1);
+        // when
+        shortLived.onUserModified(new UserModifiedEvent("second"));
+        // then
+        assertThat(shortLived.revocationCount()).isEqualTo(1);
+    }
+
+    private static class MutableClock extends Clock {
+
+        private long millis = 1_000_000L;
+
+        void advance(long deltaMillis) {
+            millis += deltaMillis;
+        }
+
+        @Override
+        public long millis() {
+            return millis;
+        }
+
+        @Override
+        public Instant instant() {
+            return Instant.ofEpochMilli(millis);
+        }
+
+        @Override
+        public ZoneId getZone() {
+            return ZoneOffset.UTC;
+        }
+
+        @Override
+        public Clock withZone(ZoneId zone) {
+            throw new UnsupportedOperationException();
+        }
+    }
+}
@@ -0,0 +1,70 @@
+package com.training.security.service;
+
+import com.training.user.service.UserModifiedEvent;
+import org.junit.Before;
+import org.junit.Test;
+import org.mockito.Mock;
+import org.mockito.MockitoAnnotations;
+import org.springframework.security.core.userdetails.UserDetails;
+import org.springframework.security.core.userdetails.UsernameNotFoundException;
+
+import static com.training.utils.FakeUsers.LOGGED_USER_PLAIN;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.junit.Assert.fail;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+public class CachedUserDetailsServiceTest {
+
+    private static final String LOGIN = LOGGED_USER_PLAIN.getLogin();
+
+    @Mock
+    private UserDetailsServiceImpl delegate;
+
+    private CachedUserDetailsService service;
+
+    @Before
+    public void setUp() {
+        MockitoAnnotations.initMocks(this);
+        when(delegate.loadUserByUsername(LOGIN)).thenReturn(LOGGED_USER_PLAIN);
+        service = new CachedUserDetailsService(delegate, 100, 60);
+    }
+
+    @Test
+    public void loadUserByUsername_calledTwice_loadsFromDelegateOnlyOnce() {
+        // when
+        service.loadUserByUsername(LOGIN);
+        UserDetails actual = service.loadUserByUsername(LOGIN);
+        // then
+        assertThat(actual).isSameAs(LOGGED_USER_PLAIN);
+        verify(delegate, times(1)).loadUserByUsername(LOGIN);
+    }
+
+    @Test
+    public void loadUserByUsername_userModified_loadsFromDelegateAgain() {
+        // given
+        service.loadUserByUsername(LOGIN);
+        // when
+        service.onUserModified(new UserModifiedEvent(LOGIN));
+        service.loadUserByUsername(LOGIN);
+        // then
+        verify(delegate, times(2)).loadUserByUsername(LOGIN);
+    }
+
+    @Test
+    public void loadUserByUsername_userNotFound_doesNotCacheMiss() {
+        // given
+        when(delegate.loadUserByUsername("unknown")).thenThrow(new UsernameNotFoundException("unknown"));
+        // when
+        for (int i = 0; i < 2; i++) {
+            try {
+                service.loadUserByUsername("unknown");
+                fail("Should throw UsernameNotFoundException");
+            } catch (UsernameNotFoundException e) {
+                // then pass
+            }
+        }
+        verify(delegate, times(2)).loadUserByUsername("unknown");
+    }
+}
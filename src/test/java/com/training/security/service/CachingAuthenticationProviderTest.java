@@ -0,0 +1,80 @@
+package com.training.security.service;
+
+import com.training.user.service.UserModifiedEvent;
+import org.junit.Before;
+import org.junit.Test;
+import org.mockito.Mock;
+import org.mockito.MockitoAnnotations;
+import org.springframework.security.authentication.BadCredentialsException;
+import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+import org.springframework.security.core.Authentication;
+import org.springframework.security.core.userdetails.UserDetailsService;
+import org.springframework.security.crypto.password.PasswordEncoder;
+
+import static com.training.utils.FakeUsers.LOGGED_USER_PLAIN;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.junit.Assert.fail;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+public class CachingAuthenticationProviderTest {
+
+    private static final String PASSWORD = "secret";
+
+    @Mock
+    private UserDetailsService userDetailsService;
+
+    @Mock
+    private PasswordEncoder passwordEncoder;
+
+    private CachingAuthenticationProvider provider;
+
+    @Before
+    public void setUp() {
+        MockitoAnnotations.initMocks(this);
+        when(userDetailsService.loadUserByUsername(LOGGED_USER_PLAIN.getLogin())).thenReturn(LOGGED_USER_PLAIN);
+        when(passwordEncoder.matches(PASSWORD, LOGGED_USER_PLAIN.getPasswordHash())).thenReturn(true);
+        provider = new CachingAuthenticationProvider(userDetailsService, passwordEncoder, 100, 60);
+    }
+
+    @Test
+    public void authenticate_sameCredentialsTwice_verifiesPasswordOnlyOnce() {
+        // when
+        provider.authenticate(token(PASSWORD));
+        Authentication second = provider.authenticate(token(PASSWORD));
+        // then
+        assertThat(second.isAuthenticated()).isTrue();
+        assertThat(second.getPrincipal()).isEqualTo(LOGGED_USER_PLAIN);
+        verify(passwordEncoder, times(1)).matches(PASSWORD, LOGGED_USER_PLAIN.getPasswordHash());
+    }
+
+    @Test
+    public void authenticate_wrongPasswordAfterCachedLogin_isRejected() {
+        // given
+        provider.authenticate(token(PASSWORD));
+        // when
+        try {
+            provider.authenticate(token("wrong"));
+            fail("Cached credentials should not accept different password");
+        } catch (BadCredentialsException e) {
+            // then pass
+        }
+        verify(passwordEncoder).matches("wrong", LOGGED_USER_PLAIN.getPasswordHash());
+    }
+
+    @Test
+    public void authenticate_userModified_verifiesPasswordAgain() {
+        // given
+        provider.authenticate(token(PASSWORD));
+        // when
+        provider.onUserModified(new UserModifiedEvent(LOGGED_USER_PLAIN.getLogin()));
+        provider.authenticate(token(PASSWORD));
+        // then
+        verify(passwordEncoder, times(2)).matches(PASSWORD, LOGGED_USER_PLAIN.getPasswordHash());
+    }
+
+    private UsernamePasswordAuthenticationToken token(String password) {
+        return new UsernamePasswordAuthenticationToken(LOGGED_USER_PLAIN.getLogin(), password);
+    }
+}
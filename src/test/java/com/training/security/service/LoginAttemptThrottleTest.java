@@ -0,0 +1,63 @@
+package com.training.security.service;
+
+import org.junit.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.junit.Assert.fail;
+
+public class LoginAttemptThrottleTest {
+
+    private static final String LOGIN = "henio";
+    private static final String ADDRESS = "10.0.0.1";
+
+    private final LoginAttemptThrottle throttle = new LoginAttemptThrottle(2, 60000, 60000, 100);
+
+    @Test
+    public void checkAllowed_failuresBelowThreshold_passes() {
+        // given
+        throttle.failed(LOGIN, ADDRESS);
+        // when
+        throttle.checkAllowed(LOGIN, ADDRESS);
+        // then pass
+    }
+
+    @Test
+    public void checkAllowed_failuresReachedThreshold_throwsThrottledWithRetryAfter() {
+        // given
+        throttle.failed(LOGIN, ADDRESS);
+        throttle.failed(LOGIN, ADDRESS);
+        // when
+        try {
+            throttle.checkAllowed(LOGIN, null);
+            fail("Should throttle login after too many failures");
+        } catch (AuthenticationThrottledException e) {
+            // then
+            assertThat(e.getRetryAfterSeconds()).isPositive();
+        }
+    }
+
+    @Test
+    public void checkAllowed_otherLoginFromThrottledAddress_throwsThrottled() {
+        // given
+        throttle.failed(LOGIN, ADDRESS);
+        throttle.failed("admin", ADDRESS);
+        // when
+        try {
+            throttle.checkAllowed("other", ADDRESS);
+            fail("Should throttle address after too many failures");
+        } catch (AuthenticationThrottledException e) {
+            // then pass
+        }
+    }
+
+    @Test
+    public void checkAllowed_successAfterFailures_resetsLoginCounter() {
+        // given
+        throttle.failed(LOGIN, ADDRESS);
+        throttle.failed(LOGIN, ADDRESS);
+        // when
+        throttle.succeeded(LOGIN);
+        throttle.checkAllowed(LOGIN, "10.0.0.2");
+        // then pass
+    }
+}
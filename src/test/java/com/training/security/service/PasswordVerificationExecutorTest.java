@@ -0,0 +1,111 @@
+package com.training.security.service;
+
+import org.junit.After;
+import org.junit.Test;
+import org.springframework.boot.actuate.metrics.Metric;
+import org.springframework.http.HttpStatus;
+import org.springframework.security.crypto.password.PasswordEncoder;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.junit.Assert.fail;
+
+public class PasswordVerificationExecutorTest {
+
+    private static final long AWAIT_MILLIS = 5000;
+
+    private final CountDownLatch release = new CountDownLatch(1);
+    private final ExecutorService callers = Executors.newFixedThreadPool(2);
+    private PasswordVerificationExecutor executor;
+
+    /**
+     * Sprawdzenie hasla trwa, dopoki test go nie zwolni
+     */
+    private final PasswordEncoder blocking = new PasswordEncoder() {
+        @Override
+        public String encode(CharSequence rawPassword) {
+            return rawPassword.toString();
+        }
+
+        @Override
+        public boolean matches(CharSequence rawPassword, String encodedPassword) {
+            try {
+                return release.await(AWAIT_MILLIS, TimeUnit.MILLISECONDS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return false;
+            }
+        }
+    };
+
+    @After
+    public void tearDown() {
+        release.countDown();
+        callers.shutdownNow();
+        executor.shutdown();
+    }
+
+    @Test
+    public void matches_poolBusyAndQueueFull_rejectsAtOnceWithRetryAfter() throws Exception {
+        // given
+        executor = new PasswordVerificationExecutor(1, 1, AWAIT_MILLIS);
+        PasswordEncoder encoder = executor.verifying(blocking);
+        Future<Boolean> running = callers.submit(() -> encoder.matches("first", "first"));
+        awaitMetric("security.password-verification.active", 1);
+        Future<Boolean> queued = callers.submit(() -> encoder.matches("second", "second"));
+        awaitMetric("security.password-verification.queue", 1);
+        // when
+        try {
+            encoder.matches("third", "third");
+            fail("Verification should be rejected when the pool and its queue are full");
+        } catch (VerificationRejectedException e) {
+            // then
+            assertThat(e.getStatus()).isEqualTo(HttpStatus.SERVICE_UNAVAILABLE);
+            assertThat(e.getRetryAfterSeconds()).isPositive();
+        }
+        release.countDown();
+        assertThat(running.get()).isTrue();
+        assertThat(queued.get()).isTrue();
+        assertThat(metric("security.password-verification.rejected")).isEqualTo(1L);
+    }
+
+    @Test
+    public void matches_verificationLongerThanTimeout_isRejected() {
+        // given
+        executor = new PasswordVerificationExecutor(1, 1, 50);
+        PasswordEncoder encoder = executor.verifying(blocking);
+        // when
+        try {
+            encoder.matches("slow", "slow");
+            fail("Verification should be rejected after the timeout");
+        } catch (VerificationRejectedException e) {
+            // then
+            assertThat(e.getStatus()).isEqualTo(HttpStatus.SERVICE_UNAVAILABLE);
+        }
+        assertThat(metric("security.password-verification.rejected")).isEqualTo(1L);
+    }
+
+    private void awaitMetric(String name, long expected) throws InterruptedException {
+        long deadline = System.currentTimeMillis() + AWAIT_MILLIS;
+        while (metric(name) != expected) {
+            if (System.currentTimeMillis() > deadline) {
+                fail(name + " did not reach " + expected);
+            }
+            Thread.sleep(5);
+        }
+    }
+
+    private long metric(String name) {
+        for (Metric<?> metric : executor.metrics()) {
+            if (metric.getName().equals(name)) {
+                return metric.getValue().longValue();
+            }
+        }
+        throw new IllegalArgumentException(name);
+    }
+}
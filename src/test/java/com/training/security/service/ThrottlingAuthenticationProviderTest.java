@@ -0,0 +1,77 @@
+package com.training.security.service;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.mockito.Mock;
+import org.mockito.MockitoAnnotations;
+import org.springframework.security.authentication.AuthenticationProvider;
+import org.springframework.security.authentication.BadCredentialsException;
+import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+import org.springframework.security.core.Authentication;
+
+import static java.util.Collections.emptyList;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.junit.Assert.fail;
+import static org.mockito.Matchers.any;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+public class ThrottlingAuthenticationProviderTest {
+
+    private static final String LOGIN = "henio";
+    private static final Authentication WRONG = new UsernamePasswordAuthenticationToken(LOGIN, "wrong");
+    private static final Authentication RIGHT = new UsernamePasswordAuthenticationToken(LOGIN, "secret");
+    private static final Authentication AUTHENTICATED =
+            new UsernamePasswordAuthenticationToken(LOGIN, null, emptyList());
+
+    @Mock
+    private AuthenticationProvider delegate;
+
+    private ThrottlingAuthenticationProvider provider;
+
+    @Before
+    public void setUp() {
+        MockitoAnnotations.initMocks(this);
+        when(delegate.authenticate(WRONG)).thenThrow(new BadCredentialsException("Bad credentials"));
+        when(delegate.authenticate(RIGHT)).thenReturn(AUTHENTICATED);
+        provider = new ThrottlingAuthenticationProvider(delegate, new LoginAttemptThrottle(2, 60000, 60000, 100));
+    }
+
+    @Test
+    public void authenticate_failuresReachedThreshold_locksLoginOutWithoutVerifyingPassword() {
+        // given
+        failWith(WRONG);
+        failWith(WRONG);
+        // when
+        try {
+            provider.authenticate(RIGHT);
+            fail("Login should be locked out after too many failures");
+        } catch (AuthenticationThrottledException e) {
+            // then
+            assertThat(e.getRetryAfterSeconds()).isPositive();
+        }
+        verify(delegate, times(2)).authenticate(any(Authentication.class));
+    }
+
+    @Test
+    public void authenticate_successBeforeThreshold_resetsFailures() {
+        // given
+        failWith(WRONG);
+        provider.authenticate(RIGHT);
+        failWith(WRONG);
+        // when
+        Authentication result = provider.authenticate(RIGHT);
+        // then
+        assertThat(result).isSameAs(AUTHENTICATED);
+    }
+
+    private void failWith(Authentication authentication) {
+        try {
+            provider.authenticate(authentication);
+            fail("Bad credentials expected");
+        } catch (BadCredentialsException e) {
+            // expected
+        }
+    }
+}
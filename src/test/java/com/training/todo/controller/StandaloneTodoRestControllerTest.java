@@ -1,6 +1,9 @@
 package com.training.todo.controller;
 
+import com.training.todo.controller.dto.TodoSummaryDto;
+import com.training.todo.domain.Priority;
 import com.training.todo.domain.Todo;
+import com.training.todo.persistance.TodoChangeMarker;
 import com.training.todo.service.TodoService;
 import org.junit.Before;
 import org.junit.Test;
@@ -8,6 +11,7 @@ import org.junit.runner.RunWith;
 import org.mockito.*;
 import org.springframework.data.domain.PageImpl;
 import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.SliceImpl;
 import org.springframework.data.web.PageableHandlerMethodArgumentResolver;
 import org.springframework.test.context.junit4.SpringJUnit4ClassRunner;
 import org.springframework.test.web.servlet.MockMvc;
@@ -15,6 +19,7 @@ import org.springframework.test.web.servlet.MockMvc;
 import java.util.ArrayList;
 
 import static com.google.common.collect.Lists.newArrayList;
+import static java.util.Collections.singletonMap;
 import static com.training.utils.TestJsonUtils.APPLICATION_JSON_UTF8;
 import static com.training.utils.TestJsonUtils.convertObjectToJson;
 import static com.training.utils.TestTodoUtils.TODOS_URL;
@@ -23,9 +28,11 @@ import static org.assertj.core.api.Assertions.assertThat;
 import static org.hamcrest.Matchers.*;
 import static org.mockito.Matchers.any;
 import static org.mockito.Matchers.eq;
+import static org.mockito.Matchers.isNull;
 import static org.mockito.Mockito.*;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.*;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.content;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.header;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
 import static org.springframework.test.web.servlet.setup.MockMvcBuilders.standaloneSetup;
@@ -34,21 +41,24 @@ import static org.springframework.test.web.servlet.setup.MockMvcBuilders.standal
 @RunWith(SpringJUnit4ClassRunner.class)
 public class StandaloneTodoRestControllerTest {
 
-    private static final Todo TODO = new Todo(-1L, "nazwa", "priorytet", "opis", true, "user");
-    private static final Todo TODO_2 = new Todo(-1L, "nazwa2", "priorytet2", "opis2", true, "user");
+    private static final Todo TODO = new Todo(-1L, "nazwa", Priority.MEDIUM, "opis", true, "user");
+    private static final Todo TODO_2 = new Todo(-1L, "nazwa2", Priority.HIGH, "opis2", true, "user");
 
     private static final Todo WITHOUT_NAME = Todo.builder()
-            .priority("wazny")
+            .priority(Priority.HIGH)
             .description("opis")
             .completed(false)
             .build();
 
-    private static final ArrayList<Todo> TODOS = newArrayList(TODO, TODO_2);
+    private static final ArrayList<TodoSummaryDto> TODOS =
+            newArrayList(TodoSummaryDto.from(TODO), TodoSummaryDto.from(TODO_2));
 
     private static final long ID_FROM_URL = 1;
 
     private static final Long CREATED_ID = 1L;
 
+    private static final TodoChangeMarker CHANGE_MARKER = new TodoChangeMarker("user", 3L, 1500000000000L);
+
     private static final ArgumentCaptor<Todo> ARGUMENT = ArgumentCaptor.forClass(Todo.class);
 
     private MockMvc mockMvc;
@@ -59,6 +69,7 @@ public class StandaloneTodoRestControllerTest {
     @Before
     public void setUp(){
         MockitoAnnotations.initMocks(this);
+        when(todoService.getChangeMarker()).thenReturn(CHANGE_MARKER);
         mockMvc = standaloneSetup(new TodoRestController(todoService))
                 .setCustomArgumentResolvers(new PageableHandlerMethodArgumentResolver())
                 .build();
@@ -90,22 +101,59 @@ public class StandaloneTodoRestControllerTest {
     }
 
     @Test
-    public void getAll_todoFound_returnsTodoWithAllProperties() throws Exception {
+    public void getAll_todoFound_returnsTodoSummaryWithoutDescription() throws Exception {
         // given
         when( todoService.getAll(any(Pageable.class)))
-                .thenReturn(new PageImpl<>(newArrayList(TODO_2)));
+                .thenReturn(new PageImpl<>(newArrayList(TodoSummaryDto.from(TODO_2))));
         // when
         mockMvc.perform(get(TODOS_URL))
                 // then
                 .andExpect(jsonPath("$['content']", hasSize(1)))
                 .andExpect(jsonPath("$['content'].[0].id", is(TODO_2.getId().intValue())))
                 .andExpect(jsonPath("$['content'].[0].name", is(TODO_2.getName())))
-                .andExpect(jsonPath("$['content'].[0].priority", is(TODO_2.getPriority())))
-                .andExpect(jsonPath("$['content'].[0].description", is(TODO_2.getDescription())))
+                .andExpect(jsonPath("$['content'].[0].priority", is(TODO_2.getPriority().name())))
+                .andExpect(jsonPath("$['content'].[0].description").doesNotExist())
                 .andExpect(jsonPath("$['content'].[0].completed", is(TODO_2.isCompleted())))
                 .andExpect(jsonPath("$['content'].[0].username", is(TODO_2.getUsername())));
     }
 
+    @Test
+    public void getAll_todosFound_returnsChangeMarkerAsETagAndLastModified() throws Exception {
+        // given
+        when( todoService.getAll(any(Pageable.class)))
+                .thenReturn(new PageImpl<>(TODOS));
+        // when
+        mockMvc.perform(get(TODOS_URL))
+                // then
+                .andExpect(status().isOk())
+                .andExpect(header().string("ETag", CHANGE_MARKER.getETag()))
+                .andExpect(header().dateValue("Last-Modified", CHANGE_MARKER.getLastModified()));
+    }
+
+    @Test
+    public void getAll_ifNoneMatchWithCurrentETag_returns304WithoutReadingTodos() throws Exception {
+        // when
+        mockMvc.perform(get(TODOS_URL).header("If-None-Match", CHANGE_MARKER.getETag()))
+                // then
+                .andExpect(status().isNotModified())
+                .andExpect(content().string(""));
+        verify(todoService, times(0)).getAll(any(Pageable.class));
+    }
+
+    @Test
+    public void getAll_countDisabled_returnsSliceWithoutTotals() throws Exception {
+        // given
+        when( todoService.getSlice(any(Pageable.class)))
+                .thenReturn(new SliceImpl<>(TODOS));
+        // when
+        mockMvc.perform(get(TODOS_URL).param("count", "false"))
+                // then
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$['content']", hasSize(2)))
+                .andExpect(jsonPath("$.totalElements").doesNotExist());
+        verify(todoService, times(0)).getAll(any(Pageable.class));
+    }
+
     @Test
     public void post_elementWithoutName_returns400() throws Exception {
         //when
@@ -133,6 +181,25 @@ public class StandaloneTodoRestControllerTest {
         assertThatTodosAreEqualExceptId(ARGUMENT.getValue(), TODO);
     }
 
+    @Test
+    public void post_legacyPriorityLabels_mapsThemToPriorities() throws Exception {
+        // given
+        when( todoService.create(Matchers.isA(Todo.class)))
+                .thenReturn(CREATED_ID);
+        // when
+        for (String priority : new String[]{"\"Ważny\"", "\"sredni\"", "0", "\"nieznany\""}) {
+            mockMvc.perform(post(TODOS_URL)
+                    .contentType(APPLICATION_JSON_UTF8)
+                    .content("{\"name\": \"nazwa\", \"priority\": " + priority + "}"))
+                    // then
+                    .andExpect(status().isCreated());
+        }
+        ArgumentCaptor<Todo> created = ArgumentCaptor.forClass(Todo.class);
+        verify(todoService, times(4)).create(created.capture());
+        assertThat(created.getAllValues()).extracting(Todo::getPriority)
+                .containsExactly(Priority.HIGH, Priority.MEDIUM, Priority.LOW, null);
+    }
+
     private void assertThatTodosAreEqualExceptId(Todo expected, Todo actual) {
         assertThat(expected.getName()).isEqualTo(actual.getName());
         assertThat(expected.getPriority()).isEqualTo(actual.getPriority());
@@ -166,10 +233,48 @@ public class StandaloneTodoRestControllerTest {
         verify(todoService).update(eq(expectedTodo));
     }
 
+    @Test
+    public void put_ifMatchHeader_updatesConditionallyAndReturnsNewETag() throws Exception {
+        // given
+        Todo expectedTodo = withoutId().id(ID_FROM_URL).build();
+        when(todoService.update(eq(expectedTodo), eq(3L))).thenReturn(4L);
+        // when
+        mockMvc.perform(put(todosUrlWithId(ID_FROM_URL))
+                .header("If-Match", "\"3\"")
+                .contentType(APPLICATION_JSON_UTF8)
+                .content(convertObjectToJson(withoutId().build())))
+                // then
+                .andExpect(status().isOk())
+                .andExpect(header().string("ETag", "\"4\""));
+        verify(todoService, times(0)).update(any(Todo.class));
+    }
+
+    @Test
+    public void put_ifMatchHeaderWithoutVersion_returns412() throws Exception {
+        // when
+        mockMvc.perform(put(todosUrlWithId(ID_FROM_URL))
+                .header("If-Match", "\"abc\"")
+                .contentType(APPLICATION_JSON_UTF8)
+                .content(convertObjectToJson(withoutId().build())))
+                // then
+                .andExpect(status().isPreconditionFailed());
+    }
+
+    @Test
+    public void patch_mergePatch_passesOnlyGivenFieldsAndReturns204() throws Exception {
+        // when
+        mockMvc.perform(patch(todosUrlWithId(ID_FROM_URL))
+                .contentType(TodoRestController.MERGE_PATCH_JSON_VALUE)
+                .content("{\"completed\": true}"))
+                // then
+                .andExpect(status().isNoContent());
+        verify(todoService).patch(eq(ID_FROM_URL), eq(singletonMap("completed", (Object) true)), isNull(Long.class));
+    }
+
     private Todo.TodoBuilder withoutId() {
         return Todo.builder()
                 .name("update")
-                .priority("update")
+                .priority(Priority.LOW)
                 .description("Rozwiązać zadanie 2")
                 .completed(false);
     }
@@ -186,7 +291,7 @@ public class StandaloneTodoRestControllerTest {
     @Test
     public void get_todoFound_returnsTodoWithoutNullFields() throws Exception {
         // given
-        Todo todo = new Todo(-1L, "nazwa2", "priorytet2", "opis2", true, null);
+        Todo todo = new Todo(-1L, "nazwa2", Priority.HIGH, "opis2", true, null);
         when( todoService.get(ID_FROM_URL)).thenReturn(todo);
         // when
         mockMvc.perform(get(todosUrlWithId(ID_FROM_URL)))
@@ -194,9 +299,33 @@ public class StandaloneTodoRestControllerTest {
                 .andExpect(status().isOk())
                 .andExpect(jsonPath("$.id", is(todo.getId().intValue())))
                 .andExpect(jsonPath("$.name", is(todo.getName())))
-                .andExpect(jsonPath("$.priority", is(todo.getPriority())))
+                .andExpect(jsonPath("$.priority", is(todo.getPriority().name())))
                 .andExpect(jsonPath("$.description", is(todo.getDescription())))
                 .andExpect(jsonPath("$.completed", is(todo.isCompleted())))
                 .andExpect(jsonPath("$.username").doesNotExist());
     }
+
+    @Test
+    public void get_ifNoneMatchWithCurrentVersion_returns304WithoutLoadingTodo() throws Exception {
+        // given
+        when( todoService.getVersion(ID_FROM_URL)).thenReturn(7L);
+        // when
+        mockMvc.perform(get(todosUrlWithId(ID_FROM_URL)).header("If-None-Match", "\"7\""))
+                // then
+                .andExpect(status().isNotModified())
+                .andExpect(header().string("ETag", "\"7\""));
+        verify(todoService, times(0)).get(ID_FROM_URL);
+    }
+
+    @Test
+    public void get_versionedTodo_returnsVersionAsETag() throws Exception {
+        // given
+        Todo todo = Todo.builder().id(ID_FROM_URL).name("nazwa").version(7L).build();
+        when( todoService.get(ID_FROM_URL)).thenReturn(todo);
+        // when
+        mockMvc.perform(get(todosUrlWithId(ID_FROM_URL)))
+                // then
+                .andExpect(status().isOk())
+                .andExpect(header().string("ETag", "\"7\""));
+    }
 }
\ No newline at end of file
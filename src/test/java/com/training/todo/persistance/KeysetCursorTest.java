@@ -0,0 +1,60 @@
+package com.training.todo.persistance;
+
+import com.training.todo.controller.dto.TodoSummaryDto;
+import com.training.todo.domain.Priority;
+import com.training.todo.utils.InvalidCursorException;
+import org.junit.Test;
+import org.springframework.data.domain.Sort;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.junit.Assert.fail;
+
+public class KeysetCursorTest {
+
+    private static final TodoSummaryDto LAST =
+            new TodoSummaryDto(7L, "nazwa|z|separatorem", Priority.HIGH, false, "henio", 0L);
+
+    @Test
+    public void of_emptyCursorWithoutSort_startsFromLowestId() {
+        // when
+        KeysetCursor cursor = KeysetCursor.of("", null);
+        // then
+        assertThat(cursor.isFirst()).isTrue();
+        assertThat(cursor.getKey()).isEqualTo(KeysetCursor.Key.ID);
+        assertThat(cursor.getDirection()).isEqualTo(Sort.Direction.ASC);
+    }
+
+    @Test
+    public void decode_encodedCursor_returnsEqualCursor() {
+        // given
+        KeysetCursor cursor = KeysetCursor.first(new Sort(Sort.Direction.DESC, "name")).after(LAST);
+        // when
+        KeysetCursor decoded = KeysetCursor.decode(cursor.encode());
+        // then
+        assertThat(decoded).isEqualTo(cursor);
+        assertThat(decoded.getValue()).isEqualTo(LAST.getName());
+        assertThat(decoded.getId()).isEqualTo(LAST.getId());
+    }
+
+    @Test
+    public void first_sortByUnsupportedProperty_throwsInvalidCursorException() {
+        try {
+            // when
+            KeysetCursor.first(new Sort("description"));
+            fail();
+        } catch (InvalidCursorException e) {
+            // then
+        }
+    }
+
+    @Test
+    public void decode_malformedCursor_throwsInvalidCursorException() {
+        try {
+            // when
+            KeysetCursor.decode("to-nie-jest-kursor");
+            fail();
+        } catch (InvalidCursorException e) {
+            // then
+        }
+    }
+}
@@ -0,0 +1,53 @@
+package com.training.todo.persistance;
+
+import com.training.todo.controller.dto.TodoStatsDto;
+import com.training.todo.domain.Priority;
+import com.training.todo.domain.Todo;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.jdbc.JdbcTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.junit4.SpringRunner;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.entry;
+
+@RunWith(SpringRunner.class)
+@JdbcTest
+public class TodoCounterRepositoryTest {
+
+    private static final String HENIO = "henio";
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    private TodoCounterRepository counterRepository;
+
+    @Before
+    public void setUp() {
+        counterRepository = new TodoCounterRepository(jdbcTemplate);
+    }
+
+    @Test
+    public void moved_priorityChangedOrNot_movesTodoBetweenCountersOnlyWhenGroupChanged() {
+        // given
+        counterRepository.added(todo(null, false, HENIO));
+        counterRepository.added(todo(Priority.HIGH, false, HENIO));
+        // when
+        counterRepository.moved(new TodoState(HENIO, "todo", null, null, false, 0L),
+                todo(null, false, HENIO));
+        counterRepository.moved(new TodoState(HENIO, "todo", null, Priority.HIGH, false, 0L),
+                todo(Priority.LOW, true, HENIO));
+        // then
+        TodoStatsDto stats = counterRepository.stats(HENIO);
+        assertThat(stats.getTotal()).isEqualTo(2);
+        assertThat(stats.getCompleted()).isEqualTo(1);
+        assertThat(stats.getByPriority()).containsOnly(entry(Priority.HIGH, 0L), entry(Priority.LOW, 1L));
+    }
+
+    private static Todo todo(Priority priority, boolean completed, String username) {
+        return Todo.builder().name("todo").priority(priority).completed(completed).username(username).build();
+    }
+}
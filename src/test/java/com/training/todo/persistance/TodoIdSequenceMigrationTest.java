@@ -0,0 +1,64 @@
+package com.training.todo.persistance;
+
+import org.flywaydb.core.Flyway;
+import org.flywaydb.core.api.MigrationVersion;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.embedded.EmbeddedDatabase;
+import org.springframework.jdbc.datasource.embedded.EmbeddedDatabaseBuilder;
+import org.springframework.jdbc.datasource.embedded.EmbeddedDatabaseType;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Migracja V4 na bazie z todo, ktore dostaly id z kolumny IDENTITY
+ */
+public class TodoIdSequenceMigrationTest {
+
+    private EmbeddedDatabase database;
+    private JdbcTemplate jdbcTemplate;
+    private Flyway flyway;
+
+    @Before
+    public void setUp() {
+        database = new EmbeddedDatabaseBuilder()
+                .setType(EmbeddedDatabaseType.HSQL)
+                .generateUniqueName(true)
+                .build();
+        jdbcTemplate = new JdbcTemplate(database);
+        flyway = new Flyway();
+        flyway.setDataSource(database);
+    }
+
+    @After
+    public void tearDown() {
+        database.shutdown();
+    }
+
+    @Test
+    public void migrate_existingTodos_startsSequenceAboveTheirIds() {
+        // given
+        flyway.setTarget(MigrationVersion.fromVersion("3"));
+        flyway.migrate();
+        jdbcTemplate.update("INSERT INTO users (login, password_hash, role) VALUES ('henio', 'hash', 0)");
+        for (long id : new long[]{1, 2, 120}) {
+            jdbcTemplate.update("INSERT INTO todos (id, name, completed, username) VALUES (?, 'todo', FALSE, 'henio')",
+                    id);
+        }
+        // when
+        flyway.setTarget(MigrationVersion.LATEST);
+        flyway.migrate();
+        // then
+        assertThat(jdbcTemplate.queryForObject("VALUES NEXT VALUE FOR todo_seq", Long.class)).isEqualTo(121L);
+    }
+
+    @Test
+    public void migrate_emptyDatabase_startsSequenceAtOne() {
+        // when
+        flyway.migrate();
+        // then
+        assertThat(jdbcTemplate.queryForObject("VALUES NEXT VALUE FOR todo_seq", Long.class)).isEqualTo(1L);
+    }
+}
@@ -0,0 +1,233 @@
+package com.training.todo.persistance;
+
+import com.training.todo.controller.dto.TodoSummaryDto;
+import com.training.todo.domain.Priority;
+import com.training.todo.domain.Todo;
+import com.training.todo.utils.InvalidSortException;
+import com.training.user.domain.User;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.boot.test.autoconfigure.orm.jpa.TestEntityManager;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Slice;
+import org.springframework.data.domain.Sort;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.junit4.SpringRunner;
+
+import javax.sql.DataSource;
+import java.util.List;
+import java.util.stream.Collectors;
+
+import static com.google.common.collect.Lists.newArrayList;
+import static java.util.Collections.singletonMap;
+import static org.assertj.core.api.Assertions.assertThat;
+
+@RunWith(SpringRunner.class)
+@DataJpaTest
+public class TodoJpaRepositoryTest {
+
+    private static final String HENIO = "henio";
+    private static final String OTHER = "other";
+
+    @Autowired
+    private TestEntityManager entityManager;
+
+    @Autowired
+    private TodoJpaRepository todoRepository;
+
+    @Autowired
+    private DataSource dataSource;
+
+    @Before
+    public void setUp() {
+        entityManager.persist(User.builder().login(HENIO).passwordHash("henio").role(User.Role.USER).build());
+        entityManager.persist(User.builder().login(OTHER).passwordHash("other").role(User.Role.USER).build());
+        for (String name : new String[]{"c", "a", "b", "a", "c"}) {
+            entityManager.persist(Todo.builder().name(name).priority(Priority.HIGH).username(HENIO).build());
+        }
+        entityManager.persist(Todo.builder().name("a").priority(Priority.HIGH).username(OTHER).build());
+        entityManager.flush();
+    }
+
+    @Test
+    public void findAfter_followingCursors_returnsAllUserTodosOnceInKeyOrder() {
+        // given
+        KeysetCursor cursor = KeysetCursor.first(new Sort("name"));
+        TodoFilter own = TodoFilter.builder().username(HENIO).build();
+        // when
+        KeysetSlice<TodoSummaryDto> first = todoRepository.findAfter(own, cursor, 2);
+        KeysetSlice<TodoSummaryDto> second = todoRepository.findAfter(own, KeysetCursor.decode(first.getNext()), 2);
+        KeysetSlice<TodoSummaryDto> third = todoRepository.findAfter(own, KeysetCursor.decode(second.getNext()), 2);
+        // then
+        assertThat(names(first.getContent())).containsExactly("a", "a");
+        assertThat(names(second.getContent())).containsExactly("b", "c");
+        assertThat(names(third.getContent())).containsExactly("c");
+        assertThat(third.isHasNext()).isFalse();
+    }
+
+    @Test
+    public void findAfter_descendingById_returnsNewestFirst() {
+        // given
+        KeysetCursor cursor = KeysetCursor.first(new Sort(Sort.Direction.DESC, "id"));
+        // when
+        KeysetSlice<TodoSummaryDto> slice = todoRepository.findAfter(TodoFilter.builder().name("a").build(), cursor, 10);
+        // then
+        assertThat(slice.getContent()).hasSize(3);
+        assertThat(slice.getContent().get(0).getUsername()).isEqualTo(OTHER);
+        assertThat(slice.getContent().get(0).getId()).isGreaterThan(slice.getContent().get(1).getId());
+        assertThat(slice.isHasNext()).isFalse();
+    }
+
+    @Test
+    public void findSliceByUsername_morePagesAvailable_reportsNextWithoutTotal() {
+        // when
+        Slice<TodoSummaryDto> slice = todoRepository.findSliceByUsername(HENIO, new PageRequest(0, 3));
+        // then
+        assertThat(slice.getContent()).hasSize(3);
+        assertThat(slice.hasNext()).isTrue();
+        assertThat(slice).isNotInstanceOf(Page.class);
+    }
+
+    @Test
+    public void updateOwnedIfVersion_todoOfOtherUser_changesOnlyWhenAdmin() {
+        // given
+        Long othersId = todoRepository.findSliceByUsername(OTHER, new PageRequest(0, 1)).getContent().get(0).getId();
+        Todo othersTodo = Todo.builder().id(othersId).name("zmieniona").priority(Priority.HIGH).build();
+        // when
+        TodoState seenByOwner = todoRepository.findOwnedState(othersId, HENIO, false);
+        TodoState seenByAdmin = todoRepository.findOwnedState(othersId, HENIO, true);
+        int updatedByOwner = todoRepository.updateOwnedIfVersion(othersTodo, seenByAdmin.getVersion(), HENIO, false);
+        int updatedByAdmin = todoRepository.updateOwnedIfVersion(othersTodo, seenByAdmin.getVersion(), HENIO, true);
+        int updatedAgain = todoRepository.updateOwnedIfVersion(othersTodo, seenByAdmin.getVersion(), HENIO, true);
+        // then
+        assertThat(seenByOwner).isNull();
+        assertThat(seenByAdmin.getUsername()).isEqualTo(OTHER);
+        assertThat(updatedByOwner).isZero();
+        assertThat(updatedByAdmin).isEqualTo(1);
+        assertThat(updatedAgain).isZero();
+        assertThat(todoRepository.findOne(othersId).getName()).isEqualTo("zmieniona");
+    }
+
+    @Test
+    public void deleteOwned_ownAndOthersTodo_deletesOnlyOwn() {
+        // given
+        Long ownId = todoRepository.findSliceByUsername(HENIO, new PageRequest(0, 1)).getContent().get(0).getId();
+        Long othersId = todoRepository.findSliceByUsername(OTHER, new PageRequest(0, 1)).getContent().get(0).getId();
+        // when
+        int deletedOwn = todoRepository.deleteOwned(ownId, HENIO, false);
+        int deletedOthers = todoRepository.deleteOwned(othersId, HENIO, false);
+        // then
+        assertThat(deletedOwn).isEqualTo(1);
+        assertThat(deletedOthers).isZero();
+        assertThat(todoRepository.findOwned(othersId, OTHER, false)).isNotNull();
+    }
+
+    @Test
+    public void patchOwned_completedOnly_keepsOtherColumnsAndBumpsVersion() {
+        // given
+        TodoSummaryDto own = todoRepository.findSliceByUsername(HENIO, new PageRequest(0, 1)).getContent().get(0);
+        // when
+        int patched = todoRepository.patchOwned(own.getId(), singletonMap("completed", true), own.getVersion(), HENIO, false);
+        // then
+        Todo stored = todoRepository.findOne(own.getId());
+        assertThat(patched).isEqualTo(1);
+        assertThat(stored.isCompleted()).isTrue();
+        assertThat(stored.getName()).isEqualTo(own.getName());
+        assertThat(stored.getPriority()).isEqualTo(own.getPriority());
+        assertThat(stored.getVersion()).isEqualTo(own.getVersion() + 1);
+    }
+
+    @Test
+    public void findNameContaining_fragmentInOtherCase_returnsOnlyOwnTodosContainingIt() {
+        // given
+        List<Todo> todos = newArrayList(
+                entityManager.persist(Todo.builder().name("Pay Invoice #42").username(HENIO).build()),
+                entityManager.persist(Todo.builder().name("Invoicing").username(HENIO).build()),
+                entityManager.persist(Todo.builder().name("Rabat 10%").username(HENIO).build()),
+                entityManager.persist(Todo.builder().name("Rabat 100").username(HENIO).build()),
+                entityManager.persist(Todo.builder().name("invoice").username(OTHER).build()));
+        entityManager.flush();
+        new TodoTrigramRepository(new JdbcTemplate(dataSource)).addedAll(todos);
+        // when
+        Page<TodoSummaryDto> invoices = todoRepository.find(
+                TodoFilter.builder().username(HENIO).nameContains("INVOICE").build(), new PageRequest(0, 10));
+        Page<TodoSummaryDto> percent = todoRepository.find(
+                TodoFilter.builder().username(HENIO).nameContains("10%").build(), new PageRequest(0, 10));
+        Page<TodoSummaryDto> shortFragment = todoRepository.find(
+                TodoFilter.builder().nameContains("b").build(), new PageRequest(0, 10));
+        // then
+        assertThat(names(invoices.getContent())).containsExactly("Pay Invoice #42");
+        assertThat(invoices.getTotalElements()).isEqualTo(1);
+        assertThat(names(percent.getContent())).containsExactly("Rabat 10%");
+        assertThat(names(shortFragment.getContent())).containsExactly("b", "Rabat 10%", "Rabat 100");
+    }
+
+    @Test
+    public void find_anyFilterCombinationAndManySortFields_appliesAllOfThem() {
+        // given
+        entityManager.persist(
+                Todo.builder().name("d").priority(Priority.MEDIUM).completed(true).username(HENIO).build());
+        entityManager.persist(Todo.builder().name("e").priority(Priority.MEDIUM).username(HENIO).build());
+        entityManager.flush();
+        TodoFilter notCompleted = TodoFilter.builder()
+                .username(HENIO)
+                .priorities(newArrayList(Priority.HIGH, Priority.MEDIUM))
+                .completed(false)
+                .build();
+        // when
+        Page<TodoSummaryDto> page = todoRepository.find(notCompleted,
+                new PageRequest(0, 4, new Sort(Sort.Direction.DESC, "priority").and(new Sort("name"))));
+        Slice<TodoSummaryDto> slice = todoRepository.findSlice(notCompleted, new PageRequest(1, 4));
+        // then
+        assertThat(names(page.getContent())).containsExactly("a", "a", "b", "c");
+        assertThat(page.getContent().get(0).getPriority()).isEqualTo(Priority.HIGH);
+        assertThat(page.getTotalElements()).isEqualTo(6);
+        assertThat(slice.getContent()).hasSize(2);
+        assertThat(slice.hasNext()).isFalse();
+    }
+
+    @Test
+    public void countGroups_filterWithPriorityAndState_groupsAllTodosMatchingTheRest() {
+        // given
+        entityManager.persist(
+                Todo.builder().name("a").priority(Priority.MEDIUM).completed(true).username(HENIO).build());
+        entityManager.persist(Todo.builder().name("a").username(HENIO).build());
+        entityManager.flush();
+        TodoFilter filter = TodoFilter.builder().username(HENIO).name("a").priorities(newArrayList(Priority.MEDIUM))
+                .completed(true).build();
+        // when
+        List<TodoCountGroup> groups = todoRepository.countGroups(filter);
+        // then
+        assertThat(groups).containsOnly(
+                new TodoCountGroup(Priority.HIGH, false, 2),
+                new TodoCountGroup(Priority.MEDIUM, true, 1),
+                new TodoCountGroup(null, false, 1));
+    }
+
+    @Test
+    public void find_sortByPriorityDescending_returnsHighestFirstAndTodosWithoutPriorityLast() {
+        // given
+        entityManager.persist(Todo.builder().name("bez priorytetu").username(OTHER).build());
+        entityManager.persist(Todo.builder().name("niski").priority(Priority.LOW).username(OTHER).build());
+        entityManager.persist(Todo.builder().name("sredni").priority(Priority.MEDIUM).username(OTHER).build());
+        entityManager.flush();
+        // when
+        Page<TodoSummaryDto> page = todoRepository.find(TodoFilter.builder().username(OTHER).build(),
+                new PageRequest(0, 10, new Sort(Sort.Direction.DESC, "priority")));
+        // then
+        assertThat(names(page.getContent())).containsExactly("a", "sredni", "niski", "bez priorytetu");
+    }
+
+    @Test(expected = InvalidSortException.class)
+    public void find_sortByUnknownProperty_isRejected() {
+        todoRepository.find(TodoFilter.builder().build(), new PageRequest(0, 10, new Sort("description")));
+    }
+
+    private static List<String> names(List<TodoSummaryDto> todos) {
+        return todos.stream().map(TodoSummaryDto::getName).collect(Collectors.toList());
+    }
+}
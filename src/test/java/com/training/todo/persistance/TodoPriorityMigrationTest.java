@@ -0,0 +1,86 @@
+package com.training.todo.persistance;
+
+import com.training.todo.domain.Priority;
+import org.flywaydb.core.Flyway;
+import org.flywaydb.core.api.MigrationVersion;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.embedded.EmbeddedDatabase;
+import org.springframework.jdbc.datasource.embedded.EmbeddedDatabaseBuilder;
+import org.springframework.jdbc.datasource.embedded.EmbeddedDatabaseType;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.stream.Collectors;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Migracja V8 na bazie z danymi zapisanymi przez poprzednia wersje (priorytet jako dowolny napis)
+ */
+public class TodoPriorityMigrationTest {
+
+    private static final String INSERT_TODO =
+            "INSERT INTO todos (id, name, priority, completed, username) VALUES (?, 'todo', ?, FALSE, 'henio')";
+
+    private EmbeddedDatabase database;
+    private JdbcTemplate jdbcTemplate;
+    private Flyway flyway;
+
+    @Before
+    public void setUp() {
+        database = new EmbeddedDatabaseBuilder()
+                .setType(EmbeddedDatabaseType.HSQL)
+                .generateUniqueName(true)
+                .build();
+        jdbcTemplate = new JdbcTemplate(database);
+        flyway = new Flyway();
+        flyway.setDataSource(database);
+        flyway.setTarget(MigrationVersion.fromVersion("7"));
+        flyway.migrate();
+        jdbcTemplate.update("INSERT INTO users (login, password_hash, role) VALUES ('henio', 'hash', 0)");
+    }
+
+    @After
+    public void tearDown() {
+        database.shutdown();
+    }
+
+    @Test
+    public void migrate_legacyPriorityLabels_storesTheirLevelsAndRebuildsCounters() {
+        // given
+        List<String> labels = Arrays.asList("wysoki", " Ważny ", "HIGH", "sredni", "Niski", "cokolwiek", null);
+        for (int i = 0; i < labels.size(); i++) {
+            jdbcTemplate.update(INSERT_TODO, i + 1L, labels.get(i));
+        }
+        // when
+        flyway.setTarget(MigrationVersion.LATEST);
+        flyway.migrate();
+        // then
+        List<Integer> levels = jdbcTemplate.queryForList(
+                "SELECT priority_level FROM todos ORDER BY id", Integer.class);
+        List<Integer> expected = labels.stream()
+                .map(label -> label == null ? null : Priority.of(label))
+                .map(priority -> priority == null ? null : priority.ordinal())
+                .collect(Collectors.toList());
+        assertThat(levels).isEqualTo(expected)
+                .containsExactly(2, 2, 2, 1, 0, null, null);
+        assertThat(new TodoCounterRepository(jdbcTemplate).stats("henio").getByPriority())
+                .containsEntry(Priority.HIGH, 3L)
+                .containsEntry(Priority.MEDIUM, 1L)
+                .containsEntry(Priority.LOW, 1L);
+        assertThat(new TodoCounterRepository(jdbcTemplate).count("henio", null)).isEqualTo(labels.size());
+    }
+
+    @Test
+    public void migrate_legacyPriorityColumn_isDropped() {
+        // when
+        flyway.setTarget(MigrationVersion.LATEST);
+        flyway.migrate();
+        // then
+        assertThat(jdbcTemplate.queryForObject("SELECT COUNT(*) FROM INFORMATION_SCHEMA.COLUMNS " +
+                "WHERE TABLE_NAME = 'TODOS' AND COLUMN_NAME = 'PRIORITY'", Integer.class)).isZero();
+    }
+}
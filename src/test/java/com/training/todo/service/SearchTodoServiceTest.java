@@ -2,9 +2,18 @@ package com.training.todo.service;
 
 
 import com.training.security.service.CurrentUserProvider;
+import com.training.todo.controller.dto.TodoFacetedPageDto;
 import com.training.todo.controller.dto.TodoSearchParamsDto;
+import com.training.todo.controller.dto.TodoSummaryDto;
+import com.training.todo.domain.Priority;
 import com.training.todo.domain.Todo;
+import com.training.todo.persistance.TodoCountGroup;
+import com.training.todo.persistance.TodoCounterRepository;
+import com.training.todo.persistance.TodoFilter;
 import com.training.todo.persistance.TodoJpaRepository;
+import com.training.todo.utils.ForbiddenException;
+import com.training.todo.utils.IndexNotReadyException;
+import com.training.todo.utils.InvalidPriorityException;
 import org.junit.Before;
 import org.junit.Test;
 import org.mockito.InjectMocks;
@@ -12,6 +21,9 @@ import org.mockito.Mock;
 import org.mockito.MockitoAnnotations;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.PageImpl;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Slice;
+import org.springframework.data.domain.SliceImpl;
 
 import java.util.ArrayList;
 
@@ -21,45 +33,57 @@ import static com.training.utils.FakeUsers.ADMIN_USER;
 import static com.training.utils.FakeUsers.PLAIN_USER;
 import static java.util.Collections.emptyList;
 import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.catchThrowable;
+import static org.assertj.core.api.Assertions.entry;
 import static org.mockito.Matchers.eq;
 import static org.mockito.Mockito.*;
 
 public class SearchTodoServiceTest {
 
-    private static final String PRIORITY = "priorytet";
+    private static final Priority PRIORITY = Priority.MEDIUM;
     private static final String NAME = "nazwa";
+    private static final PageRequest ONE_PER_PAGE = new PageRequest(0, 1);
 
-    private static final Todo UNIQUE_NAME = new Todo(
-            1L, "unikalna nazwa", PRIORITY, "opis", true, PLAIN_USER.getLogin());
+    private static final TodoSummaryDto UNIQUE_NAME = TodoSummaryDto.from(new Todo(
+            1L, "unikalna nazwa", PRIORITY, "opis", true, PLAIN_USER.getLogin()));
 
-    private static final Todo UNIQUE_PRIORITY = new Todo(
-            1L, NAME, "unikalny priorytet", "opis", true, PLAIN_USER.getLogin());
+    private static final TodoSummaryDto UNIQUE_PRIORITY = TodoSummaryDto.from(new Todo(
+            1L, NAME, Priority.HIGH, "opis", true, PLAIN_USER.getLogin()));
 
-    private static final Todo UNIQUE_NAME_AND_PRIORITY = new Todo(
-            1L, "unikalna nazwa i priorytet", "unikalna nazwa i priorytet", "opis", true, ADMIN_USER.getLogin());
+    private static final TodoSummaryDto UNIQUE_NAME_AND_PRIORITY = TodoSummaryDto.from(new Todo(
+            1L, "unikalna nazwa i priorytet", Priority.LOW, "opis", true, ADMIN_USER.getLogin()));
 
-    private static final Todo NOT_UNIQUE = new Todo(
-            1L, NAME, PRIORITY, "opis", true, ADMIN_USER.getLogin());
+    private static final TodoSummaryDto NOT_UNIQUE = TodoSummaryDto.from(new Todo(
+            1L, NAME, PRIORITY, "opis", true, ADMIN_USER.getLogin()));
 
-    private static final Todo ANOTHER_NOT_UNIQUE = new Todo(
-            1L, NAME, PRIORITY, "opis", true, ADMIN_USER.getLogin());
+    private static final TodoSummaryDto ANOTHER_NOT_UNIQUE = TodoSummaryDto.from(new Todo(
+            1L, NAME, PRIORITY, "opis", true, ADMIN_USER.getLogin()));
 
-    private static final Todo PLAIN_USER_TODO_WITH_UNIQUE_NAME = UNIQUE_NAME;
-    private static final Todo PLAIN_USER_TODO_WITH_UNIQUE_PRIORITY = UNIQUE_PRIORITY;
+    private static final TodoSummaryDto PLAIN_USER_TODO_WITH_UNIQUE_NAME = UNIQUE_NAME;
+    private static final TodoSummaryDto PLAIN_USER_TODO_WITH_UNIQUE_PRIORITY = UNIQUE_PRIORITY;
 
     @Mock
     private TodoJpaRepository fakeRepository;
 
+    @Mock
+    private TodoCounterRepository counterRepository;
+
     @Mock
     private CurrentUserProvider currentUserProvider;
 
+    @Mock
+    private TodoFullTextIndex fullTextIndex;
+
+    @Mock
+    private TodoNameSuggestions nameSuggestions;
+
     @InjectMocks
     private SearchTodoService searchService;
 
-    private final ArrayList<Todo> todos = todos();
+    private final ArrayList<TodoSummaryDto> todos = todos();
 
-    private ArrayList<Todo> todos() {
-        ArrayList<Todo> fakeTodos = new ArrayList<>();
+    private ArrayList<TodoSummaryDto> todos() {
+        ArrayList<TodoSummaryDto> fakeTodos = new ArrayList<>();
         fakeTodos.add(NOT_UNIQUE);
         fakeTodos.add(ANOTHER_NOT_UNIQUE);
         fakeTodos.add(UNIQUE_NAME);
@@ -76,44 +100,108 @@ public class SearchTodoServiceTest {
     @Test
     public void findForAdmin_searchByNameOnly_returnsElementFoundInRepo() {
         //given
-        Todo todo = new Todo(1L, "nazwa", "priorytet", "opis", true, null);
+        TodoSummaryDto todo = TodoSummaryDto.from(new Todo(1L, "nazwa", PRIORITY, "opis", true, null));
         TodoSearchParamsDto searchParams = new TodoSearchParamsDto("nazwa", null);
         whenAdminIsLoggedIn();
-        when(fakeRepository.findByName(eq(searchParams.getName()), eq(FAKE_PAGEABLE)))
+        when(fakeRepository.find(eq(filter(null, "nazwa")), eq(FAKE_PAGEABLE)))
                 .thenReturn(newPage(todo));
         //when
-        Page<Todo> todos = searchService.find(searchParams, FAKE_PAGEABLE);
+        Page<TodoSummaryDto> todos = searchService.find(searchParams, FAKE_PAGEABLE);
         //then
         assertThat(todos).hasSize(1);
         assertThat(todos).contains(todo);
         assertThat(todos.getContent().get(0)).isEqualTo(todo);
-        verify(fakeRepository, times(1))
-                .findByName(eq(searchParams.getName()), eq(FAKE_PAGEABLE));
+        verify(fakeRepository, times(1)).find(eq(filter(null, "nazwa")), eq(FAKE_PAGEABLE));
+        verifyNoMoreInteractions(fakeRepository);
+    }
+
+    @Test
+    public void findSlice_adminWithoutFilters_readsAllTodosWithoutCounting() {
+        //given
+        whenAdminIsLoggedIn();
+        when(fakeRepository.findSlice(eq(filter(null, null)), eq(FAKE_PAGEABLE))).thenReturn(new SliceImpl<>(todos));
+        //when
+        Slice<TodoSummaryDto> actualTodos = searchService.findSlice(new TodoSearchParamsDto("", null), FAKE_PAGEABLE);
+        //then
+        assertThat(actualTodos.getContent()).isEqualTo(todos);
+        verify(fakeRepository).findSlice(eq(filter(null, null)), eq(FAKE_PAGEABLE));
+        verifyNoMoreInteractions(fakeRepository);
+        verifyZeroInteractions(counterRepository);
+    }
+
+    @Test
+    public void findSlice_userSearchesByPriority_readsOnlyOwnTodosWithoutCounting() {
+        //given
+        when(currentUserProvider.getCurrentUserName()).thenReturn(PLAIN_USER.getLogin());
+        TodoFilter filter = filter(PLAIN_USER.getLogin(), null, PRIORITY);
+        when(fakeRepository.findSlice(filter, FAKE_PAGEABLE)).thenReturn(new SliceImpl<>(newArrayList(UNIQUE_NAME)));
+        //when
+        Slice<TodoSummaryDto> actualTodos = searchService.findSlice(new TodoSearchParamsDto(null, "sredni"),
+                FAKE_PAGEABLE);
+        //then
+        assertThat(actualTodos.getContent()).containsExactly(UNIQUE_NAME);
+        verify(fakeRepository).findSlice(filter, FAKE_PAGEABLE);
         verifyNoMoreInteractions(fakeRepository);
     }
 
+    @Test
+    public void findSlice_userSearchesOtherUsersTodos_throwsForbidden() {
+        //given
+        whenPlainUserIsLoggedInThenReturnHisLogin();
+        TodoSearchParamsDto searchParams = new TodoSearchParamsDto(null, null, null, null, ADMIN_USER.getLogin());
+        //when
+        Throwable thrown = catchThrowable(() -> searchService.findSlice(searchParams, FAKE_PAGEABLE));
+        //then
+        assertThat(thrown).isInstanceOf(ForbiddenException.class);
+        verifyZeroInteractions(fakeRepository);
+    }
+
+    @Test
+    public void findForAdmin_manyFiltersAndPriorityList_passesThemAllInOneFilter() {
+        //given
+        whenAdminIsLoggedIn();
+        TodoSearchParamsDto searchParams = new TodoSearchParamsDto(NAME, "niski, wysoki", false, "azw",
+                PLAIN_USER.getLogin());
+        TodoFilter filter = TodoFilter.builder()
+                .username(PLAIN_USER.getLogin())
+                .name(NAME)
+                .nameContains("azw")
+                .priorities(newArrayList(Priority.LOW, Priority.HIGH))
+                .completed(false)
+                .build();
+        when(fakeRepository.find(filter, FAKE_PAGEABLE)).thenReturn(newPage(NOT_UNIQUE));
+        //when
+        Page<TodoSummaryDto> actualTodos = searchService.find(searchParams, FAKE_PAGEABLE);
+        //then
+        assertThat(actualTodos).containsOnly(NOT_UNIQUE);
+        verifyZeroInteractions(counterRepository);
+    }
+
     private void whenAdminIsLoggedIn() {
         when(currentUserProvider.isAdminLoggedIn()).thenReturn(true);
     }
 
-    private Page<Todo> newPage(Todo... todos) {
+    private Page<TodoSummaryDto> newPage(TodoSummaryDto... todos) {
         return new PageImpl<>(newArrayList(todos));
     }
 
+    private static TodoFilter filter(String username, String name, Priority... priorities) {
+        return TodoFilter.builder().username(username).name(name).priorities(newArrayList(priorities)).build();
+    }
+
     @Test
     public void findForAdmin_searchByNameOnlyWhenThereIsNoMatchInRepo_returnsEmptyList() {
         //given
         TodoSearchParamsDto searchParams = new TodoSearchParamsDto(
                 "nazwa1234", null);
         whenAdminIsLoggedIn();
-        when(fakeRepository.findByName(eq(searchParams.getName()), eq(FAKE_PAGEABLE)))
+        when(fakeRepository.find(eq(filter(null, "nazwa1234")), eq(FAKE_PAGEABLE)))
                 .thenReturn(new PageImpl<>(emptyList()));
         //when
-        Page<Todo> actualTodos = searchService.find(searchParams, FAKE_PAGEABLE);
+        Page<TodoSummaryDto> actualTodos = searchService.find(searchParams, FAKE_PAGEABLE);
         //then
         assertThat(actualTodos).isEmpty();
-        verify(fakeRepository, times(1))
-                .findByName(eq(searchParams.getName()), eq(FAKE_PAGEABLE));
+        verify(fakeRepository, times(1)).find(eq(filter(null, "nazwa1234")), eq(FAKE_PAGEABLE));
     }
 
     @Test
@@ -122,65 +210,64 @@ public class SearchTodoServiceTest {
         TodoSearchParamsDto searchParams = new TodoSearchParamsDto(
                 NAME, null);
         whenAdminIsLoggedIn();
-        when(fakeRepository.findByName(eq(searchParams.getName()), eq(FAKE_PAGEABLE)))
+        when(fakeRepository.find(eq(filter(null, NAME)), eq(FAKE_PAGEABLE)))
                 .thenReturn(newPage(UNIQUE_PRIORITY, NOT_UNIQUE, ANOTHER_NOT_UNIQUE));
         //when
-        Page<Todo> actualTodos = searchService.find(searchParams, FAKE_PAGEABLE);
+        Page<TodoSummaryDto> actualTodos = searchService.find(searchParams, FAKE_PAGEABLE);
         //then
         assertThat(actualTodos.getContent().size()).isEqualTo(3);
         assertThat(actualTodos).containsOnly(UNIQUE_PRIORITY, NOT_UNIQUE, ANOTHER_NOT_UNIQUE);
-        verify(fakeRepository, times(1))
-                .findByName(eq(searchParams.getName()), eq(FAKE_PAGEABLE));
+        verify(fakeRepository, times(1)).find(eq(filter(null, NAME)), eq(FAKE_PAGEABLE));
     }
 
     @Test
     public void findForAdmin_searchByPriorityOnly_returnsElementFoundInRepo() {
         //given
         TodoSearchParamsDto searchParams = new TodoSearchParamsDto(
-                null, UNIQUE_PRIORITY.getPriority());
+                null, UNIQUE_PRIORITY.getPriority().name());
+        TodoFilter filter = filter(null, null, UNIQUE_PRIORITY.getPriority());
         whenAdminIsLoggedIn();
-        when(fakeRepository.findByPriority(eq(searchParams.getPriority()), eq(FAKE_PAGEABLE)))
-                .thenReturn(newPage(UNIQUE_PRIORITY));
+        when(fakeRepository.findSlice(eq(filter), eq(FAKE_PAGEABLE)))
+                .thenReturn(new SliceImpl<>(newArrayList(UNIQUE_PRIORITY)));
+        when(counterRepository.count(null, newArrayList(UNIQUE_PRIORITY.getPriority()), null)).thenReturn(1L);
         //when
-        Page<Todo> actualTodos = searchService.find(searchParams, FAKE_PAGEABLE);
+        Page<TodoSummaryDto> actualTodos = searchService.find(searchParams, FAKE_PAGEABLE);
         //then
         assertThat(actualTodos).hasSize(1);
         assertThat(actualTodos).containsOnly(UNIQUE_PRIORITY);
-        verify(fakeRepository, times(1))
-                .findByPriority(eq(searchParams.getPriority()), eq(FAKE_PAGEABLE));
+        assertThat(actualTodos.getTotalElements()).isEqualTo(1L);
+        verify(fakeRepository, times(1)).findSlice(eq(filter), eq(FAKE_PAGEABLE));
+        verifyNoMoreInteractions(fakeRepository);
     }
 
     @Test
-    public void findForAdmin_searchByPriorityOnlyWhenThereIsNoMatchInRepo_returnsEmptyList() {
+    public void findForAdmin_searchByUnknownPriority_throwsInvalidPriority() {
         //given
         TodoSearchParamsDto searchParams = new TodoSearchParamsDto(
                 null, "priorytet1234");
         whenAdminIsLoggedIn();
-        when(fakeRepository.findByPriority(eq(searchParams.getPriority()), eq(FAKE_PAGEABLE)))
-                .thenReturn(new PageImpl<>(emptyList()));
         //when
-        Page<Todo> actualTodos = searchService.find(searchParams, FAKE_PAGEABLE);
+        Throwable thrown = catchThrowable(() -> searchService.find(searchParams, FAKE_PAGEABLE));
         //then
-        assertThat(actualTodos).isEmpty();
-        verify(fakeRepository, times(1))
-                .findByPriority(eq(searchParams.getPriority()), eq(FAKE_PAGEABLE));
+        assertThat(thrown).isInstanceOf(InvalidPriorityException.class);
+        verifyZeroInteractions(fakeRepository);
     }
 
     @Test
     public void findForAdmin_searchByPriorityOnly_returnsManyElementsFoundInRepo() {
         //given
         TodoSearchParamsDto searchParams = new TodoSearchParamsDto(
-                "", PRIORITY);
+                "", PRIORITY.name());
         whenAdminIsLoggedIn();
-        when(fakeRepository.findByPriority(eq(searchParams.getPriority()), eq(FAKE_PAGEABLE)))
-                .thenReturn(newPage(UNIQUE_NAME, NOT_UNIQUE, ANOTHER_NOT_UNIQUE));
+        when(fakeRepository.findSlice(eq(filter(null, null, PRIORITY)), eq(FAKE_PAGEABLE)))
+                .thenReturn(new SliceImpl<>(newArrayList(UNIQUE_NAME, NOT_UNIQUE, ANOTHER_NOT_UNIQUE)));
+        when(counterRepository.count(null, newArrayList(PRIORITY), null)).thenReturn(3L);
         //when
-        Page<Todo> actualTodos = searchService.find(searchParams, FAKE_PAGEABLE);
+        Page<TodoSummaryDto> actualTodos = searchService.find(searchParams, FAKE_PAGEABLE);
         //then
         assertThat(actualTodos).hasSize(3);
         assertThat(actualTodos).containsOnly(UNIQUE_NAME, NOT_UNIQUE, ANOTHER_NOT_UNIQUE);
-        verify(fakeRepository, times(1))
-                .findByPriority(eq(searchParams.getPriority()), eq(FAKE_PAGEABLE));
+        verify(fakeRepository, times(1)).findSlice(eq(filter(null, null, PRIORITY)), eq(FAKE_PAGEABLE));
     }
 
     @Test
@@ -188,62 +275,49 @@ public class SearchTodoServiceTest {
         //given
         TodoSearchParamsDto searchParams = new TodoSearchParamsDto(
                 UNIQUE_NAME_AND_PRIORITY.getName(),
-                UNIQUE_NAME_AND_PRIORITY.getPriority());
+                UNIQUE_NAME_AND_PRIORITY.getPriority().name());
+        TodoFilter filter = filter(null, searchParams.getName(), UNIQUE_NAME_AND_PRIORITY.getPriority());
         whenAdminIsLoggedIn();
-        when(fakeRepository.findByNameAndPriority(
-                searchParams.getName(), searchParams.getPriority(), FAKE_PAGEABLE))
+        when(fakeRepository.find(filter, FAKE_PAGEABLE))
                 .thenReturn(newPage(UNIQUE_NAME_AND_PRIORITY));
         //when
-        Page<Todo> actualTodos = searchService.find(searchParams, FAKE_PAGEABLE);
+        Page<TodoSummaryDto> actualTodos = searchService.find(searchParams, FAKE_PAGEABLE);
         //then
         assertThat(actualTodos).hasSize(1);
         assertThat(actualTodos).containsOnly(UNIQUE_NAME_AND_PRIORITY);
-        verify(fakeRepository, times(1))
-                .findByNameAndPriority(
-                        eq(searchParams.getName()),
-                        eq(searchParams.getPriority()),
-                        eq(FAKE_PAGEABLE));
+        verify(fakeRepository, times(1)).find(eq(filter), eq(FAKE_PAGEABLE));
     }
 
     @Test
     public void findForAdmin_searchByNameAndPriority_returnsManyElementsFoundInRepo() {
         //given
         TodoSearchParamsDto searchParams = new TodoSearchParamsDto(
-                NAME, PRIORITY);
+                NAME, PRIORITY.name());
         whenAdminIsLoggedIn();
-        when(fakeRepository.findByNameAndPriority(
-                eq(searchParams.getName()), eq(searchParams.getPriority()), eq(FAKE_PAGEABLE)))
+        when(fakeRepository.find(eq(filter(null, NAME, PRIORITY)), eq(FAKE_PAGEABLE)))
                 .thenReturn(newPage(NOT_UNIQUE, ANOTHER_NOT_UNIQUE));
         //when
-        Page<Todo> actualTodos = searchService.find(searchParams, FAKE_PAGEABLE);
+        Page<TodoSummaryDto> actualTodos = searchService.find(searchParams, FAKE_PAGEABLE);
         //then
         assertThat(actualTodos).hasSize(2);
         assertThat(actualTodos).containsOnly(ANOTHER_NOT_UNIQUE, NOT_UNIQUE);
-        verify(fakeRepository, times(1))
-                .findByNameAndPriority(
-                        eq(searchParams.getName()),
-                        eq(searchParams.getPriority()),
-                        eq(FAKE_PAGEABLE));
+        verify(fakeRepository, times(1)).find(eq(filter(null, NAME, PRIORITY)), eq(FAKE_PAGEABLE));
     }
 
     @Test
     public void findForAdmin_searchByNameAndPriorityOnlyWhenThereIsNoMatchInRepo_returnsEmptyList() {
         //given
         TodoSearchParamsDto searchParams = new TodoSearchParamsDto(
-                "nazwa1234", "priorytet1234");
+                "nazwa1234", "high");
         whenAdminIsLoggedIn();
-        when(fakeRepository.findByNameAndPriority(
-                eq(searchParams.getName()), eq(searchParams.getPriority()), eq(FAKE_PAGEABLE)))
+        when(fakeRepository.find(eq(filter(null, "nazwa1234", Priority.HIGH)), eq(FAKE_PAGEABLE)))
                 .thenReturn(new PageImpl<>(emptyList()));
         //when
-        Page<Todo> actualTodos = searchService.find(searchParams, FAKE_PAGEABLE);
+        Page<TodoSummaryDto> actualTodos = searchService.find(searchParams, FAKE_PAGEABLE);
         //then
         assertThat(actualTodos).isEmpty();
         verify(fakeRepository, times(1))
-                .findByNameAndPriority(
-                        eq(searchParams.getName()),
-                        eq(searchParams.getPriority()),
-                        eq(FAKE_PAGEABLE));
+                .find(eq(filter(null, "nazwa1234", Priority.HIGH)), eq(FAKE_PAGEABLE));
     }
 
     @Test
@@ -251,10 +325,11 @@ public class SearchTodoServiceTest {
         //given
         TodoSearchParamsDto searchParams = new TodoSearchParamsDto(null, "");
         whenAdminIsLoggedIn();
-        when(fakeRepository.findAll(eq(FAKE_PAGEABLE)))
-                .thenReturn(new PageImpl<>(todos));
+        when(fakeRepository.findSlice(eq(filter(null, null)), eq(FAKE_PAGEABLE)))
+                .thenReturn(new SliceImpl<>(todos));
+        when(counterRepository.count(null, newArrayList(), null)).thenReturn((long) todos.size());
         //when
-        Page<Todo> actualTodos = searchService.find(searchParams, FAKE_PAGEABLE);
+        Page<TodoSummaryDto> actualTodos = searchService.find(searchParams, FAKE_PAGEABLE);
         //then
         assertThat(actualTodos).hasSize(todos.size());
         assertThat(actualTodos).containsOnly(
@@ -263,7 +338,93 @@ public class SearchTodoServiceTest {
                 UNIQUE_NAME,
                 UNIQUE_PRIORITY,
                 UNIQUE_NAME_AND_PRIORITY);
-        verify(fakeRepository, times(1)).findAll(eq(FAKE_PAGEABLE));
+        assertThat(actualTodos.getTotalElements()).isEqualTo(todos.size());
+        verify(fakeRepository, times(1)).findSlice(eq(filter(null, null)), eq(FAKE_PAGEABLE));
+        verify(fakeRepository, never()).count();
+    }
+
+    @Test
+    public void findForUser_searchWithoutParameters_takesTotalFromCounters() {
+        //given
+        whenPlainUserIsLoggedInThenReturnHisLogin();
+        when(fakeRepository.findSlice(filter(PLAIN_USER.getLogin(), null), FAKE_PAGEABLE))
+                .thenReturn(new SliceImpl<>(newArrayList(UNIQUE_NAME)));
+        when(counterRepository.count(PLAIN_USER.getLogin(), newArrayList(), null)).thenReturn(41L);
+        //when
+        Page<TodoSummaryDto> actualTodos = searchService.find(new TodoSearchParamsDto(null, null), FAKE_PAGEABLE);
+        //then
+        assertThat(actualTodos.getContent()).containsExactly(UNIQUE_NAME);
+        assertThat(actualTodos.getTotalElements()).isEqualTo(41L);
+    }
+
+    @Test
+    public void findWithFacets_countableFilter_foldsCounterGroupsIntoFacetsAndTotal() {
+        //given
+        whenPlainUserIsLoggedInThenReturnHisLogin();
+        TodoFilter filter = TodoFilter.builder().username(PLAIN_USER.getLogin()).priorities(newArrayList(Priority.HIGH))
+                .completed(false).build();
+        when(fakeRepository.findSlice(filter, ONE_PER_PAGE)).thenReturn(new SliceImpl<>(newArrayList(UNIQUE_NAME)));
+        when(counterRepository.countGroups(PLAIN_USER.getLogin())).thenReturn(newArrayList(
+                new TodoCountGroup(Priority.HIGH, false, 12),
+                new TodoCountGroup(Priority.HIGH, true, 3),
+                new TodoCountGroup(Priority.MEDIUM, false, 40),
+                new TodoCountGroup(Priority.MEDIUM, true, 100),
+                new TodoCountGroup(null, false, 5),
+                new TodoCountGroup(Priority.LOW, false, 0)));
+        //when
+        TodoFacetedPageDto page = searchService.findWithFacets(
+                new TodoSearchParamsDto(null, "wysoki", false, null, null), ONE_PER_PAGE);
+        //then
+        assertThat(page.getContent()).containsExactly(UNIQUE_NAME);
+        assertThat(page.getTotalElements()).isEqualTo(12L);
+        assertThat(page.getFacets().getPriority()).containsOnly(entry(Priority.HIGH, 12L), entry(Priority.MEDIUM, 40L));
+        assertThat(page.getFacets().getCompleted()).containsOnly(entry(false, 12L), entry(true, 3L));
+        verify(fakeRepository, never()).countGroups(any(TodoFilter.class));
+    }
+
+    @Test
+    public void findWithFacets_nameFilter_groupsTodosInOneQuery() {
+        //given
+        whenAdminIsLoggedIn();
+        TodoFilter filter = filter(null, NAME);
+        when(fakeRepository.findSlice(filter, ONE_PER_PAGE)).thenReturn(new SliceImpl<>(newArrayList(NOT_UNIQUE)));
+        when(fakeRepository.countGroups(filter)).thenReturn(newArrayList(
+                new TodoCountGroup(PRIORITY, true, 2), new TodoCountGroup(PRIORITY, false, 1)));
+        //when
+        TodoFacetedPageDto page = searchService.findWithFacets(new TodoSearchParamsDto(NAME, null), ONE_PER_PAGE);
+        //then
+        assertThat(page.getTotalElements()).isEqualTo(3L);
+        assertThat(page.getFacets().getPriority()).containsOnly(entry(PRIORITY, 3L));
+        verify(counterRepository, never()).countGroups(anyString());
+    }
+
+    @Test
+    public void findFullText_userQuery_returnsPageInIndexRankOrder() {
+        //given
+        whenPlainUserIsLoggedInThenReturnHisLogin();
+        when(fullTextIndex.isReady()).thenReturn(true);
+        TodoSummaryDto first = TodoSummaryDto.from(new Todo(7L, NAME, PRIORITY, "opis", false, PLAIN_USER.getLogin()));
+        TodoSummaryDto second = TodoSummaryDto.from(new Todo(3L, NAME, PRIORITY, "opis", false, PLAIN_USER.getLogin()));
+        when(fullTextIndex.search(PLAIN_USER.getLogin(), "nazwa", FAKE_PAGEABLE.getPageSize()))
+                .thenReturn(new TodoFullTextIndex.Hits(newArrayList(7L, 3L), 2));
+        when(fakeRepository.findSummaries(newArrayList(7L, 3L))).thenReturn(newArrayList(second, first));
+        //when
+        Page<TodoSummaryDto> actualTodos = searchService.findFullText("nazwa", FAKE_PAGEABLE);
+        //then
+        assertThat(actualTodos.getContent()).containsExactly(first, second);
+        assertThat(actualTodos.getTotalElements()).isEqualTo(2L);
+    }
+
+    @Test
+    public void findFullText_indexStillBuilding_throwsNotReadyInsteadOfPartialResults() {
+        //given
+        whenPlainUserIsLoggedInThenReturnHisLogin();
+        when(fullTextIndex.isReady()).thenReturn(false);
+        //when
+        Throwable thrown = catchThrowable(() -> searchService.findFullText("nazwa", FAKE_PAGEABLE));
+        //then
+        assertThat(thrown).isInstanceOf(IndexNotReadyException.class);
+        verify(fullTextIndex, never()).search(anyString(), anyString(), anyInt());
     }
 
     private void whenPlainUserIsLoggedInThenReturnHisLogin() {
@@ -0,0 +1,131 @@
+package com.training.todo.service;
+
+import com.training.security.service.CurrentUserProvider;
+import com.training.todo.controller.dto.TodoImportChunkDto;
+import com.training.todo.domain.Priority;
+import com.training.todo.domain.Todo;
+import com.training.todo.persistance.SecondLevelCache;
+import com.training.todo.persistance.TodoChangeRepository;
+import com.training.todo.persistance.TodoCounterRepository;
+import com.training.todo.persistance.TodoTrigramRepository;
+import com.training.utils.JsonRecordReader.Record;
+import org.junit.Before;
+import org.junit.Test;
+import org.mockito.Mock;
+import org.mockito.MockitoAnnotations;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.transaction.PlatformTransactionManager;
+
+import javax.validation.Validation;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import static com.training.utils.FakeUsers.PLAIN_USER;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.tuple;
+import static org.junit.Assert.fail;
+import static org.mockito.Matchers.anyListOf;
+import static org.mockito.Matchers.anyString;
+import static org.mockito.Matchers.eq;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+public class TodoBatchServiceTest {
+
+    @Mock
+    private JdbcTemplate jdbcTemplate;
+
+    @Mock
+    private TodoCounterRepository counterRepository;
+
+    @Mock
+    private TodoChangeRepository changeRepository;
+
+    @Mock
+    private TodoTrigramRepository trigramRepository;
+
+    @Mock
+    private CurrentUserProvider currentUserProvider;
+
+    @Mock
+    private SecondLevelCache secondLevelCache;
+
+    @Mock
+    private PlatformTransactionManager transactionManager;
+
+    @Mock
+    private ApplicationEventPublisher eventPublisher;
+
+    private TodoBatchService service;
+
+    @Before
+    public void setUp() {
+        MockitoAnnotations.initMocks(this);
+        when(currentUserProvider.getCurrentUserName()).thenReturn(PLAIN_USER.getLogin());
+        service = new TodoBatchService(jdbcTemplate, counterRepository, changeRepository, trigramRepository,
+                currentUserProvider, secondLevelCache, Validation.buildDefaultValidatorFactory().getValidator(),
+                transactionManager, eventPublisher, 2, 100);
+    }
+
+    @Test
+    public void create_manyTodos_returnsIdsFromSequenceBlocksInInputOrder() {
+        // given
+        when(jdbcTemplate.queryForObject(anyString(), eq(Long.class))).thenReturn(1L, 51L);
+        List<Record<Todo>> records = Arrays.asList(record(1, todo("a")), record(2, todo("b")),
+                record(3, todo("c")));
+        // when
+        List<Long> ids = service.create(records.iterator());
+        // then
+        assertThat(ids).containsExactly(1L, 2L, 3L);
+        verify(jdbcTemplate, times(1)).queryForObject(anyString(), eq(Long.class));
+        verify(jdbcTemplate, times(2)).batchUpdate(anyString(), anyListOf(Object[].class));
+        verify(counterRepository, times(2)).addedAll(anyListOf(Todo.class));
+        verify(changeRepository).changed(PLAIN_USER.getLogin());
+    }
+
+    @Test
+    public void create_recordWithoutName_throwsIllegalArgumentExceptionBeforeInsert() {
+        // given
+        List<Record<Todo>> records = Arrays.asList(record(1, todo(null)));
+        try {
+            // when
+            service.create(records.iterator());
+            fail();
+        } catch (IllegalArgumentException e) {
+            // then
+            assertThat(e.getMessage()).startsWith("Record 1: name");
+        }
+        verify(jdbcTemplate, never()).batchUpdate(anyString(), anyListOf(Object[].class));
+    }
+
+    @Test
+    public void importChunks_invalidRecord_rejectsOnlyItsChunkAndReportsEachChunk() {
+        // given
+        when(jdbcTemplate.queryForObject(anyString(), eq(Long.class))).thenReturn(1L);
+        List<Record<Todo>> records = Arrays.asList(record(1, todo("a")), new Record<>(2, null, "Unexpected token"),
+                record(3, todo("c")), record(4, todo("d")), record(5, todo(null)));
+        List<TodoImportChunkDto> report = new ArrayList<>();
+        // when
+        service.importChunks(records.iterator(), report::add);
+        // then
+        assertThat(report).extracting("fromRecord", "toRecord", "imported")
+                .containsExactly(tuple(1L, 2L, 0), tuple(3L, 4L, 2), tuple(5L, 5L, 0));
+        assertThat(report.get(0).getErrors()).containsExactly("Record 2: Unexpected token");
+        assertThat(report.get(2).getErrors()).hasSize(1);
+        assertThat(report.get(2).getErrors().get(0)).startsWith("Record 5: name");
+        verify(jdbcTemplate, times(1)).batchUpdate(anyString(), anyListOf(Object[].class));
+        verify(changeRepository, times(1)).changed(PLAIN_USER.getLogin());
+    }
+
+    private static Record<Todo> record(long number, Todo todo) {
+        return new Record<>(number, todo, null);
+    }
+
+    private static Todo todo(String name) {
+        return Todo.builder().name(name).priority(Priority.HIGH).build();
+    }
+}
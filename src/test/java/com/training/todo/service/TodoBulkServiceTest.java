@@ -0,0 +1,109 @@
+package com.training.todo.service;
+
+import com.training.security.service.CurrentUserProvider;
+import com.training.todo.controller.dto.TodoBulkRequestDto;
+import com.training.todo.controller.dto.TodoSearchParamsDto;
+import com.training.todo.persistance.SecondLevelCache;
+import com.training.todo.persistance.TodoChangeRepository;
+import com.training.todo.persistance.TodoCounterRepository;
+import com.training.todo.persistance.TodoTrigramRepository;
+import org.junit.Before;
+import org.junit.Test;
+import org.mockito.Matchers;
+import org.mockito.Mock;
+import org.mockito.MockitoAnnotations;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.transaction.PlatformTransactionManager;
+
+import static com.google.common.collect.Lists.newArrayList;
+import static com.training.utils.FakeUsers.PLAIN_USER;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.junit.Assert.fail;
+import static org.mockito.Matchers.anyString;
+import static org.mockito.Matchers.eq;
+import static org.mockito.Matchers.startsWith;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+public class TodoBulkServiceTest {
+
+    @Mock
+    private JdbcTemplate jdbcTemplate;
+
+    @Mock
+    private TodoCounterRepository counterRepository;
+
+    @Mock
+    private TodoChangeRepository changeRepository;
+
+    @Mock
+    private TodoTrigramRepository trigramRepository;
+
+    @Mock
+    private CurrentUserProvider currentUserProvider;
+
+    @Mock
+    private SecondLevelCache secondLevelCache;
+
+    @Mock
+    private PlatformTransactionManager transactionManager;
+
+    @Mock
+    private ApplicationEventPublisher eventPublisher;
+
+    private TodoBulkService service;
+
+    @Before
+    public void setUp() {
+        MockitoAnnotations.initMocks(this);
+        when(currentUserProvider.getCurrentUserName()).thenReturn(PLAIN_USER.getLogin());
+        service = new TodoBulkService(jdbcTemplate, counterRepository, changeRepository, trigramRepository,
+                currentUserProvider, secondLevelCache, transactionManager, eventPublisher, 2);
+    }
+
+    @Test
+    public void complete_idsLongerThanChunk_updatesEachChunkAndSumsAffectedRows() {
+        // given
+        when(jdbcTemplate.update(startsWith("UPDATE todos"), Matchers.<Object>anyVararg())).thenReturn(2, 0);
+        TodoBulkRequestDto request = new TodoBulkRequestDto(newArrayList(1L, 2L, 3L, 3L), null);
+        // when
+        long affected = service.complete(request);
+        // then
+        assertThat(affected).isEqualTo(2);
+        verify(jdbcTemplate, times(2)).update(startsWith("UPDATE todos"), Matchers.<Object>anyVararg());
+        verify(counterRepository, times(2)).completedStoredWhere(anyString(), Matchers.<Object>anyVararg());
+        verify(transactionManager, times(2)).commit(Matchers.any());
+    }
+
+    @Test
+    public void delete_filter_deletesChunksSelectedByKeyset() {
+        // given
+        when(jdbcTemplate.queryForList(anyString(), eq(Long.class), Matchers.<Object>anyVararg()))
+                .thenReturn(newArrayList(4L, 7L))
+                .thenReturn(newArrayList(9L));
+        when(jdbcTemplate.update(startsWith("DELETE FROM todos"), Matchers.<Object>anyVararg())).thenReturn(2, 1);
+        TodoBulkRequestDto request = new TodoBulkRequestDto(null, new TodoSearchParamsDto(null, null, true));
+        // when
+        long affected = service.delete(request);
+        // then
+        assertThat(affected).isEqualTo(3);
+        verify(jdbcTemplate, times(2)).queryForList(anyString(), eq(Long.class), Matchers.<Object>anyVararg());
+        verify(counterRepository, times(2)).removedStoredWhere(anyString(), Matchers.<Object>anyVararg());
+    }
+
+    @Test
+    public void delete_neitherIdsNorFilter_throwsIllegalArgumentException() {
+        try {
+            // when
+            service.delete(new TodoBulkRequestDto());
+            fail();
+        } catch (IllegalArgumentException e) {
+            // then
+            assertThat(e.getMessage()).contains("ids or filter");
+        }
+        verify(jdbcTemplate, never()).update(anyString(), Matchers.<Object>anyVararg());
+    }
+}
@@ -0,0 +1,93 @@
+package com.training.todo.service;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.training.security.service.CurrentUserProvider;
+import com.training.todo.domain.Priority;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.mockito.Mock;
+import org.mockito.MockitoAnnotations;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.jdbc.JdbcTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.junit4.SpringRunner;
+
+import javax.sql.DataSource;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+
+import static com.training.utils.FakeUsers.ADMIN_USER;
+import static com.training.utils.FakeUsers.PLAIN_USER;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.when;
+
+@RunWith(SpringRunner.class)
+@JdbcTest
+public class TodoExportServiceTest {
+
+    private static final String INSERT_TODO =
+            "INSERT INTO todos (id, name, priority_level, description, completed, username) VALUES (?, ?, ?, ?, ?, ?)";
+
+    @Autowired
+    private DataSource dataSource;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Mock
+    private CurrentUserProvider currentUserProvider;
+
+    private TodoExportService service;
+
+    @Before
+    public void setUp() {
+        MockitoAnnotations.initMocks(this);
+        service = new TodoExportService(dataSource, currentUserProvider, new ObjectMapper(), 2);
+        for (String login : new String[]{PLAIN_USER.getLogin(), ADMIN_USER.getLogin()}) {
+            jdbcTemplate.update("INSERT INTO users (login, password_hash, role) VALUES (?, 'hash', 0)", login);
+        }
+        jdbcTemplate.update(INSERT_TODO, 1L, "zakupy", Priority.HIGH.ordinal(), "mleko, \"chleb\"", false,
+                PLAIN_USER.getLogin());
+        jdbcTemplate.update(INSERT_TODO, 2L, "sprzatanie", null, null, true, PLAIN_USER.getLogin());
+        jdbcTemplate.update(INSERT_TODO, 3L, "raport", Priority.MEDIUM.ordinal(), null, false, ADMIN_USER.getLogin());
+    }
+
+    @Test
+    public void export_csvForUser_writesOnlyOwnTodosWithQuotedFields() throws IOException {
+        // given
+        loggedIn(false);
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        // when
+        long exported = service.export(TodoExportService.Format.CSV, out);
+        // then
+        assertThat(exported).isEqualTo(2);
+        assertThat(new String(out.toByteArray(), StandardCharsets.UTF_8)).isEqualTo(
+                "id,name,priority,description,completed,username,version\r\n" +
+                "1,zakupy,HIGH,\"mleko, \"\"chleb\"\"\",false,henio,0\r\n" +
+                "2,sprzatanie,,,true,henio,0\r\n");
+    }
+
+    @Test
+    public void export_ndjsonForAdmin_writesAllTodosOnePerLineInIdOrder() throws IOException {
+        // given
+        loggedIn(true);
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        // when
+        long exported = service.export(TodoExportService.Format.NDJSON, out);
+        // then
+        assertThat(exported).isEqualTo(3);
+        String[] lines = new String(out.toByteArray(), StandardCharsets.UTF_8).split("\n");
+        assertThat(lines).hasSize(3);
+        assertThat(lines[0]).startsWith("{\"id\":1,\"name\":\"zakupy\"");
+        assertThat(lines[2]).contains("\"priority\":\"MEDIUM\"", "\"username\":\"admin\"")
+                .doesNotContain("description");
+    }
+
+    private void loggedIn(boolean admin) {
+        when(currentUserProvider.isAdminLoggedIn()).thenReturn(admin);
+        when(currentUserProvider.getCurrentUserName())
+                .thenReturn(admin ? ADMIN_USER.getLogin() : PLAIN_USER.getLogin());
+    }
+}
@@ -0,0 +1,181 @@
+package com.training.todo.service;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.jdbc.JdbcTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.junit4.SpringRunner;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+
+import javax.sql.DataSource;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import static java.util.Collections.singletonList;
+import static org.assertj.core.api.Assertions.assertThat;
+
+@RunWith(SpringRunner.class)
+@JdbcTest
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+public class TodoFullTextIndexTest {
+
+    private static final String HENIO = "henio";
+    private static final String OTHER = "other";
+    private static final String INSERT_TODO =
+            "INSERT INTO todos (id, name, description, completed, username) VALUES (?, ?, ?, FALSE, ?)";
+
+    @Autowired
+    private DataSource dataSource;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    private TodoFullTextIndex index;
+
+    @Before
+    public void setUp() throws InterruptedException {
+        for (String login : new String[]{HENIO, OTHER}) {
+            jdbcTemplate.update("INSERT INTO users (login, password_hash, role) VALUES (?, 'hash', 0)", login);
+        }
+        jdbcTemplate.update(INSERT_TODO, 1L, "Zakupy", "kupic mleko i chleb", HENIO);
+        jdbcTemplate.update(INSERT_TODO, 2L, "Mleko dla kota", null, HENIO);
+        jdbcTemplate.update(INSERT_TODO, 3L, "Sprzatanie", "wyniesc smieci", HENIO);
+        jdbcTemplate.update(INSERT_TODO, 4L, "Mleko", null, OTHER);
+        index = new TodoFullTextIndex(dataSource, 3);
+        index.rebuild();
+    }
+
+    /**
+     * Przebudowa czyta todo z innych watkow (polaczen), wiec dane testu musza byc zatwierdzone
+     */
+    @After
+    public void tearDown() {
+        index.shutdown();
+        jdbcTemplate.update("DELETE FROM todos");
+        jdbcTemplate.update("DELETE FROM users WHERE login IN (?, ?)", HENIO, OTHER);
+    }
+
+    @Test
+    public void search_wordInNameAndDescription_ranksNameMatchFirstAndSkipsOtherUsers() {
+        // when
+        TodoFullTextIndex.Hits hits = index.search(HENIO, "MLEKO", 10);
+        // then
+        assertThat(hits.getIds()).containsExactly(2L, 1L);
+        assertThat(hits.getTotal()).isEqualTo(2);
+    }
+
+    @Test
+    public void search_manyWordsWithDiacritics_requiresAllWords() {
+        // when
+        TodoFullTextIndex.Hits hits = index.search(HENIO, "chleb, mleko! Kupić", 10);
+        // then
+        assertThat(hits.getIds()).containsExactly(1L);
+    }
+
+    @Test
+    public void search_adminWithLimit_countsAllHitsButReturnsOnlyLimit() {
+        // when
+        TodoFullTextIndex.Hits hits = index.search(null, "mleko", 1);
+        // then
+        assertThat(hits.getTotal()).isEqualTo(3);
+        assertThat(hits.getIds()).hasSize(1);
+    }
+
+    @Test
+    public void search_admin_ranksHitsOfAllUsersWithCommonIdf() {
+        // when
+        TodoFullTextIndex.Hits hits = index.search(null, "mleko", 10);
+        // then name matches of both users tie and go before the description match
+        assertThat(hits.getIds()).containsExactly(2L, 4L, 1L);
+    }
+
+    @Test
+    public void onTodosModified_rowsChangedAndDeleted_rereadsThemFromDatabase() throws Exception {
+        // given
+        jdbcTemplate.update("UPDATE todos SET description = 'kupic karme' WHERE id = 3");
+        jdbcTemplate.update("DELETE FROM todos WHERE id = 2");
+        // when
+        index.onTodosModified(new TodosModifiedEvent(singletonList(3L)));
+        index.onTodosModified(new TodosModifiedEvent(singletonList(2L)));
+        index.awaitRefresh();
+        // then
+        assertThat(index.search(HENIO, "karme", 10).getIds()).containsExactly(3L);
+        assertThat(index.search(HENIO, "smieci", 10).getTotal()).isZero();
+        assertThat(index.search(HENIO, "kota", 10).getTotal()).isZero();
+    }
+
+    @Test
+    public void onTodosModified_refreshApplied_changesVersion() throws Exception {
+        // given
+        String before = index.getVersion();
+        jdbcTemplate.update("UPDATE todos SET name = 'Mleko' WHERE id = 3");
+        // when
+        index.onTodosModified(new TodosModifiedEvent(singletonList(3L)));
+        index.awaitRefresh();
+        // then
+        assertThat(index.getVersion()).isNotEqualTo(before);
+        assertThat(index.search(HENIO, "mleko", 10).getIds()).contains(3L);
+    }
+
+    @Test
+    public void getVersion_otherIndexInstance_differsEvenWithSameHistory() throws Exception {
+        // given
+        TodoFullTextIndex other = new TodoFullTextIndex(dataSource, 3);
+        other.rebuild();
+        try {
+            // when
+            String version = other.getVersion();
+            // then
+            assertThat(version).isNotEqualTo(index.getVersion());
+        } finally {
+            other.shutdown();
+        }
+    }
+
+    @Test
+    public void isReady_beforeAndAfterRebuild_isTrueOnlyAfter() throws Exception {
+        // given
+        TodoFullTextIndex fresh = new TodoFullTextIndex(dataSource, 3);
+        try {
+            assertThat(fresh.isReady()).isFalse();
+            // when
+            fresh.rebuild();
+            // then
+            assertThat(fresh.isReady()).isTrue();
+        } finally {
+            fresh.shutdown();
+        }
+    }
+
+    @Test
+    public void onTodosModified_refreshFails_retriesTheSameTodos() throws Exception {
+        // given
+        AtomicBoolean failed = new AtomicBoolean();
+        TodoFullTextIndex flaky = new TodoFullTextIndex(dataSource, 3) {
+            @Override
+            protected void put(ResultSet row) throws SQLException {
+                if (!isRebuilding() && failed.compareAndSet(false, true)) {
+                    throw new SQLException("connection lost");
+                }
+                super.put(row);
+            }
+        };
+        try {
+            flaky.rebuild();
+            jdbcTemplate.update("UPDATE todos SET description = 'kupic karme' WHERE id = 3");
+            // when
+            flaky.onTodosModified(new TodosModifiedEvent(singletonList(3L)));
+            flaky.awaitRefresh();
+            // then
+            assertThat(failed.get()).isTrue();
+            assertThat(flaky.search(HENIO, "karme", 10).getIds()).containsExactly(3L);
+        } finally {
+            flaky.shutdown();
+        }
+    }
+}
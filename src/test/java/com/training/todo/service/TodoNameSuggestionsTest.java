@@ -0,0 +1,108 @@
+package com.training.todo.service;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.actuate.metrics.Metric;
+import org.springframework.boot.test.autoconfigure.jdbc.JdbcTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.junit4.SpringRunner;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+
+import javax.sql.DataSource;
+import java.util.HashMap;
+import java.util.Map;
+
+import static java.util.Arrays.asList;
+import static java.util.Collections.singletonList;
+import static org.assertj.core.api.Assertions.assertThat;
+
+@RunWith(SpringRunner.class)
+@JdbcTest
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+public class TodoNameSuggestionsTest {
+
+    private static final String HENIO = "henio";
+    private static final String OTHER = "other";
+    private static final String INSERT_TODO =
+            "INSERT INTO todos (id, name, description, completed, username) VALUES (?, ?, NULL, FALSE, ?)";
+
+    @Autowired
+    private DataSource dataSource;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    private TodoNameSuggestions suggestions;
+
+    @Before
+    public void setUp() throws InterruptedException {
+        for (String login : new String[]{HENIO, OTHER}) {
+            jdbcTemplate.update("INSERT INTO users (login, password_hash, role) VALUES (?, 'hash', 0)", login);
+        }
+        jdbcTemplate.update(INSERT_TODO, 1L, "Zakupy", HENIO);
+        jdbcTemplate.update(INSERT_TODO, 2L, "Zadzwonic do mamy", HENIO);
+        jdbcTemplate.update(INSERT_TODO, 3L, "zakupy", HENIO);
+        jdbcTemplate.update(INSERT_TODO, 4L, "Zaplacic rachunki", HENIO);
+        jdbcTemplate.update(INSERT_TODO, 5L, "Sprzatanie", HENIO);
+        jdbcTemplate.update(INSERT_TODO, 6L, "Zoo", OTHER);
+        suggestions = new TodoNameSuggestions(dataSource, 2);
+        suggestions.rebuild();
+    }
+
+    /**
+     * Przebudowa czyta todo z innych watkow (polaczen), wiec dane testu musza byc zatwierdzone
+     */
+    @After
+    public void tearDown() {
+        suggestions.shutdown();
+        jdbcTemplate.update("DELETE FROM todos");
+        jdbcTemplate.update("DELETE FROM users WHERE login IN (?, ?)", HENIO, OTHER);
+    }
+
+    @Test
+    public void suggest_prefix_ranksFrequentFirstThenRecentAndSkipsOtherUsers() {
+        // when, then
+        assertThat(suggestions.suggest(HENIO, "ZA", 10))
+                .containsExactly("Zakupy", "Zaplacic rachunki", "Zadzwonic do mamy");
+        assertThat(suggestions.suggest(HENIO, "z", 2)).containsExactly("Zakupy", "Zaplacic rachunki");
+        assertThat(suggestions.suggest(HENIO, "zoo", 10)).isEmpty();
+    }
+
+    @Test
+    public void onTodosModified_renamedAndDeleted_updatesCountsAndRecency() throws Exception {
+        // given
+        jdbcTemplate.update("UPDATE todos SET name = 'Zadzwonic do mamy' WHERE id = 3");
+        jdbcTemplate.update("DELETE FROM todos WHERE id = 4");
+        // when
+        suggestions.onTodosModified(new TodosModifiedEvent(asList(3L, 4L)));
+        suggestions.awaitRefresh();
+        // then
+        assertThat(suggestions.suggest(HENIO, "za", 10)).containsExactly("Zadzwonic do mamy", "Zakupy");
+        // when
+        jdbcTemplate.update("UPDATE todos SET name = 'Sprzatanie' WHERE id = 1");
+        suggestions.onTodosModified(new TodosModifiedEvent(singletonList(1L)));
+        suggestions.awaitRefresh();
+        // then
+        assertThat(suggestions.suggest(HENIO, "", 10)).containsExactly("Sprzatanie", "Zadzwonic do mamy");
+    }
+
+    @Test
+    public void metrics_reportsNamesAndLargestUsersWithoutLogins() {
+        // when
+        Map<String, Number> metrics = new HashMap<>();
+        for (Metric<?> metric : suggestions.metrics()) {
+            metrics.put(metric.getName(), metric.getValue());
+        }
+        // then
+        assertThat(metrics.get("todo.suggest.users")).isEqualTo(2);
+        assertThat(metrics.get("todo.suggest.names")).isEqualTo(5L);
+        assertThat(metrics.get("todo.suggest.todos")).isEqualTo(6);
+        assertThat(metrics.get("todo.suggest.bytes.user.top1").longValue())
+                .isGreaterThan(metrics.get("todo.suggest.bytes.user.top2").longValue());
+        assertThat(metrics.keySet().toString()).doesNotContain(HENIO).doesNotContain(OTHER);
+    }
+}
@@ -2,29 +2,53 @@ package com.training.todo.service;
 
 
 import com.training.security.service.CurrentUserProvider;
+import com.training.todo.controller.dto.TodoStatsDto;
+import com.training.todo.controller.dto.TodoSummaryDto;
+import com.training.todo.domain.Priority;
 import com.training.todo.domain.Todo;
+import com.training.todo.persistance.KeysetCursor;
+import com.training.todo.persistance.TodoChangeRepository;
+import com.training.todo.persistance.TodoCounterRepository;
+import com.training.todo.persistance.TodoFilter;
 import com.training.todo.persistance.TodoJpaRepository;
+import com.training.todo.persistance.TodoState;
+import com.training.todo.persistance.TodoTrigramRepository;
+import com.training.todo.utils.ConcurrentUpdateException;
 import com.training.todo.utils.ForbiddenException;
+import com.training.todo.utils.InvalidPatchException;
+import com.training.todo.utils.PreconditionFailedException;
 import com.training.utils.FakeUsers;
 import org.junit.Before;
 import org.junit.Test;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
 import org.mockito.MockitoAnnotations;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.SliceImpl;
+import org.springframework.data.domain.Sort;
 
 import javax.persistence.EntityNotFoundException;
 import java.util.List;
+import java.util.Map;
 
 import static com.google.common.collect.Lists.newArrayList;
+import static java.util.Collections.emptyMap;
+import static java.util.Collections.singletonMap;
 import static org.assertj.core.api.Assertions.assertThat;
 import static org.junit.Assert.assertFalse;
 import static org.junit.Assert.assertTrue;
 import static org.junit.Assert.fail;
 import static org.mockito.Matchers.any;
+import static org.mockito.Matchers.anyBoolean;
+import static org.mockito.Matchers.anyMapOf;
+import static org.mockito.Matchers.anyString;
 import static org.mockito.Matchers.eq;
+import static org.mockito.Mockito.never;
 import static org.mockito.Mockito.times;
 import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.verifyZeroInteractions;
 import static org.mockito.Mockito.when;
 
 public class TodoServiceTest {
@@ -32,14 +56,14 @@ public class TodoServiceTest {
     private static final long ID = 1L;
 
     private static final Todo PLAIN_USER_TODO = new Todo(
-            ID, "todo1", "priority1", "about todo1", true, FakeUsers.PLAIN_USER.getLogin());
+            ID, "todo1", Priority.HIGH, "about todo1", true, FakeUsers.PLAIN_USER.getLogin());
 
     private static final Todo ADMIN_USER_TODO = new Todo(
-            ID, "todo1", "priority1", "about todo1", true, FakeUsers.ADMIN_USER.getLogin());
+            ID, "todo1", Priority.HIGH, "about todo1", true, FakeUsers.ADMIN_USER.getLogin());
 
     private static final List<Todo> FAKE_TODOS = newArrayList(
             PLAIN_USER_TODO,
-            new Todo(2L, "todo2", "priority2", "about todo2", true, "username")
+            new Todo(2L, "todo2", Priority.LOW, "about todo2", true, "username")
     );
 
 
@@ -49,6 +73,18 @@ public class TodoServiceTest {
     @Mock
     private TodoJpaRepository fakeRepository;
 
+    @Mock
+    private TodoCounterRepository counterRepository;
+
+    @Mock
+    private TodoChangeRepository changeRepository;
+
+    @Mock
+    private TodoTrigramRepository trigramRepository;
+
+    @Mock
+    private ApplicationEventPublisher eventPublisher;
+
     @InjectMocks
     private TodoService todoService;
 
@@ -76,13 +112,52 @@ public class TodoServiceTest {
     public void hasAccessToTodo_userIsLoggedIn_returnsFalseForOthers() {
         // given
         plainUserIsLoggedIn();
-        Todo othersTodo = new Todo(1L, "todo1", "priority1", "about todo1", true, "other");
+        Todo othersTodo = new Todo(1L, "todo1", Priority.HIGH, "about todo1", true, "other");
         // when
         boolean hasAccessToOthers = todoService.hasAccessTo(othersTodo);
         // then
         assertFalse(hasAccessToOthers);
     }
 
+    @Test
+    public void getAll_userSortsByPriority_readsOwnTodosThroughFilterQueryWithTotalFromCounters() {
+        // given
+        plainUserIsLoggedIn();
+        PageRequest highestFirst = new PageRequest(0, 1, new Sort(Sort.Direction.DESC, "priority"));
+        TodoFilter own = TodoFilter.builder().username(FakeUsers.LOGGED_USER_PLAIN.getLogin()).build();
+        when(fakeRepository.findSlice(own, highestFirst))
+                .thenReturn(new SliceImpl<>(newArrayList(TodoSummaryDto.from(PLAIN_USER_TODO))));
+        when(counterRepository.count(FakeUsers.LOGGED_USER_PLAIN.getLogin(), null)).thenReturn(7L);
+        // when
+        Page<TodoSummaryDto> todos = todoService.getAll(highestFirst);
+        // then
+        assertThat(todos.getContent()).containsExactly(TodoSummaryDto.from(PLAIN_USER_TODO));
+        assertThat(todos.getTotalElements()).isEqualTo(7L);
+    }
+
+    @Test
+    public void getAllAfter_userIsLoggedIn_readsOnlyOwnTodos() {
+        // given
+        plainUserIsLoggedIn();
+        KeysetCursor cursor = KeysetCursor.first(null);
+        // when
+        todoService.getAll(cursor, 20);
+        // then
+        verify(fakeRepository).findAfter(
+                TodoFilter.builder().username(FakeUsers.LOGGED_USER_PLAIN.getLogin()).build(), cursor, 20);
+    }
+
+    @Test
+    public void getAllAfter_adminIsLoggedIn_readsTodosOfAllUsers() {
+        // given
+        when(currentUserProvider.isAdminLoggedIn()).thenReturn(true);
+        KeysetCursor cursor = KeysetCursor.first(null);
+        // when
+        todoService.getAll(cursor, 20);
+        // then
+        verify(fakeRepository).findAfter(TodoFilter.builder().build(), cursor, 20);
+    }
+
     private String firstElementUsername(Page<Todo> todos) {
         return todos.getContent().get(0).getUsername();
     }
@@ -90,7 +165,7 @@ public class TodoServiceTest {
     @Test
     public void create_userIsLoggedIn_savesGivenTodoWithLoggedUserNameAndReturnsCreatedId() {
         // given
-        Todo given = new Todo(null, "todo", "high", "", false, null);
+        Todo given = new Todo(null, "todo", Priority.HIGH, "", false, null);
         when(currentUserProvider.getCurrentUserName()).thenReturn(FakeUsers.LOGGED_USER_PLAIN.getLogin());
         when(fakeRepository.save(eq(withLoggedUserName(given)))).thenReturn(withCreatedId(given));
         // when
@@ -100,6 +175,30 @@ public class TodoServiceTest {
         verify(fakeRepository).save(withLoggedUserName(given));
     }
 
+    @Test
+    public void create_userIsLoggedIn_countsTodoInTheSameCall() {
+        // given
+        Todo given = new Todo(null, "todo", Priority.HIGH, "", false, null);
+        when(currentUserProvider.getCurrentUserName()).thenReturn(FakeUsers.LOGGED_USER_PLAIN.getLogin());
+        when(fakeRepository.save(eq(withLoggedUserName(given)))).thenReturn(withCreatedId(given));
+        // when
+        todoService.create(given);
+        // then
+        verify(counterRepository).added(withLoggedUserName(given));
+    }
+
+    @Test
+    public void getStats_adminIsLoggedIn_returnsStatsOfAllUsers() {
+        // given
+        when(currentUserProvider.isAdminLoggedIn()).thenReturn(true);
+        TodoStatsDto stats = new TodoStatsDto(3, 1, emptyMap());
+        when(counterRepository.stats(null)).thenReturn(stats);
+        // when
+        TodoStatsDto actual = todoService.getStats();
+        // then
+        assertThat(actual).isSameAs(stats);
+    }
+
     private Todo withLoggedUserName(Todo todo) {
         return Todo.builder()
                 .id(todo.getId())
@@ -125,7 +224,7 @@ public class TodoServiceTest {
     @Test
     public void get_todoNotFoundInRepo_throwsEntityNotFoundException() {
         // given
-        when(fakeRepository.findOne(ID)).thenReturn(null);
+        when(fakeRepository.exists(ID)).thenReturn(false);
         // when
         try {
             todoService.get(ID);
@@ -133,7 +232,33 @@ public class TodoServiceTest {
         } catch (EntityNotFoundException e) {
             // then pass
         }
-        verify(fakeRepository).findOne(ID);
+        verify(fakeRepository).exists(ID);
+    }
+
+    @Test
+    public void get_ownTodo_readsItWithOneOwnershipScopedQuery() {
+        // given
+        plainUserIsLoggedIn();
+        when(fakeRepository.findOwned(ID, FakeUsers.LOGGED_USER_PLAIN.getLogin(), false)).thenReturn(PLAIN_USER_TODO);
+        // when
+        Todo todo = todoService.get(ID);
+        // then
+        assertThat(todo).isEqualTo(PLAIN_USER_TODO);
+        verify(fakeRepository, never()).exists(ID);
+        verify(fakeRepository, never()).findOne(ID);
+    }
+
+    @Test
+    public void delete_ownTodo_deletesWithOneOwnershipScopedStatement() {
+        // given
+        plainUserIsLoggedIn();
+        when(fakeRepository.deleteOwned(ID, FakeUsers.LOGGED_USER_PLAIN.getLogin(), false)).thenReturn(1);
+        // when
+        todoService.delete(ID);
+        // then
+        verify(counterRepository).removedStored(ID, FakeUsers.LOGGED_USER_PLAIN.getLogin(), false);
+        verify(fakeRepository, never()).exists(ID);
+        verify(fakeRepository, never()).findOne(ID);
     }
 
     private void assertSameTodoButWithoutUsername(Todo todo) {
@@ -148,13 +273,13 @@ public class TodoServiceTest {
     @Test
     public void update_todoNotFoundInRepo_addsGivenTodoToRepo() {
         // given
-        when(fakeRepository.findOne(ID)).thenReturn(null);
+        when(fakeRepository.exists(ID)).thenReturn(false);
         when(currentUserProvider.getCurrentUserName()).thenReturn("user");
         when(fakeRepository.save(eq(expectedToSave()))).thenReturn(expectedToSave());
         // when
         todoService.update(PLAIN_USER_TODO);
         // then
-        verify(fakeRepository).findOne(ID);
+        verify(fakeRepository).exists(ID);
         verify(currentUserProvider).getCurrentUserName();
         verify(fakeRepository).save(expectedToSave());
     }
@@ -185,7 +310,7 @@ public class TodoServiceTest {
     public void update_userIsLoggedInAndWannaUpdateOthersTodo__itIsForbidden() throws Exception {
         // given
         plainUserIsLoggedIn();
-        when(fakeRepository.findOne(ID)).thenReturn(ADMIN_USER_TODO);
+        when(fakeRepository.exists(ID)).thenReturn(true);
         // when
         try {
             todoService.update(ADMIN_USER_TODO);
@@ -195,10 +320,133 @@ public class TodoServiceTest {
         }
     }
 
+    @Test
+    public void update_ownTodoWithSamePriorityAndState_updatesByStoredVersionAndMovesCountersOnlyIfNeeded() {
+        // given
+        plainUserIsLoggedIn();
+        TodoState stored = stored("todo0", Priority.HIGH, true, 2L);
+        when(fakeRepository.findOwnedState(ID, FakeUsers.LOGGED_USER_PLAIN.getLogin(), false)).thenReturn(stored);
+        when(fakeRepository.updateOwnedIfVersion(PLAIN_USER_TODO, 2L, FakeUsers.LOGGED_USER_PLAIN.getLogin(), false))
+                .thenReturn(1);
+        // when
+        todoService.update(PLAIN_USER_TODO);
+        // then
+        verify(counterRepository).moved(stored, PLAIN_USER_TODO);
+        verify(counterRepository, never()).removedStored(eq(ID), anyString(), anyBoolean());
+        verify(counterRepository, never()).addedStored(ID);
+        verify(changeRepository).changed(FakeUsers.PLAIN_USER.getLogin());
+        verify(trigramRepository).renamedStored(ID, PLAIN_USER_TODO.getName());
+        verify(eventPublisher).publishEvent(any(TodosModifiedEvent.class));
+        verify(fakeRepository, never()).exists(ID);
+    }
+
+    @Test
+    public void update_todoChangedBetweenReadAndUpdate_retriesFromRead() {
+        // given
+        plainUserIsLoggedIn();
+        TodoState first = stored("todo1", Priority.LOW, false, 2L);
+        TodoState second = stored("todo1", Priority.HIGH, true, 3L);
+        when(fakeRepository.findOwnedState(ID, FakeUsers.LOGGED_USER_PLAIN.getLogin(), false))
+                .thenReturn(first, second);
+        when(fakeRepository.updateOwnedIfVersion(PLAIN_USER_TODO, 2L, FakeUsers.LOGGED_USER_PLAIN.getLogin(), false))
+                .thenReturn(0);
+        when(fakeRepository.updateOwnedIfVersion(PLAIN_USER_TODO, 3L, FakeUsers.LOGGED_USER_PLAIN.getLogin(), false))
+                .thenReturn(1);
+        // when
+        todoService.update(PLAIN_USER_TODO);
+        // then
+        verify(counterRepository).moved(second, PLAIN_USER_TODO);
+        verify(counterRepository, never()).moved(first, PLAIN_USER_TODO);
+        verify(trigramRepository, never()).renamedStored(eq(ID), anyString());
+        verify(eventPublisher, never()).publishEvent(any(TodosModifiedEvent.class));
+    }
+
+    @Test
+    public void update_todoChangedOnEveryAttempt_givesUpWithConflict() {
+        // given
+        plainUserIsLoggedIn();
+        when(fakeRepository.findOwnedState(ID, FakeUsers.LOGGED_USER_PLAIN.getLogin(), false))
+                .thenReturn(stored("todo1", Priority.LOW, false, 2L));
+        // when
+        try {
+            todoService.update(PLAIN_USER_TODO);
+            fail();
+        } catch (ConcurrentUpdateException e) {
+            // then pass
+        }
+        verify(fakeRepository, times(3)).updateOwnedIfVersion(PLAIN_USER_TODO, 2L,
+                FakeUsers.LOGGED_USER_PLAIN.getLogin(), false);
+        verify(counterRepository, never()).moved(any(TodoState.class), any(Todo.class));
+    }
+
+    @Test
+    public void updateIfVersion_todoChangedConcurrently_throwsPreconditionFailed() throws Exception {
+        // given
+        plainUserIsLoggedIn();
+        when(fakeRepository.findOwnedState(ID, FakeUsers.LOGGED_USER_PLAIN.getLogin(), false))
+                .thenReturn(stored("todo1", Priority.HIGH, true, 4L));
+        // when
+        try {
+            todoService.update(PLAIN_USER_TODO, 3L);
+            fail();
+        } catch (PreconditionFailedException e) {
+            // then pass
+        }
+        verify(fakeRepository, never()).updateOwnedIfVersion(PLAIN_USER_TODO, 3L,
+                FakeUsers.LOGGED_USER_PLAIN.getLogin(), false);
+        verify(counterRepository, never()).moved(any(TodoState.class), any(Todo.class));
+    }
+
+    private static TodoState stored(String name, Priority priority, boolean completed, long version) {
+        return new TodoState(FakeUsers.PLAIN_USER.getLogin(), name, PLAIN_USER_TODO.getDescription(), priority,
+                completed, version);
+    }
+
+    @Test
+    public void patch_nameOnly_updatesWithoutTouchingCounters() {
+        // given
+        plainUserIsLoggedIn();
+        Map<String, Object> patch = singletonMap("name", "nowa nazwa");
+        when(fakeRepository.patchOwned(ID, patch, null, FakeUsers.LOGGED_USER_PLAIN.getLogin(), false)).thenReturn(1);
+        // when
+        todoService.patch(ID, patch, null);
+        // then
+        verify(fakeRepository).patchOwned(ID, patch, null, FakeUsers.LOGGED_USER_PLAIN.getLogin(), false);
+        verifyZeroInteractions(counterRepository);
+    }
+
+    @Test
+    public void patch_legacyPriorityLabel_storesPriorityAndMovesCounters() {
+        // given
+        plainUserIsLoggedIn();
+        Map<String, Object> changes = singletonMap("priority", Priority.HIGH);
+        when(fakeRepository.patchOwned(ID, changes, null, FakeUsers.LOGGED_USER_PLAIN.getLogin(), false)).thenReturn(1);
+        // when
+        todoService.patch(ID, singletonMap("priority", "Wysoki"), null);
+        // then
+        verify(counterRepository).removedStored(ID, FakeUsers.LOGGED_USER_PLAIN.getLogin(), false);
+        verify(counterRepository).addedStored(ID);
+    }
+
+    @Test
+    public void patch_ownerField_throwsInvalidPatchException() {
+        // given
+        plainUserIsLoggedIn();
+        // when
+        try {
+            todoService.patch(ID, singletonMap("username", "other"), null);
+            fail();
+        } catch (InvalidPatchException e) {
+            // then pass
+        }
+        verify(fakeRepository, never()).patchOwned(
+                any(Long.class), anyMapOf(String.class, Object.class), any(Long.class), anyString(), anyBoolean());
+    }
+
     @Test
     public void delete_todoNotFoundInRepo_throwsEntityNotFoundException() {
         // given
-        when(fakeRepository.findOne(ID)).thenReturn(null);
+        when(fakeRepository.exists(ID)).thenReturn(false);
         // when
         try {
             todoService.delete(ID);
@@ -206,7 +454,7 @@ public class TodoServiceTest {
         } catch (EntityNotFoundException e) {
             // then pass
         }
-        verify(fakeRepository).findOne(ID);
+        verify(fakeRepository).exists(ID);
         verify(fakeRepository, times(0)).delete(any(Long.class));
     }
 
@@ -214,7 +462,7 @@ public class TodoServiceTest {
     public void delete_userIsLoggedInAndWannaDeleteOthersTodo__itIsForbidden() throws Exception {
         // given
         plainUserIsLoggedIn();
-        when(fakeRepository.findOne(ID)).thenReturn(ADMIN_USER_TODO);
+        when(fakeRepository.exists(ID)).thenReturn(true);
         // when
         try {
             todoService.delete(ID);
@@ -0,0 +1,147 @@
+package com.training.user.service;
+
+import com.training.user.controller.dto.UserBatchResultDto;
+import com.training.user.domain.User;
+import com.training.user.persistance.UserRepository;
+import com.training.utils.JsonRecordReader.Record;
+import org.junit.Before;
+import org.junit.Test;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Captor;
+import org.mockito.Mock;
+import org.mockito.MockitoAnnotations;
+import org.springframework.dao.DataAccessResourceFailureException;
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.security.crypto.password.PasswordEncoder;
+import org.springframework.transaction.PlatformTransactionManager;
+
+import javax.validation.Validation;
+import java.sql.BatchUpdateException;
+import java.util.Arrays;
+import java.util.List;
+import java.util.stream.Collectors;
+
+import static com.google.common.collect.Sets.newHashSet;
+import static com.training.user.controller.dto.UserBatchResultDto.Status.*;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.tuple;
+import static org.mockito.Matchers.any;
+import static org.mockito.Matchers.anyListOf;
+import static org.mockito.Matchers.anyString;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+public class UserBatchServiceTest {
+
+    private static final String PASSWORD_HASH = "1a1a1a1a1a1a";
+
+    @Mock
+    private UserRepository userRepository;
+
+    @Mock
+    private PasswordEncoder passwordEncoder;
+
+    @Mock
+    private JdbcTemplate jdbcTemplate;
+
+    @Mock
+    private PlatformTransactionManager transactionManager;
+
+    @Captor
+    private ArgumentCaptor<List<Object[]>> rows;
+
+    private UserBatchService service;
+
+    @Before
+    public void setUp() {
+        MockitoAnnotations.initMocks(this);
+        when(passwordEncoder.encode(any())).thenReturn(PASSWORD_HASH);
+        service = new UserBatchService(userRepository, passwordEncoder, jdbcTemplate, transactionManager,
+                Validation.buildDefaultValidatorFactory().getValidator(), 2);
+    }
+
+    @Test
+    public void create_mixedRecords_reportsStatusForEveryRowInInputOrder() {
+        // given
+        when(userRepository.findExistingLogins(any())).thenReturn(newHashSet("admin"));
+        List<Record<User>> records = Arrays.asList(
+                record(1, user("ala")),
+                record(2, user("admin")),
+                new Record<User>(3, null, "Unexpected character"),
+                record(4, user("ala")),
+                record(5, User.builder().login("bez_hasla").role(User.Role.USER).build()));
+        // when
+        List<UserBatchResultDto> results = service.create(records.iterator());
+        // then
+        assertThat(statuses(results)).containsExactly(CREATED, ALREADY_EXISTS, INVALID, DUPLICATE, INVALID);
+    }
+
+    @Test
+    public void create_newUsers_insertsHashedPasswordsInOneBatchPerChunk() {
+        // given
+        when(userRepository.findExistingLogins(any())).thenReturn(newHashSet());
+        List<Record<User>> records = Arrays.asList(record(1, user("ala")), record(2, user("ola")),
+                record(3, user("ela")));
+        // when
+        service.create(records.iterator());
+        // then
+        verify(jdbcTemplate, times(2)).batchUpdate(anyString(), rows.capture());
+        Object[] firstRow = rows.getAllValues().get(0).get(0);
+        assertThat(firstRow).containsExactly("ala", PASSWORD_HASH, User.Role.USER.ordinal());
+    }
+
+    @Test
+    public void create_batchFailsOnOneRow_failsOnlyThatRecordAndInsertsTheRest() {
+        // given
+        when(userRepository.findExistingLogins(any())).thenReturn(newHashSet());
+        when(jdbcTemplate.batchUpdate(anyString(), anyListOf(Object[].class)))
+                .thenThrow(new DuplicateKeyException("duplicate", new BatchUpdateException(new int[]{1})))
+                .thenReturn(new int[]{1});
+        // when
+        List<UserBatchResultDto> results = service.create(Arrays.asList(record(1, user("ala")),
+                record(2, user("ola"))).iterator());
+        // then
+        assertThat(results).extracting("login", "status").containsExactly(tuple("ala", CREATED), tuple("ola", FAILED));
+    }
+
+    @Test
+    public void create_chunkRolledBack_laterRecordWithSameLoginIsNotDuplicate() {
+        // given
+        when(userRepository.findExistingLogins(any())).thenReturn(newHashSet());
+        when(jdbcTemplate.batchUpdate(anyString(), anyListOf(Object[].class)))
+                .thenThrow(new DataAccessResourceFailureException("connection lost"))
+                .thenReturn(new int[]{1});
+        List<Record<User>> records = Arrays.asList(record(1, user("ala")), record(2, user("ola")),
+                record(3, user("ala")));
+        // when
+        List<UserBatchResultDto> results = service.create(records.iterator());
+        // then
+        assertThat(statuses(results)).containsExactly(FAILED, FAILED, CREATED);
+    }
+
+    @Test
+    public void create_allUsersExist_doesNotInsertAnything() {
+        // given
+        when(userRepository.findExistingLogins(any())).thenReturn(newHashSet("ala"));
+        // when
+        service.create(Arrays.asList(record(1, user("ala"))).iterator());
+        // then
+        verify(jdbcTemplate, never()).batchUpdate(anyString(), anyListOf(Object[].class));
+        verify(passwordEncoder, never()).encode(any());
+    }
+
+    private static Record<User> record(long number, User user) {
+        return new Record<>(number, user, null);
+    }
+
+    private static User user(String login) {
+        return User.builder().login(login).passwordHash("haslo").role(User.Role.USER).build();
+    }
+
+    private static List<UserBatchResultDto.Status> statuses(List<UserBatchResultDto> results) {
+        return results.stream().map(UserBatchResultDto::getStatus).collect(Collectors.toList());
+    }
+}
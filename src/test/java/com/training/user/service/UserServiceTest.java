@@ -2,6 +2,7 @@ package com.training.user.service;
 
 import com.training.utils.FakeUsers;
 import com.training.security.service.CurrentUserProvider;
+import com.training.todo.utils.ForbiddenException;
 import com.training.user.controller.dto.UserDto;
 import com.training.user.domain.User;
 import com.training.user.persistance.UserRepository;
@@ -11,6 +12,7 @@ import org.mockito.ArgumentCaptor;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
 import org.mockito.MockitoAnnotations;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.dao.EmptyResultDataAccessException;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.PageImpl;
@@ -45,6 +47,9 @@ public class UserServiceTest {
     @Mock
     private CurrentUserProvider currentUserProvider;
 
+    @Mock
+    private ApplicationEventPublisher eventPublisher;
+
     @InjectMocks
     private UserService service;
 
@@ -268,4 +273,30 @@ public class UserServiceTest {
         verify(fakeRepository)
                 .updatePassword(PLAIN_USER.getLogin(), PASSWORD_HASH);
     }
-}
\ No newline at end of file
+
+    @Test
+    public void updatePassword_passwordUpdated_publishesUserModifiedEvent() {
+        // given
+        when(fakeRepository.exists(PLAIN_USER.getLogin())).thenReturn(true);
+        plainUserIsLoggedIn();
+        // when
+        service.updatePassword(PLAIN_USER.getLogin(), "new password");
+        // then
+        verify(eventPublisher).publishEvent(any(UserModifiedEvent.class));
+    }
+
+    @Test
+    public void updatePassword_otherUsersPassword_doesNotPublishEvent() {
+        // given
+        when(fakeRepository.exists(ADMIN_USER.getLogin())).thenReturn(true);
+        plainUserIsLoggedIn();
+        // when
+        try {
+            service.updatePassword(ADMIN_USER.getLogin(), "new password");
+            fail("Should not allow to change other user password");
+        } catch (ForbiddenException e) {
+            // then pass
+        }
+        verify(eventPublisher, never()).publishEvent(any(UserModifiedEvent.class));
+    }
+}
@@ -0,0 +1,63 @@
+package com.training.utils;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.training.utils.JsonRecordReader.Record;
+import org.junit.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+
+import static com.google.common.collect.Lists.newArrayList;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.tuple;
+
+public class JsonRecordReaderTest {
+
+    private final ObjectMapper mapper = new ObjectMapper();
+
+    @Test
+    public void jsonArray_mappingErrorInOneRecord_readsTheRest() throws IOException {
+        List<Record<Named>> records = newArrayList(
+                JsonRecordReader.jsonArray(mapper, body("[{\"name\":\"a\"}, 1, {\"name\":\"b\"}]"), Named.class));
+
+        assertThat(records).extracting("number", "valid")
+                .containsExactly(tuple(1L, true), tuple(2L, false), tuple(3L, true));
+    }
+
+    @Test
+    public void jsonArray_syntaxError_endsWithInvalidRecord() throws IOException {
+        InputStream body = body("[{\"name\":\"a\"}, {\"name\" \"b\"}, {\"name\":\"c\"}]");
+
+        List<Record<Named>> records = newArrayList(JsonRecordReader.jsonArray(mapper, body, Named.class));
+
+        assertThat(records).extracting("number", "valid")
+                .containsExactly(tuple(1L, true), tuple(2L, false));
+        assertThat(records.get(1).getError()).isNotEmpty();
+    }
+
+    @Test
+    public void jsonArray_truncatedBody_endsWithInvalidRecord() throws IOException {
+        List<Record<Named>> records = newArrayList(
+                JsonRecordReader.jsonArray(mapper, body("[{\"name\":\"a\"}, {\"na"), Named.class));
+
+        assertThat(records).extracting("number", "valid")
+                .containsExactly(tuple(1L, true), tuple(2L, false));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void jsonArray_malformedStart_throwsIllegalArgument() throws IOException {
+        JsonRecordReader.jsonArray(mapper, body("}["), Named.class);
+    }
+
+    private InputStream body(String json) {
+        return new ByteArrayInputStream(json.getBytes(StandardCharsets.UTF_8));
+    }
+
+    public static class Named {
+
+        public String name;
+    }
+}